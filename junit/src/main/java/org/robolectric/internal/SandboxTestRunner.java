@@ -9,6 +9,11 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nonnull;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -18,6 +23,7 @@ import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.BlockJUnit4ClassRunner;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
 import org.junit.runners.model.Statement;
 import org.junit.runners.model.TestClass;
 import org.robolectric.internal.bytecode.ClassHandler;
@@ -63,7 +69,10 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
   protected final ClassHandlerBuilder classHandlerBuilder;
 
   private final List<PerfStatsReporter> perfStatsReporters;
-  private final HashSet<Class<?>> loadedTestClasses = new HashSet<>();
+  private final Set<Class<?>> loadedTestClasses = Collections.synchronizedSet(new HashSet<>());
+  private final int concurrency = Integer.getInteger("robolectric.concurrency", 1);
+  private final boolean directCallUnshadowedClasses =
+      Boolean.parseBoolean(System.getProperty("robolectric.directCallUnshadowedClasses", "false"));
 
   public SandboxTestRunner(Class<?> klass) throws InitializationError {
     this(klass, DEFAULT_INJECTOR);
@@ -77,6 +86,10 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
     shadowProviders = injector.getInstance(ShadowProviders.class);
     classHandlerBuilder = injector.getInstance(ClassHandlerBuilder.class);
     perfStatsReporters = Arrays.asList(injector.getInstance(PerfStatsReporter[].class));
+
+    if (concurrency > 1) {
+      setScheduler(new ConcurrentScheduler(concurrency));
+    }
   }
 
   @Nonnull
@@ -95,6 +108,13 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
     return new Statement() {
       @Override
       public void evaluate() throws Throwable {
+        PerfStatsCollector perfStatsCollector = PerfStatsCollector.getInstance();
+        if (concurrency > 1) {
+          // tests overlap, so perf stats are reported for the class as a whole; they aren't reset,
+          // as other test classes may be running at the same time and recording their own
+          perfStatsCollector.setEnabled(!perfStatsReporters.isEmpty());
+        }
+
         try {
           statement.evaluate();
           for (Class<?> testClass : loadedTestClasses) {
@@ -103,15 +123,17 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
         } finally {
           afterClass();
           loadedTestClasses.clear();
+
+          if (concurrency > 1 && !perfStatsReporters.isEmpty()) {
+            reportPerfStats(perfStatsCollector.getMetadata(), perfStatsCollector.drainMetrics());
+          }
         }
       }
     };
   }
 
   private void invokeBeforeClass(final Class clazz) throws Throwable {
-    if (!loadedTestClasses.contains(clazz)) {
-      loadedTestClasses.add(clazz);
-
+    if (loadedTestClasses.add(clazz)) {
       final TestClass testClass = new TestClass(clazz);
       final List<FrameworkMethod> befores = testClass.getAnnotatedMethods(BeforeClass.class);
       for (FrameworkMethod before : befores) {
@@ -131,12 +153,20 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
   protected void afterClass() {
   }
 
+  /**
+   * Returns a sandbox in which to run {@code method}. When tests run concurrently, the sandbox must
+   * not be used by any other test until it's passed to {@link #releaseSandbox(Sandbox)}.
+   */
   @Nonnull
   protected Sandbox getSandbox(FrameworkMethod method) {
     InstrumentationConfiguration instrumentationConfiguration = createClassLoaderConfig(method);
     return new Sandbox(instrumentationConfiguration, new UrlResourceProvider(), classInstrumentor);
   }
 
+  /** Called when a test is done with the sandbox returned by {@link #getSandbox(FrameworkMethod)}. */
+  protected void releaseSandbox(Sandbox sandbox) {
+  }
+
   /**
    * Create an {@link InstrumentationConfiguration} suitable for the provided {@link FrameworkMethod}.
    *
@@ -147,6 +177,32 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
    */
   @Nonnull
   protected InstrumentationConfiguration createClassLoaderConfig(FrameworkMethod method) {
+    InstrumentationConfiguration.Builder builder = newDefaultClassLoaderConfigBuilder();
+
+    for (Class<?> shadowClass : getExtraShadows(method)) {
+      ShadowInfo shadowInfo = ShadowMap.obtainShadowInfo(shadowClass);
+      builder.addInstrumentedClass(shadowInfo.shadowedClassName);
+    }
+
+    addInstrumentedPackages(method, builder);
+
+    if (directCallUnshadowedClasses) {
+      // methods of classes no shadow could apply to skip the ClassHandler and call through
+      builder.setShadowedClasses(shadowProviders.getBaseShadowMap().getShadowedClassNames());
+    }
+
+    return builder.build();
+  }
+
+  /**
+   * Creates an {@link InstrumentationConfiguration.Builder} with the rules common to every test
+   * method, i.e. the configuration used for a method with no extra shadows or instrumented
+   * packages.
+   *
+   * @return a new builder
+   */
+  @Nonnull
+  public static InstrumentationConfiguration.Builder newDefaultClassLoaderConfigBuilder() {
     InstrumentationConfiguration.Builder builder =
         InstrumentationConfiguration.newBuilder()
             .doNotAcquirePackage("java.")
@@ -170,15 +226,7 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
     if (!customClassesRegex.isEmpty()) {
       builder.setDoNotInstrumentClassRegex(customClassesRegex);
     }
-
-    for (Class<?> shadowClass : getExtraShadows(method)) {
-      ShadowInfo shadowInfo = ShadowMap.obtainShadowInfo(shadowClass);
-      builder.addInstrumentedClass(shadowInfo.shadowedClassName);
-    }
-
-    addInstrumentedPackages(method, builder);
-
-    return builder.build();
+    return builder;
   }
 
   private void addInstrumentedPackages(FrameworkMethod method, InstrumentationConfiguration.Builder builder) {
@@ -218,13 +266,28 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
       @Override
       public void evaluate() throws Throwable {
         PerfStatsCollector perfStatsCollector = PerfStatsCollector.getInstance();
-        perfStatsCollector.reset();
-        perfStatsCollector.setEnabled(!perfStatsReporters.isEmpty());
+        if (concurrency == 1) {
+          perfStatsCollector.reset();
+          perfStatsCollector.setEnabled(!perfStatsReporters.isEmpty());
+        }
 
         Event initialization = perfStatsCollector.startEvent("initialization");
 
         Sandbox sandbox = getSandbox(method);
+        try {
+          runInSandbox(sandbox, initialization);
+        } finally {
+          sandbox.afterTest();
+          releaseSandbox(sandbox);
+        }
+
+        if (concurrency == 1) {
+          reportPerfStats(perfStatsCollector);
+          perfStatsCollector.reset();
+        }
+      }
 
+      private void runInSandbox(Sandbox sandbox, Event initialization) {
         // Configure sandbox *BEFORE* setting the ClassLoader. This is necessary because
         // creating the ShadowMap loads all ShadowProviders via ServiceLoader and this is
         // not available once we install the Robolectric class loader.
@@ -275,9 +338,6 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
             }
           }
         });
-
-        reportPerfStats(perfStatsCollector);
-        perfStatsCollector.reset();
       }
     };
   }
@@ -287,9 +347,10 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
       return;
     }
 
-    Metadata metadata = perfStatsCollector.getMetadata();
-    Collection<Metric> metrics = perfStatsCollector.getMetrics();
+    reportPerfStats(perfStatsCollector.getMetadata(), perfStatsCollector.getMetrics());
+  }
 
+  private void reportPerfStats(Metadata metadata, Collection<Metric> metrics) {
     for (PerfStatsReporter perfStatsReporter : perfStatsReporters) {
       try {
         perfStatsReporter.report(metadata, metrics);
@@ -316,6 +377,51 @@ public class SandboxTestRunner extends BlockJUnit4ClassRunner {
     }
   }
 
+  /**
+   * Runs test methods on a pool of threads, enabled by setting the `robolectric.concurrency`
+   * system property to the number of threads.
+   *
+   * Each concurrently running test has a sandbox to itself, so static state is isolated by the
+   * sandboxes' class loaders; JVM-wide state, such as system properties, is not.
+   */
+  private static class ConcurrentScheduler implements RunnerScheduler {
+    private final int concurrency;
+    private final List<Future<?>> futures = new ArrayList<>();
+    private ExecutorService executorService;
+
+    ConcurrentScheduler(int concurrency) {
+      this.concurrency = concurrency;
+    }
+
+    @Override
+    public void schedule(Runnable childStatement) {
+      if (executorService == null) {
+        executorService = Executors.newFixedThreadPool(concurrency);
+      }
+      futures.add(executorService.submit(childStatement));
+    }
+
+    @Override
+    public void finished() {
+      try {
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        throw Util.sneakyThrow(e.getCause());
+      } finally {
+        futures.clear();
+        if (executorService != null) {
+          executorService.shutdownNow();
+          executorService = null;
+        }
+      }
+    }
+  }
+
   protected static class HelperTestRunner extends BlockJUnit4ClassRunner {
     public FrameworkMethod frameworkMethod;
 
@@ -0,0 +1,43 @@
+package org.robolectric.pluginapi;
+
+import java.util.List;
+
+/**
+ * Decides when sandboxes cached between tests should be discarded. Implement this interface to
+ * bound the cache by whatever resource is scarce in your environment.
+ *
+ * This is an extension point for Robolectric; see {@link org.robolectric.pluginapi} for details.
+ */
+@ExtensionPoint
+public interface SandboxEvictionPolicy {
+
+  /**
+   * Returns true if the least recently used sandbox should be evicted from the cache. Called
+   * repeatedly, after a sandbox is created, until it returns false or no sandbox can be evicted.
+   *
+   * @param sandboxes the cached sandboxes which may be evicted, from least to most recently used;
+   *     never empty. The new sandbox and those in use by running tests are never evicted, so
+   *     they're left out.
+   */
+  boolean shouldEvictEldest(List<SandboxStats> sandboxes);
+
+  /** Statistics about a cached sandbox. */
+  interface SandboxStats {
+
+    /** The SDK the sandbox simulates. */
+    Sdk getSdk();
+
+    /** The number of classes loaded by the sandbox's class loader. */
+    int getLoadedClassCount();
+
+    /**
+     * The total size of the bytecode of the classes loaded by the sandbox's class loader. The
+     * classes and the data derived from them account for most of what a sandbox retains, so this is
+     * a rough estimate of its retained size.
+     */
+    long getLoadedClassBytes();
+
+    /** When the sandbox was last used, as returned by {@link System#currentTimeMillis()}. */
+    long getLastUsedTimeMillis();
+  }
+}
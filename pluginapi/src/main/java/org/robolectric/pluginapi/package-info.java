@@ -21,6 +21,7 @@
  * | {@link org.robolectric.internal.dependency.DependencyResolver} | {@link org.robolectric.LegacyDependencyResolver} |
  * | {@link org.robolectric.pluginapi.config.GlobalConfigProvider}  | _none_ |
  * | {@link org.robolectric.pluginapi.perf.PerfStatsReporter}       | _none_ |
+ * | {@link org.robolectric.pluginapi.SandboxEvictionPolicy}        | {@link org.robolectric.plugins.DefaultSandboxEvictionPolicy} |
  * | {@link org.robolectric.pluginapi.SdkPicker}                    | {@link org.robolectric.plugins.DefaultSdkPicker} |
  * | {@link org.robolectric.pluginapi.SdkProvider}                  | {@link org.robolectric.plugins.DefaultSdkProvider} |
  */
@@ -46,6 +46,10 @@ public class RobolectricModel {
   private final TreeMap<String, ResetterInfo> resetterMap;
 
   private final TreeMap<String, DocumentedPackage> documentedPackages;
+  /**
+   * Key: name of reflector interface
+   */
+  private final TreeMap<String, TypeElement> reflectorTypes;
 
   public Collection<DocumentedPackage> getDocumentedPackages() {
     return documentedPackages.values();
@@ -55,12 +59,14 @@ public class RobolectricModel {
       TreeMap<String, ShadowInfo> shadowTypes,
       TreeMap<String, String> extraShadowTypes,
       TreeMap<String, ResetterInfo> resetterMap,
-      Map<String, DocumentedPackage> documentedPackages) {
+      Map<String, DocumentedPackage> documentedPackages,
+      TreeMap<String, TypeElement> reflectorTypes) {
     this.imports = new TreeSet<>(imports);
     this.shadowTypes = new TreeMap<>(shadowTypes);
     this.extraShadowTypes = new TreeMap<>(extraShadowTypes);
     this.resetterMap = new TreeMap<>(resetterMap);
     this.documentedPackages = new TreeMap<>(documentedPackages);
+    this.reflectorTypes = new TreeMap<>(reflectorTypes);
   }
 
   private final static ElementVisitor<TypeElement, Void> TYPE_ELEMENT_VISITOR =
@@ -80,6 +86,7 @@ public class RobolectricModel {
     private final TreeMap<String, String> extraShadowTypes = newTreeMap();
     private final TreeMap<String, ResetterInfo> resetterMap = newTreeMap();
     private final Map<String, DocumentedPackage> documentedPackages = new TreeMap<>();
+    private final TreeMap<String, TypeElement> reflectorTypes = newTreeMap();
 
     private final Map<TypeElement, TypeElement> importMap = newHashMap();
     private final Map<TypeElement, String> referentMap = newHashMap();
@@ -124,6 +131,10 @@ public class RobolectricModel {
           new ResetterInfo(shadowTypeElement, elem));
     }
 
+    public void addReflectorType(TypeElement reflectorType) {
+      reflectorTypes.put(reflectorType.getQualifiedName().toString(), reflectorType);
+    }
+
     public void documentPackage(String name, String documentation) {
       getDocumentedPackage(name).setDocumentation(documentation);
     }
@@ -162,7 +173,7 @@ public class RobolectricModel {
       prepare();
 
       return new RobolectricModel(imports, shadowTypes, extraShadowTypes, resetterMap,
-          documentedPackages);
+          documentedPackages, reflectorTypes);
     }
 
     /**
@@ -232,7 +243,7 @@ public class RobolectricModel {
         }
       };
       shadowTypes.values().forEach(shadowInfo -> shadowInfo.prepare(referentResolver, helpers));
-      resetterMap.values().forEach(resetterInfo -> resetterInfo.prepare(referentResolver));
+      resetterMap.values().forEach(resetterInfo -> resetterInfo.prepare(referentResolver, helpers));
     }
 
     private void registerType(TypeElement type) {
@@ -261,6 +272,10 @@ public class RobolectricModel {
     return resetterMap.values();
   }
 
+  public Collection<TypeElement> getReflectorTypes() {
+    return reflectorTypes.values();
+  }
+
   public Set<String> getImports() {
     return imports;
   }
@@ -452,20 +467,26 @@ public class RobolectricModel {
     private final TypeElement shadowType;
     private final ExecutableElement executableElement;
     private String shadowTypeReferent;
+    private String shadowBinaryName;
 
     ResetterInfo(TypeElement shadowType, ExecutableElement executableElement) {
       this.shadowType = shadowType;
       this.executableElement = executableElement;
     }
 
-    void prepare(ReferentResolver referentResolver) {
+    void prepare(ReferentResolver referentResolver, Helpers helpers) {
       shadowTypeReferent = referentResolver.getReferentFor(shadowType);
+      shadowBinaryName = helpers.getBinaryName(shadowType);
     }
 
     private Implements getImplementsAnnotation() {
       return shadowType.getAnnotation(Implements.class);
     }
 
+    public String getShadowBinaryName() {
+      return shadowBinaryName;
+    }
+
     public String getMethodCall() {
       return shadowTypeReferent + "." + executableElement.getSimpleName() + "();";
     }
@@ -18,8 +18,10 @@ import javax.lang.model.element.TypeElement;
 import org.robolectric.annotation.processing.RobolectricModel.Builder;
 import org.robolectric.annotation.processing.generator.Generator;
 import org.robolectric.annotation.processing.generator.JavadocJsonGenerator;
+import org.robolectric.annotation.processing.generator.ReflectorGenerator;
 import org.robolectric.annotation.processing.generator.ServiceLoaderGenerator;
 import org.robolectric.annotation.processing.generator.ShadowProviderGenerator;
+import org.robolectric.annotation.processing.validator.ForTypeValidator;
 import org.robolectric.annotation.processing.validator.ImplementationValidator;
 import org.robolectric.annotation.processing.validator.ImplementsValidator;
 import org.robolectric.annotation.processing.validator.ImplementsValidator.SdkCheckMode;
@@ -34,7 +36,9 @@ import org.robolectric.annotation.processing.validator.Validator;
 @SupportedOptions({
   RobolectricProcessor.PACKAGE_OPT, 
   RobolectricProcessor.SHOULD_INSTRUMENT_PKG_OPT})
-@SupportedAnnotationTypes("org.robolectric.annotation.*")
+@SupportedAnnotationTypes({
+  "org.robolectric.annotation.*",
+  "org.robolectric.util.reflector.ForType"})
 public class RobolectricProcessor extends AbstractProcessor {
   static final String PACKAGE_OPT = "org.robolectric.annotation.processing.shadowPackage";
   static final String SHOULD_INSTRUMENT_PKG_OPT = 
@@ -87,6 +91,7 @@ public class RobolectricProcessor extends AbstractProcessor {
     addValidator(new ImplementsValidator(modelBuilder, environment, sdkCheckMode, sdkStore));
     addValidator(new RealObjectValidator(modelBuilder, environment));
     addValidator(new ResetterValidator(modelBuilder, environment));
+    addValidator(new ForTypeValidator(modelBuilder, environment));
   }
 
   @Override
@@ -108,6 +113,7 @@ public class RobolectricProcessor extends AbstractProcessor {
               model, processingEnv, shadowPackage, shouldInstrumentPackages, priority));
       generators.add(new ServiceLoaderGenerator(processingEnv, shadowPackage));
       generators.add(new JavadocJsonGenerator(model, processingEnv, jsonDocsDir));
+      generators.add(new ReflectorGenerator(model, processingEnv));
 
       for (Generator generator : generators) {
         generator.generate();
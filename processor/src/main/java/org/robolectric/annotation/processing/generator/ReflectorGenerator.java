@@ -0,0 +1,464 @@
+package org.robolectric.annotation.processing.generator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.NoType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.SimpleTypeVisitor6;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.robolectric.annotation.processing.Helpers;
+import org.robolectric.annotation.processing.RobolectricModel;
+import org.robolectric.annotation.processing.RobolectricProcessor;
+
+/**
+ * Generator that creates implementations of {@code @ForType} interfaces, so that {@code
+ * Reflector} can load them by name instead of generating them at runtime.
+ *
+ * The generated classes behave like the ones {@code Reflector} would generate: members of the
+ * target class are looked up reflectively the first time they're used. Interfaces which can't be
+ * implemented from another source file (e.g. private ones) are skipped, and {@code Reflector}
+ * keeps generating their implementations at runtime.
+ */
+public class ReflectorGenerator extends Generator {
+  /** Must match the suffix {@code Reflector} looks for. */
+  static final String REFLECTOR_SUFFIX = "$$Reflector";
+
+  private static final String FOR_TYPE = "org.robolectric.util.reflector.ForType";
+  private static final String ACCESSOR = "org.robolectric.util.reflector.Accessor";
+  private static final String STATIC = "org.robolectric.util.reflector.Static";
+  private static final String WITH_TYPE = "org.robolectric.util.reflector.WithType";
+
+  private final Filer filer;
+  private final Messager messager;
+  private final Elements elements;
+  private final Types types;
+  private final RobolectricModel model;
+
+  public ReflectorGenerator(RobolectricModel model, ProcessingEnvironment environment) {
+    this.filer = environment.getFiler();
+    this.messager = environment.getMessager();
+    this.elements = environment.getElementUtils();
+    this.types = environment.getTypeUtils();
+    this.model = model;
+  }
+
+  @Override
+  public void generate() {
+    for (TypeElement reflectorType : model.getReflectorTypes()) {
+      String targetClassName = getTargetClassName(reflectorType);
+      if (targetClassName == null || !canImplement(reflectorType)) {
+        continue;
+      }
+
+      String reflectorClassName = elements.getBinaryName(reflectorType) + REFLECTOR_SUFFIX;
+      try {
+        JavaFileObject jfo = filer.createSourceFile(reflectorClassName, reflectorType);
+        try (PrintWriter writer = new PrintWriter(jfo.openWriter())) {
+          generate(writer, reflectorType, targetClassName);
+        }
+      } catch (IOException e) {
+        messager.printMessage(Diagnostic.Kind.ERROR, "Failed to write reflector class file: " + e);
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  void generate(PrintWriter writer, TypeElement reflectorType, String targetClassName) {
+    PackageElement packageElement = elements.getPackageOf(reflectorType);
+    String binaryName = elements.getBinaryName(reflectorType).toString();
+    String className = binaryName.substring(binaryName.lastIndexOf('.') + 1) + REFLECTOR_SUFFIX;
+    List<ExecutableElement> methods = getReflectorMethods(reflectorType);
+
+    if (!packageElement.isUnnamed()) {
+      writer.println("package " + packageElement.getQualifiedName() + ";");
+      writer.println();
+    }
+    writer.println("import java.lang.reflect.Field;");
+    writer.println("import java.lang.reflect.InvocationTargetException;");
+    writer.println("import java.lang.reflect.Method;");
+    writer.println("import javax.annotation.Generated;");
+    writer.println();
+    writer.println("/**");
+    writer.println(" * Reflector for {@link " + reflectorType.getQualifiedName() + "}."
+        + " Automatically generated by the Robolectric Annotation Processor.");
+    writer.println(" */");
+    writer.println("@Generated(\"" + RobolectricProcessor.class.getCanonicalName() + "\")");
+    writer.println("@SuppressWarnings({\"unchecked\",\"deprecation\"})");
+    writer.println(
+        "final class " + className + " implements " + reflectorType.getQualifiedName() + " {");
+    writer.println("  private static final Class<?> TARGET_CLASS = findClass(\""
+        + targetClassName + "\");");
+    writer.println();
+
+    Set<String> fieldNames = new LinkedHashSet<>();
+    int methodCount = 0;
+    for (ExecutableElement method : methods) {
+      String fieldName = getAccessedFieldName(method);
+      if (fieldName != null) {
+        fieldNames.add(fieldName);
+      } else {
+        methodCount++;
+      }
+    }
+    for (String fieldName : fieldNames) {
+      writer.println("  private static Field field$" + fieldName + ";");
+    }
+    for (int i = 0; i < methodCount; i++) {
+      writer.println("  private static Method method$" + i + ";");
+    }
+    if (!fieldNames.isEmpty() || methodCount > 0) {
+      writer.println();
+    }
+
+    writer.println("  private final Object target;");
+    writer.println();
+    writer.println("  public " + className + "(Object target) {");
+    writer.println("    this.target = target;");
+    writer.println("  }");
+
+    int methodNumber = 0;
+    boolean usesWithType = false;
+    for (ExecutableElement method : methods) {
+      writer.println();
+      String fieldName = getAccessedFieldName(method);
+      if (fieldName != null) {
+        generateAccessorMethod(writer, reflectorType, method, fieldName);
+      } else {
+        usesWithType |=
+            generateReflectorMethod(writer, reflectorType, method, methodNumber++);
+      }
+    }
+
+    for (String fieldName : fieldNames) {
+      writer.println();
+      writer.println("  private static Field getField$" + fieldName + "()"
+          + " throws ReflectiveOperationException {");
+      writer.println("    if (field$" + fieldName + " == null) {");
+      writer.println("      Field field = TARGET_CLASS.getDeclaredField(\"" + fieldName + "\");");
+      writer.println("      field.setAccessible(true);");
+      writer.println("      field$" + fieldName + " = field;");
+      writer.println("    }");
+      writer.println("    return field$" + fieldName + ";");
+      writer.println("  }");
+    }
+
+    writer.println();
+    writer.println("  private static Class<?> findClass(String className) {");
+    writer.println("    try {");
+    writer.println("      return Class.forName(className, false, "
+        + className + ".class.getClassLoader());");
+    writer.println("    } catch (ClassNotFoundException e) {");
+    writer.println("      throw new NoClassDefFoundError(className);");
+    writer.println("    }");
+    writer.println("  }");
+
+    if (usesWithType) {
+      writer.println();
+      writer.println(
+          "  private static Class<?> withType(String className, Class<?> defaultType) {");
+      writer.println("    try {");
+      writer.println("      return Class.forName(className, true, "
+          + className + ".class.getClassLoader());");
+      writer.println("    } catch (ClassNotFoundException e) {");
+      writer.println("      return defaultType;");
+      writer.println("    }");
+      writer.println("  }");
+    }
+
+    writer.println();
+    writer.println("  private static <E extends Throwable> RuntimeException rethrow(Throwable t)"
+        + " throws E {");
+    writer.println("    throw (E) t;");
+    writer.println("  }");
+    writer.println('}');
+  }
+
+  private void generateAccessorMethod(
+      PrintWriter writer, TypeElement reflectorType, ExecutableElement method, String fieldName) {
+    ExecutableType methodType = asMemberOf(reflectorType, method);
+    String target = getTarget(method);
+    String fieldGetter = "getField$" + fieldName + "()";
+
+    writeMethodHeader(writer, method, methodType);
+    writer.println("    try {");
+    if (methodType.getParameterTypes().isEmpty()) {
+      writer.println("      return (" + methodType.getReturnType() + ") "
+          + fieldGetter + ".get(" + target + ");");
+    } else {
+      writer.println("      " + fieldGetter + ".set(" + target + ", arg0);");
+    }
+    writer.println("    } catch (ReflectiveOperationException e) {");
+    writer.println("      throw rethrow(e);");
+    writer.println("    }");
+    writer.println("  }");
+  }
+
+  /** Returns true if the generated method needs the {@code withType()} helper. */
+  private boolean generateReflectorMethod(
+      PrintWriter writer, TypeElement reflectorType, ExecutableElement method, int methodNumber) {
+    String methodRef = "method$" + methodNumber;
+    String methodGetter = "getMethod$" + methodNumber + "()";
+    ExecutableType methodType = asMemberOf(reflectorType, method);
+    List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+    List<? extends VariableElement> parameters = method.getParameters();
+
+    writeMethodHeader(writer, method, methodType);
+    StringBuilder invocation = new StringBuilder();
+    invocation.append(methodGetter).append(".invoke(").append(getTarget(method));
+    if (!parameterTypes.isEmpty()) {
+      invocation.append(", new Object[] {");
+      for (int i = 0; i < parameterTypes.size(); i++) {
+        invocation.append(i == 0 ? "" : ", ").append("arg").append(i);
+      }
+      invocation.append("}");
+    }
+    invocation.append(")");
+
+    writer.println("    try {");
+    if (methodType.getReturnType().getKind() == TypeKind.VOID) {
+      writer.println("      " + invocation + ";");
+    } else {
+      writer.println("      return (" + methodType.getReturnType() + ") " + invocation + ";");
+    }
+    writer.println("    } catch (InvocationTargetException e) {");
+    writer.println("      throw rethrow(e.getCause());");
+    writer.println("    } catch (ReflectiveOperationException e) {");
+    writer.println("      throw rethrow(e);");
+    writer.println("    }");
+    writer.println("  }");
+
+    boolean usesWithType = false;
+    StringBuilder lookup = new StringBuilder();
+    lookup.append("TARGET_CLASS.getDeclaredMethod(\"").append(method.getSimpleName()).append("\"");
+    for (int i = 0; i < parameterTypes.size(); i++) {
+      String paramClass = types.erasure(parameterTypes.get(i)) + ".class";
+      String withTypeName = getAnnotationStringValue(parameters.get(i), WITH_TYPE);
+      if (withTypeName != null) {
+        paramClass = "withType(\"" + withTypeName + "\", " + paramClass + ")";
+        usesWithType = true;
+      }
+      lookup.append(", ").append(paramClass);
+    }
+    lookup.append(")");
+
+    writer.println();
+    writer.println(
+        "  private static Method " + methodGetter + " throws ReflectiveOperationException {");
+    writer.println("    if (" + methodRef + " == null) {");
+    writer.println("      Method method = " + lookup + ";");
+    writer.println("      method.setAccessible(true);");
+    writer.println("      " + methodRef + " = method;");
+    writer.println("    }");
+    writer.println("    return " + methodRef + ";");
+    writer.println("  }");
+    return usesWithType;
+  }
+
+  private static void writeMethodHeader(
+      PrintWriter writer, ExecutableElement method, ExecutableType methodType) {
+    StringBuilder params = new StringBuilder();
+    List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+    for (int i = 0; i < parameterTypes.size(); i++) {
+      params.append(i == 0 ? "" : ", ").append(parameterTypes.get(i)).append(" arg").append(i);
+    }
+    writer.println("  @Override");
+    writer.println("  public " + methodType.getReturnType() + " " + method.getSimpleName()
+        + "(" + params + ") {");
+  }
+
+  private String getTarget(ExecutableElement method) {
+    return findAnnotation(method, STATIC) == null ? "target" : "null";
+  }
+
+  /**
+   * Returns the name of the field a method accesses if it's annotated with {@code @Accessor}, or
+   * null otherwise.
+   */
+  private String getAccessedFieldName(ExecutableElement method) {
+    return getAnnotationStringValue(method, ACCESSOR);
+  }
+
+  private String getTargetClassName(TypeElement reflectorType) {
+    AnnotationMirror forType = findAnnotation(reflectorType, FOR_TYPE);
+    if (forType == null) {
+      return null;
+    }
+    TypeMirror value = null;
+    String className = null;
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+        elements.getElementValuesWithDefaults(forType).entrySet()) {
+      String name = entry.getKey().getSimpleName().toString();
+      if (name.equals("value")) {
+        value = Helpers.getAnnotationTypeMirrorValue(entry.getValue());
+      } else if (name.equals("className")) {
+        className = Helpers.getAnnotationStringValue(entry.getValue());
+      }
+    }
+
+    if (value != null && value.getKind() == TypeKind.DECLARED) {
+      return elements.getBinaryName((TypeElement) types.asElement(value)).toString();
+    }
+    return className == null || className.isEmpty() ? null : className;
+  }
+
+  /**
+   * Returns true if the interface and everything its methods refer to can be named from a class
+   * in the same package, and its methods are shaped the way {@code Reflector} expects.
+   */
+  private boolean canImplement(TypeElement reflectorType) {
+    PackageElement packageElement = elements.getPackageOf(reflectorType);
+    if (!isAccessible(reflectorType, packageElement)
+        || !reflectorType.getTypeParameters().isEmpty()) {
+      return false;
+    }
+
+    for (ExecutableElement method : getReflectorMethods(reflectorType)) {
+      if (!method.getTypeParameters().isEmpty()) {
+        return false;
+      }
+      ExecutableType methodType = asMemberOf(reflectorType, method);
+      if (!isAccessible(methodType.getReturnType(), packageElement)) {
+        return false;
+      }
+      for (TypeMirror parameterType : methodType.getParameterTypes()) {
+        if (!isAccessible(parameterType, packageElement)) {
+          return false;
+        }
+      }
+
+      if (getAccessedFieldName(method) != null) {
+        // Reflector rejects malformed accessors; leave it to do so at runtime.
+        String methodName = method.getSimpleName().toString();
+        boolean isVoid = methodType.getReturnType().getKind() == TypeKind.VOID;
+        int parameterCount = methodType.getParameterTypes().size();
+        boolean isGetter = methodName.startsWith("get") && !isVoid && parameterCount == 0;
+        boolean isSetter = methodName.startsWith("set") && isVoid && parameterCount == 1;
+        if (!isGetter && !isSetter) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private boolean isAccessible(TypeMirror type, PackageElement fromPackage) {
+    return new SimpleTypeVisitor6<Boolean, Void>(false) {
+      @Override
+      public Boolean visitPrimitive(PrimitiveType t, Void aVoid) {
+        return true;
+      }
+
+      @Override
+      public Boolean visitNoType(NoType t, Void aVoid) {
+        return t.getKind() == TypeKind.VOID;
+      }
+
+      @Override
+      public Boolean visitArray(ArrayType t, Void aVoid) {
+        return visit(t.getComponentType());
+      }
+
+      @Override
+      public Boolean visitWildcard(WildcardType t, Void aVoid) {
+        return (t.getExtendsBound() == null || visit(t.getExtendsBound()))
+            && (t.getSuperBound() == null || visit(t.getSuperBound()));
+      }
+
+      @Override
+      public Boolean visitDeclared(DeclaredType t, Void aVoid) {
+        if (!isAccessible((TypeElement) t.asElement(), fromPackage)) {
+          return false;
+        }
+        for (TypeMirror typeArgument : t.getTypeArguments()) {
+          if (!visit(typeArgument)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    }.visit(type);
+  }
+
+  private boolean isAccessible(TypeElement type, PackageElement fromPackage) {
+    boolean samePackage = elements.getPackageOf(type).equals(fromPackage);
+    for (Element element = type;
+        element instanceof TypeElement;
+        element = element.getEnclosingElement()) {
+      Set<Modifier> modifiers = element.getModifiers();
+      if (!modifiers.contains(Modifier.PUBLIC)
+          && (!samePackage
+              || modifiers.contains(Modifier.PRIVATE)
+              || modifiers.contains(Modifier.PROTECTED))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the methods of the interface which a reflector must implement. */
+  private List<ExecutableElement> getReflectorMethods(TypeElement reflectorType) {
+    List<ExecutableElement> methods = new ArrayList<>();
+    List<? extends Element> members = elements.getAllMembers(reflectorType);
+    for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+      Set<Modifier> modifiers = method.getModifiers();
+      if (modifiers.contains(Modifier.ABSTRACT) && !modifiers.contains(Modifier.STATIC)) {
+        methods.add(method);
+      }
+    }
+    return methods;
+  }
+
+  private ExecutableType asMemberOf(TypeElement reflectorType, ExecutableElement method) {
+    return (ExecutableType) types.asMemberOf((DeclaredType) reflectorType.asType(), method);
+  }
+
+  private String getAnnotationStringValue(Element element, String annotationName) {
+    AnnotationMirror annotation = findAnnotation(element, annotationName);
+    if (annotation == null) {
+      return null;
+    }
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+        annotation.getElementValues().entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals("value")) {
+        return Helpers.getAnnotationStringValue(entry.getValue());
+      }
+    }
+    return null;
+  }
+
+  private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+      if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+}
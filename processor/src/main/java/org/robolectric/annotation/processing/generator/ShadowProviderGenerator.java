@@ -146,19 +146,34 @@ public class ShadowProviderGenerator extends Generator {
     writer.println("  @Override");
     writer.println("  public void reset() {");
     for (RobolectricModel.ResetterInfo resetterInfo : model.getResetters()) {
-      int minSdk = resetterInfo.getMinSdk();
-      int maxSdk = resetterInfo.getMaxSdk();
-      String ifClause;
-      if (minSdk != -1 && maxSdk != -1) {
-        ifClause = "if (org.robolectric.RuntimeEnvironment.getApiLevel() >= " + minSdk
-            + " && org.robolectric.RuntimeEnvironment.getApiLevel() <= " + maxSdk + ") ";
-      } else if (maxSdk != -1) {
-        ifClause = "if (org.robolectric.RuntimeEnvironment.getApiLevel() <= " + maxSdk + ") ";
-      } else if (minSdk != -1) {
-        ifClause = "if (org.robolectric.RuntimeEnvironment.getApiLevel() >= " + minSdk + ") ";
-      } else {
-        ifClause = "";
+      String sdkCondition = getSdkCondition(resetterInfo);
+      String ifClause = sdkCondition == null ? "" : "if (" + sdkCondition + ") ";
+      writer.println("    " + ifClause + resetterInfo.getMethodCall());
+    }
+    writer.println("  }");
+    writer.println();
+
+    Map<String, String> actualNamesByShadow = new TreeMap<>();
+    for (ShadowInfo shadowInfo : model.getAllShadowTypes()) {
+      actualNamesByShadow.put(shadowInfo.getShadowBinaryName(), shadowInfo.getActualBinaryName());
+    }
+    actualNamesByShadow.putAll(model.getExtraShadowTypes());
+
+    writer.println("  @Override");
+    writer.println("  public void reset(java.util.function.Predicate<String> isClassLoaded) {");
+    for (RobolectricModel.ResetterInfo resetterInfo : model.getResetters()) {
+      String shadow = resetterInfo.getShadowBinaryName();
+      String actual = shadow == null ? null : actualNamesByShadow.get(shadow);
+      String condition = null;
+      if (actual != null) {
+        condition = "isClassLoaded.test(\"" + shadow + "\")"
+            + " || isClassLoaded.test(\"" + actual + "\")";
       }
+      String sdkCondition = getSdkCondition(resetterInfo);
+      if (sdkCondition != null) {
+        condition = condition == null ? sdkCondition : "(" + condition + ") && " + sdkCondition;
+      }
+      String ifClause = condition == null ? "" : "if (" + condition + ") ";
       writer.println("    " + ifClause + resetterInfo.getMethodCall());
     }
     writer.println("  }");
@@ -205,4 +220,18 @@ public class ShadowProviderGenerator extends Generator {
 
     writer.println('}');
   }
+  private static String getSdkCondition(RobolectricModel.ResetterInfo resetterInfo) {
+    int minSdk = resetterInfo.getMinSdk();
+    int maxSdk = resetterInfo.getMaxSdk();
+    if (minSdk != -1 && maxSdk != -1) {
+      return "org.robolectric.RuntimeEnvironment.getApiLevel() >= " + minSdk
+          + " && org.robolectric.RuntimeEnvironment.getApiLevel() <= " + maxSdk;
+    } else if (maxSdk != -1) {
+      return "org.robolectric.RuntimeEnvironment.getApiLevel() <= " + maxSdk;
+    } else if (minSdk != -1) {
+      return "org.robolectric.RuntimeEnvironment.getApiLevel() >= " + minSdk;
+    } else {
+      return null;
+    }
+  }
 }
@@ -0,0 +1,27 @@
+package org.robolectric.annotation.processing.validator;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import org.robolectric.annotation.processing.RobolectricModel;
+
+/**
+ * Validator that checks usages of {@code org.robolectric.util.reflector.ForType}, and records
+ * the annotated interfaces so that reflectors can be generated for them.
+ */
+public class ForTypeValidator extends Validator {
+  public ForTypeValidator(RobolectricModel.Builder modelBuilder, ProcessingEnvironment env) {
+    super(modelBuilder, env, "org.robolectric.util.reflector.ForType");
+  }
+
+  @Override
+  public Void visitType(TypeElement elem, Element parent) {
+    if (elem.getKind() != ElementKind.INTERFACE) {
+      error("@ForType can only be applied to interfaces");
+      return null;
+    }
+    modelBuilder.addReflectorType(elem);
+    return null;
+  }
+}
@@ -16,6 +16,8 @@ import static org.robolectric.annotation.processing.Utils.SHADOW_PROVIDER_SOURCE
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Files;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.Compiler;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -207,4 +209,38 @@ public class RobolectricProcessorTest {
     .and()
     .generatesSources(forResource("org/robolectric/Robolectric_EmptyProvidedPackageNames.java"));
   }
+
+  @Test
+  public void generatedFile_shouldImplementReflectorInterfaces() {
+    assertAbout(javaSources())
+      .that(ImmutableList.of(
+          SHADOW_PROVIDER_SOURCE,
+          SHADOW_EXTRACTOR_SOURCE,
+          forResource("org/robolectric/annotation/processing/shadows/ShadowDummyWithReflectors.java")))
+      .processedWith(new RobolectricProcessor(DEFAULT_OPTS))
+      .compilesWithoutError()
+      .and()
+      .generatesSources(forResource(
+          "org/robolectric/annotation/processing/shadows/ShadowDummyWithReflectors$_Dummy_$$Reflector.java"));
+  }
+
+  @Test
+  public void generatedFile_shouldNotImplementPrivateReflectorInterfaces() {
+    Compilation compilation =
+        Compiler.javac()
+            .withProcessors(new RobolectricProcessor(DEFAULT_OPTS))
+            .compile(
+                SHADOW_PROVIDER_SOURCE,
+                SHADOW_EXTRACTOR_SOURCE,
+                forResource(
+                    "org/robolectric/annotation/processing/shadows/ShadowDummyWithReflectors.java"));
+
+    assertThat(compilation.status()).isEqualTo(Compilation.Status.SUCCESS);
+    assertThat(
+            compilation.generatedSourceFile(
+                "org.robolectric.annotation.processing.shadows."
+                    + "ShadowDummyWithReflectors$_Private_$$Reflector")
+                .isPresent())
+        .isFalse();
+  }
 }
@@ -16,6 +16,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.robolectric.annotation.processing.RobolectricModel;
 import org.robolectric.annotation.processing.RobolectricModel.ResetterInfo;
+import org.robolectric.annotation.processing.RobolectricModel.ShadowInfo;
 
 /** Tests for {@link ShadowProviderGenerator} */
 @RunWith(JUnit4.class)
@@ -61,6 +62,30 @@ public class ShadowProviderGeneratorTest {
                 + " ShadowThing.resetMax18();");
   }
 
+  @Test
+  public void resettersAreOnlyCalledIfClassesAreLoaded() throws Exception {
+    when(model.getVisibleShadowTypes()).thenReturn(Collections.emptyList());
+    ShadowInfo shadowInfo = mock(ShadowInfo.class);
+    when(shadowInfo.getShadowBinaryName()).thenReturn("the.package.ShadowThing");
+    when(shadowInfo.getActualBinaryName()).thenReturn("android.Thing");
+    when(model.getAllShadowTypes()).thenReturn(Collections.singletonList(shadowInfo));
+
+    List<ResetterInfo> resetterInfos = new ArrayList<>();
+    ResetterInfo resetterInfo = resetterInfo("ShadowThing", 21, -1, "reset");
+    when(resetterInfo.getShadowBinaryName()).thenReturn("the.package.ShadowThing");
+    resetterInfos.add(resetterInfo);
+    when(model.getResetters()).thenReturn(resetterInfos);
+
+    generator.generate(new PrintWriter(writer));
+
+    assertThat(writer.toString())
+        .contains(
+            "if ((isClassLoaded.test(\"the.package.ShadowThing\")"
+                + " || isClassLoaded.test(\"android.Thing\"))"
+                + " && org.robolectric.RuntimeEnvironment.getApiLevel() >= 21)"
+                + " ShadowThing.reset();");
+  }
+
   private ResetterInfo resetterInfo(String shadowName, int minSdk, int maxSdk, String methodName) {
     ResetterInfo resetterInfo = mock(ResetterInfo.class);
     when(resetterInfo.getMinSdk()).thenReturn(minSdk);
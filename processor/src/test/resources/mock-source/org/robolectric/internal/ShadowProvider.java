@@ -1,11 +1,14 @@
 package org.robolectric.internal;
 
 import java.util.Map;
+import java.util.function.Predicate;
 
 public interface ShadowProvider {
 
   void reset();
 
+  void reset(Predicate<String> isClassLoaded);
+
   String[] getProvidedPackageNames();
 
   Map<String, String> getShadowMap();
@@ -34,6 +34,12 @@ public class Shadows implements ShadowProvider {
     ShadowDummy.resetter_method();
   }
 
+  @Override
+  public void reset(java.util.function.Predicate<String> isClassLoaded) {
+    if (isClassLoaded.test("org.robolectric.annotation.processing.shadows.ShadowClassNameOnly") || isClassLoaded.test("com.example.objects.AnyObject")) ShadowClassNameOnly.anotherResetter();
+    if (isClassLoaded.test("org.robolectric.annotation.processing.shadows.ShadowDummy") || isClassLoaded.test("com.example.objects.Dummy")) ShadowDummy.resetter_method();
+  }
+
   @Override
   public Map<String, String> getShadowMap() {
     return SHADOW_MAP;
@@ -26,6 +26,11 @@ public class Shadows implements ShadowProvider {
     ShadowDummy.resetter_method();
   }
 
+  @Override
+  public void reset(java.util.function.Predicate<String> isClassLoaded) {
+    if (isClassLoaded.test("org.robolectric.annotation.processing.shadows.ShadowDummy") || isClassLoaded.test("com.example.objects.Dummy")) ShadowDummy.resetter_method();
+  }
+
   @Override
   public Map<String, String> getShadowMap() {
     return SHADOW_MAP;
@@ -41,6 +41,12 @@ public class Shadows implements ShadowProvider {
     ShadowPrivate.resetMethod();
   }
 
+  @Override
+  public void reset(java.util.function.Predicate<String> isClassLoaded) {
+    if (isClassLoaded.test("org.robolectric.annotation.processing.shadows.ShadowDummy") || isClassLoaded.test("com.example.objects.Dummy")) ShadowDummy.resetter_method();
+    if (isClassLoaded.test("org.robolectric.annotation.processing.shadows.ShadowPrivate") || isClassLoaded.test("com.example.objects.Private")) ShadowPrivate.resetMethod();
+  }
+
   @Override
   public Map<String, String> getShadowMap() {
     return SHADOW_MAP;
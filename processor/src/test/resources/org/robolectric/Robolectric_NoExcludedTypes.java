@@ -22,6 +22,10 @@ public class Shadows implements ShadowProvider {
   public void reset() {
   }
 
+  @Override
+  public void reset(java.util.function.Predicate<String> isClassLoaded) {
+  }
+
   @Override
   public Map<String, String> getShadowMap() {
     return SHADOW_MAP;
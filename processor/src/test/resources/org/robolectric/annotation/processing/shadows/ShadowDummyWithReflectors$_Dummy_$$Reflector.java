@@ -0,0 +1,154 @@
+package org.robolectric.annotation.processing.shadows;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import javax.annotation.Generated;
+
+/**
+ * Reflector for {@link org.robolectric.annotation.processing.shadows.ShadowDummyWithReflectors._Dummy_}. Automatically generated by the Robolectric Annotation Processor.
+ */
+@Generated("org.robolectric.annotation.processing.RobolectricProcessor")
+@SuppressWarnings({"unchecked","deprecation"})
+final class ShadowDummyWithReflectors$_Dummy_$$Reflector implements org.robolectric.annotation.processing.shadows.ShadowDummyWithReflectors._Dummy_ {
+  private static final Class<?> TARGET_CLASS = findClass("com.example.objects.Dummy");
+
+  private static Field field$count;
+  private static Method method$0;
+  private static Method method$1;
+  private static Method method$2;
+  private static Method method$3;
+
+  private final Object target;
+
+  public ShadowDummyWithReflectors$_Dummy_$$Reflector(Object target) {
+    this.target = target;
+  }
+
+  @Override
+  public java.lang.String getName(int arg0, java.lang.Object arg1) {
+    try {
+      return (java.lang.String) getMethod$0().invoke(target, new Object[] {arg0, arg1});
+    } catch (InvocationTargetException e) {
+      throw rethrow(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static Method getMethod$0() throws ReflectiveOperationException {
+    if (method$0 == null) {
+      Method method = TARGET_CLASS.getDeclaredMethod("getName", int.class, withType("com.example.objects.UniqueDummy", java.lang.Object.class));
+      method.setAccessible(true);
+      method$0 = method;
+    }
+    return method$0;
+  }
+
+  @Override
+  public void setNames(java.lang.String[] arg0) {
+    try {
+      getMethod$1().invoke(target, new Object[] {arg0});
+    } catch (InvocationTargetException e) {
+      throw rethrow(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static Method getMethod$1() throws ReflectiveOperationException {
+    if (method$1 == null) {
+      Method method = TARGET_CLASS.getDeclaredMethod("setNames", java.lang.String[].class);
+      method.setAccessible(true);
+      method$1 = method;
+    }
+    return method$1;
+  }
+
+  @Override
+  public java.util.List<java.lang.String> getNames() {
+    try {
+      return (java.util.List<java.lang.String>) getMethod$2().invoke(target);
+    } catch (InvocationTargetException e) {
+      throw rethrow(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static Method getMethod$2() throws ReflectiveOperationException {
+    if (method$2 == null) {
+      Method method = TARGET_CLASS.getDeclaredMethod("getNames");
+      method.setAccessible(true);
+      method$2 = method;
+    }
+    return method$2;
+  }
+
+  @Override
+  public void reset() {
+    try {
+      getMethod$3().invoke(null);
+    } catch (InvocationTargetException e) {
+      throw rethrow(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static Method getMethod$3() throws ReflectiveOperationException {
+    if (method$3 == null) {
+      Method method = TARGET_CLASS.getDeclaredMethod("reset");
+      method.setAccessible(true);
+      method$3 = method;
+    }
+    return method$3;
+  }
+
+  @Override
+  public int getCount() {
+    try {
+      return (int) getField$count().get(target);
+    } catch (ReflectiveOperationException e) {
+      throw rethrow(e);
+    }
+  }
+
+  @Override
+  public void setCount(int arg0) {
+    try {
+      getField$count().set(target, arg0);
+    } catch (ReflectiveOperationException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static Field getField$count() throws ReflectiveOperationException {
+    if (field$count == null) {
+      Field field = TARGET_CLASS.getDeclaredField("count");
+      field.setAccessible(true);
+      field$count = field;
+    }
+    return field$count;
+  }
+
+  private static Class<?> findClass(String className) {
+    try {
+      return Class.forName(className, false, ShadowDummyWithReflectors$_Dummy_$$Reflector.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new NoClassDefFoundError(className);
+    }
+  }
+
+  private static Class<?> withType(String className, Class<?> defaultType) {
+    try {
+      return Class.forName(className, true, ShadowDummyWithReflectors$_Dummy_$$Reflector.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return defaultType;
+    }
+  }
+
+  private static <E extends Throwable> RuntimeException rethrow(Throwable t) throws E {
+    throw (E) t;
+  }
+}
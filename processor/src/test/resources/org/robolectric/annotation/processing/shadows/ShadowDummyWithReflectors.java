@@ -0,0 +1,42 @@
+package org.robolectric.annotation.processing.shadows;
+
+import com.example.objects.Dummy;
+import java.util.List;
+import org.robolectric.annotation.Implements;
+import org.robolectric.util.reflector.Accessor;
+import org.robolectric.util.reflector.ForType;
+import org.robolectric.util.reflector.Static;
+import org.robolectric.util.reflector.WithType;
+
+@Implements(Dummy.class)
+public class ShadowDummyWithReflectors {
+
+  @ForType(Dummy.class)
+  interface _Dummy_ {
+    String getName(int index, @WithType("com.example.objects.UniqueDummy") Object other);
+
+    void setNames(String[] names);
+
+    List<String> getNames();
+
+    @Static
+    void reset();
+
+    @Accessor("count")
+    int getCount();
+
+    @Accessor("count")
+    void setCount(int count);
+
+    default int incrementCount() {
+      int count = getCount() + 1;
+      setCount(count);
+      return count;
+    }
+  }
+
+  @ForType(className = "com.example.objects.Private")
+  private interface _Private_ {
+    void run();
+  }
+}
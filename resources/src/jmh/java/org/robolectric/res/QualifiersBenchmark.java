@@ -0,0 +1,42 @@
+package org.robolectric.res;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.res.android.ConfigDescription;
+import org.robolectric.res.android.ResTable_config;
+
+/** Measures parsing of qualifiers like those in resource directory names and {@code @Config}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QualifiersBenchmark {
+
+  @Param({"land", "v21", "en-rUS-sw320dp-w320dp-h470dp-normal-notlong-port-mdpi-finger-v28"})
+  public String qualifiers;
+
+  /** Parses qualifiers which have been parsed before, as happens from one test to the next. */
+  @Benchmark
+  public Qualifiers parseQualifiers() {
+    return Qualifiers.parse(qualifiers);
+  }
+
+  /** Parses qualifiers from scratch. */
+  @Benchmark
+  public ResTable_config parseConfigDescription() {
+    ResTable_config config = new ResTable_config();
+    ConfigDescription.parse(qualifiers, config);
+    return config;
+  }
+}
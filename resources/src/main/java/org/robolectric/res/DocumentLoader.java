@@ -16,12 +16,18 @@ public abstract class DocumentLoader {
   }
 
   public void load(String folderBaseName) throws IOException {
-    for (Path dir : Fs.listFiles(resourceBase, new DirBaseNameFilter(folderBaseName))) {
-      loadFile(dir);
+    for (Path dir : listDirs(folderBaseName)) {
+      loadDir(dir);
     }
   }
 
-  private void loadFile(Path dir) throws IOException {
+  /** Returns the directories {@link #load} loads resources from, in the order it loads them. */
+  Path[] listDirs(String folderBaseName) throws IOException {
+    return Fs.listFiles(resourceBase, new DirBaseNameFilter(folderBaseName));
+  }
+
+  /** Loads the resource XML files in {@code dir}, one of the directories from {@link #listDirs}. */
+  void loadDir(Path dir) throws IOException {
     if (!Files.exists(dir)) {
       throw new RuntimeException("no such directory " + dir);
     }
@@ -5,6 +5,9 @@ import com.google.common.collect.HashBiMap;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nonnull;
 import org.robolectric.res.android.ResTable_config;
 import org.robolectric.res.builder.XmlBlock;
@@ -16,6 +19,7 @@ public class PackageResourceTable implements ResourceTable {
 
   private final ResBunch resources = new ResBunch();
   private final BiMap<Integer, ResName> resourceTable = HashBiMap.create();
+  private final Map<Path, XmlBlock> xmlBlocks = new ConcurrentHashMap<>();
 
   private final ResourceIdGenerator androidResourceIdGenerator = new ResourceIdGenerator(0x01);
   private final String packageName;
@@ -69,7 +73,16 @@ public class PackageResourceTable implements ResourceTable {
     if (fileTypedResource == null || !fileTypedResource.isXml()) {
       return null;
     } else {
-      return XmlBlock.create(fileTypedResource.getPath(), resName.packageName);
+      // XML files are parsed once and kept, since the same layouts tend to be inflated many times.
+      Path path = fileTypedResource.getPath();
+      XmlBlock xmlBlock = xmlBlocks.get(path);
+      if (xmlBlock == null) {
+        xmlBlock = XmlBlock.create(path, resName.packageName);
+        if (xmlBlock != null) {
+          xmlBlocks.putIfAbsent(path, xmlBlock);
+        }
+      }
+      return xmlBlock;
     }
   }
 
@@ -146,6 +159,24 @@ public class PackageResourceTable implements ResourceTable {
     resources.put(resName, value);
   }
 
+  ResBunch getResources() {
+    return resources;
+  }
+
+  Map<Integer, ResName> getResNamesById() {
+    return Collections.unmodifiableMap(resourceTable);
+  }
+
+  ResourceIdGenerator getAndroidResourceIdGenerator() {
+    return androidResourceIdGenerator;
+  }
+
+  /** Restores state written by {@link ResourceTableSerializer}. */
+  void restore(int packageIdentifier, Map<Integer, ResName> resNamesById) {
+    this.packageIdentifier = packageIdentifier;
+    resourceTable.putAll(resNamesById);
+  }
+
   private boolean isAndroidPackage(ResName resName) {
     return "android".equals(resName.packageName);
   }
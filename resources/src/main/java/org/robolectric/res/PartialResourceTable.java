@@ -0,0 +1,47 @@
+package org.robolectric.res;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds the resources loaded from part of a package's resources, so that parts can be loaded
+ * concurrently and then added to the package's {@link PackageResourceTable} in a fixed order.
+ */
+class PartialResourceTable extends PackageResourceTable {
+
+  private final List<PendingResource> pendingResources = new ArrayList<>();
+
+  PartialResourceTable(String packageName) {
+    super(packageName);
+  }
+
+  @Override
+  void addResource(String type, String name, TypedResource value) {
+    pendingResources.add(new PendingResource(type, name, value));
+  }
+
+  /** Adds the resources added to this table to {@code resourceTable}, in the order they were added. */
+  void mergeInto(PackageResourceTable resourceTable) {
+    for (PendingResource pendingResource : pendingResources) {
+      resourceTable.addResource(pendingResource.type, pendingResource.name, pendingResource.value);
+    }
+  }
+
+  /** Returns the resources added to this table, in the order they were added. */
+  List<PendingResource> getPendingResources() {
+    return Collections.unmodifiableList(pendingResources);
+  }
+
+  static class PendingResource {
+    final String type;
+    final String name;
+    final TypedResource value;
+
+    PendingResource(String type, String name, TypedResource value) {
+      this.type = type;
+      this.name = name;
+      this.value = value;
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package org.robolectric.res;
 
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.robolectric.res.android.ConfigDescription;
@@ -21,6 +23,14 @@ public class Qualifiers {
   private static final Pattern VERSION_QUALIFIER_PATTERN = Pattern.compile("(v)([0-9]+)$");
   private static final Pattern ORIENTATION_QUALIFIER_PATTERN = Pattern.compile("(land|port)");
 
+  // The same qualifiers are parsed over and over, for each resource directory and each test's
+  // configuration, so parsed configs are kept. They're copied when they're handed out, since
+  // ResTable_config is mutable.
+  private static final int MAX_PARSED_CONFIGS = 1024;
+  private static final Map<String, ResTable_config> parsedConfigs = new ConcurrentHashMap<>();
+  private static final Map<String, ResTable_config> parsedConfigsWithoutCompatVersion =
+      new ConcurrentHashMap<>();
+
   private final String qualifiers;
   private final ResTable_config config;
 
@@ -29,14 +39,25 @@ public class Qualifiers {
   }
 
   public static Qualifiers parse(String qualifiers, boolean applyVersionForCompat) {
-    final ResTable_config config = new ResTable_config();
-    if (!qualifiers.isEmpty()
-        && !ConfigDescription.parse(qualifiers, config, applyVersionForCompat)) {
-      throw new IllegalArgumentException("failed to parse qualifiers '" + qualifiers + "'."
-          + " See https://developer.android.com/guide/topics/resources/providing-resources.html#QualifierRules for expected format.");
+    Map<String, ResTable_config> parsedConfigs =
+        applyVersionForCompat ? Qualifiers.parsedConfigs : parsedConfigsWithoutCompatVersion;
+    ResTable_config parsedConfig = parsedConfigs.get(qualifiers);
+    if (parsedConfig == null) {
+      parsedConfig = new ResTable_config();
+      if (!qualifiers.isEmpty()
+          && !ConfigDescription.parse(qualifiers, parsedConfig, applyVersionForCompat)) {
+        throw new IllegalArgumentException("failed to parse qualifiers '" + qualifiers + "'."
+            + " See https://developer.android.com/guide/topics/resources/providing-resources.html#QualifierRules for expected format.");
+      }
+      if (parsedConfigs.size() >= MAX_PARSED_CONFIGS) {
+        parsedConfigs.clear();
+      }
+      parsedConfigs.put(qualifiers, parsedConfig.deepCopy());
+    } else {
+      parsedConfig = parsedConfig.deepCopy();
     }
 
-    return new Qualifiers(qualifiers, config);
+    return new Qualifiers(qualifiers, parsedConfig);
   }
 
   protected Qualifiers(String qualifiers, ResTable_config config) {
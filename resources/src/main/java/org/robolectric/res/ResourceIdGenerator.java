@@ -1,6 +1,7 @@
 package org.robolectric.res;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -54,6 +55,25 @@ public class ResourceIdGenerator {
     return ResourceIds.makeIdentifer(packageIdentifier, typeTracker.getTypeIdentifier(), typeTracker.getFreeIdentifier());
   }
 
+  /** Returns the type and largest entry identifiers used so far for each type. */
+  Map<String, int[]> getTypeIdentifiers() {
+    Map<String, int[]> typeIdentifiers = new LinkedHashMap<>();
+    for (Map.Entry<String, TypeTracker> entry : typeInfo.entrySet()) {
+      TypeTracker typeTracker = entry.getValue();
+      typeIdentifiers.put(
+          entry.getKey(),
+          new int[] {typeTracker.getTypeIdentifier(), typeTracker.currentMaxEntry});
+    }
+    return typeIdentifiers;
+  }
+
+  /** Restores the state returned by {@link #getTypeIdentifiers()} for one type. */
+  void restoreTypeIdentifiers(String type, int typeIdentifier, int maxEntryIdentifier) {
+    TypeTracker typeTracker = new TypeTracker(typeIdentifier);
+    typeTracker.record(maxEntryIdentifier);
+    typeInfo.put(type, typeTracker);
+  }
+
   private int getNextFreeTypeIdentifier() {
     int result = 0;
     for (TypeTracker typeTracker : typeInfo.values()) {
@@ -2,11 +2,22 @@ package org.robolectric.res;
 
 import java.util.List;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.robolectric.manifest.AndroidManifest;
 
 public class ResourceMerger {
   @Nonnull
   public PackageResourceTable buildResourceTable(AndroidManifest appManifest) {
+    return buildResourceTable(appManifest, null);
+  }
+
+  /**
+   * Builds the resource table for an app, parsing only the resource values files which have
+   * changed since they were cached in {@code resourceTableCache}, if it isn't null.
+   */
+  @Nonnull
+  public PackageResourceTable buildResourceTable(
+      AndroidManifest appManifest, @Nullable ResourceTableCache resourceTableCache) {
     ResourceRemapper resourceRemapper = new ResourceRemapper(appManifest.getRClass());
 
     ResourcePath appResourcePath = appManifest.getResourcePath();
@@ -17,7 +28,7 @@ public class ResourceMerger {
       }
     }
 
-    return new ResourceTableFactory().newResourceTable(appManifest.getPackageName(),
+    return new ResourceTableFactory(resourceTableCache).newResourceTable(appManifest.getPackageName(),
         allResourcePaths.toArray(new ResourcePath[allResourcePaths.size()]));
   }
 }
@@ -0,0 +1,198 @@
+package org.robolectric.res;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+import org.robolectric.util.CacheFiles;
+import org.robolectric.util.CacheFiles.ContentWriter;
+import org.robolectric.util.Logger;
+import org.robolectric.util.PerfStatsCollector;
+
+/**
+ * A directory of serialized {@link PackageResourceTable}s, so that tables whose sources haven't
+ * changed are read back rather than built again from R classes and resource XML files.
+ *
+ * The resources loaded from each resource values file can be cached as well, so that a table whose
+ * sources have changed can be rebuilt by parsing only the values files which changed.
+ *
+ * Tables and values files are also keyed by the Robolectric version, since the way they're built
+ * and serialized may change between versions.
+ *
+ * Caching is enabled by setting the {@value #CACHE_DIR_PROPERTY} system property to a directory.
+ */
+@SuppressWarnings("NewApi")
+public class ResourceTableCache {
+
+  public static final String CACHE_DIR_PROPERTY = "robolectric.resourceTableCacheDir";
+
+  private final Path cacheDir;
+  private final String version;
+
+  public ResourceTableCache(Path cacheDir, String version) {
+    this.cacheDir = cacheDir;
+    this.version = version;
+  }
+
+  /**
+   * Returns a cache in the directory named by the {@value #CACHE_DIR_PROPERTY} system property, or
+   * null if it isn't set.
+   */
+  @Nullable
+  public static ResourceTableCache fromSystemProperties() {
+    String cacheDir = System.getProperty(CACHE_DIR_PROPERTY);
+    if (cacheDir == null || cacheDir.isEmpty()) {
+      return null;
+    }
+    return new ResourceTableCache(
+        Paths.get(cacheDir), CacheFiles.robolectricVersion(ResourceTableCache.class));
+  }
+
+  /**
+   * Returns the framework resource table for an android-all jar, reading it from the cache if it
+   * was cached for a jar with the same contents.
+   */
+  public PackageResourceTable getFrameworkResourceTable(Path jar, ResourcePath resourcePath) {
+    Supplier<PackageResourceTable> builder =
+        () -> new ResourceTableFactory().newFrameworkResourceTable(resourcePath);
+    String jarHash;
+    try {
+      jarHash = hashJar(jar);
+    } catch (IOException e) {
+      Logger.warn("failed to hash %s: %s", jar, e);
+      return builder.get();
+    }
+    return get(
+        "framework:" + jarHash,
+        Collections.singletonList(resourcePath.getResourceBase()),
+        builder);
+  }
+
+  /**
+   * Returns the table cached for {@code key}, or builds it and caches it.
+   *
+   * @param key identifies the sources of the table; it must change whenever they do
+   * @param resourceBases the directories containing the table's resource files
+   * @param builder builds the table if it isn't cached
+   */
+  public PackageResourceTable get(
+      String key, List<Path> resourceBases, Supplier<PackageResourceTable> builder) {
+    Path file = fileFor(key, ".restable");
+
+    PackageResourceTable resourceTable =
+        PerfStatsCollector.getInstance()
+            .measure(
+                "read cached resource table",
+                () ->
+                    read(file, buffer -> ResourceTableSerializer.read(buffer, key, resourceBases)));
+    if (resourceTable != null) {
+      return resourceTable;
+    }
+
+    PackageResourceTable builtResourceTable = builder.get();
+    write(
+        file,
+        out -> ResourceTableSerializer.write(builtResourceTable, key, resourceBases, out));
+    return builtResourceTable;
+  }
+
+  /**
+   * Returns the resources loaded from a resource values file, reading them from the cache if they
+   * were cached for a file at the same place in {@code resourceBase} with the same contents.
+   *
+   * @param loader loads the file's resources if they aren't cached
+   */
+  PartialResourceTable getValuesFile(
+      String packageName,
+      Path resourceBase,
+      Path valuesFile,
+      Supplier<PartialResourceTable> loader) {
+    String contentHash;
+    try (InputStream in = Fs.getInputStream(valuesFile)) {
+      contentHash = Hashing.sha256().hashBytes(ByteStreams.toByteArray(in)).toString();
+    } catch (IOException e) {
+      Logger.warn("failed to hash %s: %s", valuesFile, e);
+      return loader.get();
+    }
+    String key =
+        "values:" + packageName + ":" + resourceBase.relativize(valuesFile) + ":" + contentHash;
+    List<Path> resourceBases = Collections.singletonList(resourceBase);
+    Path file = fileFor(key, ".resvalues");
+
+    PartialResourceTable partialTable =
+        read(file, buffer -> ResourceTableSerializer.readPartial(buffer, key, resourceBases));
+    if (partialTable != null) {
+      PerfStatsCollector.getInstance().incrementCount("resource values file cache hit");
+      return partialTable;
+    }
+
+    PerfStatsCollector.getInstance().incrementCount("resource values file cache miss");
+    PartialResourceTable loadedTable = loader.get();
+    write(
+        file,
+        out -> ResourceTableSerializer.writePartial(loadedTable, key, resourceBases, out));
+    return loadedTable;
+  }
+
+  /**
+   * Returns a hash of the contents of a jar. The hash covers the names, sizes, and CRCs of the
+   * jar's entries, which are read from its central directory rather than by decompressing them.
+   */
+  public static String hashJar(Path jar) throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+      for (ZipEntry entry : Collections.list(zipFile.entries())) {
+        hasher.putString(entry.getName(), UTF_8);
+        hasher.putLong(entry.getSize());
+        hasher.putLong(entry.getCrc());
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private Path fileFor(String key, String extension) {
+    return cacheDir.resolve(
+        Hashing.sha256().hashString(version + "\0" + key, UTF_8) + extension);
+  }
+
+  @Nullable
+  private static <T> T read(Path file, TableReader<T> tableReader) {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return tableReader.read(buffer);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      Logger.warn("failed to read cached resource table %s: %s", file, e);
+      return null;
+    }
+  }
+
+  private static void write(Path file, ContentWriter tableWriter) {
+    try {
+      CacheFiles.writeAtomically(file, tableWriter);
+    } catch (IOException e) {
+      Logger.warn("failed to cache resource table %s: %s", file, e);
+    }
+  }
+
+  private interface TableReader<T> {
+    T read(ByteBuffer buffer) throws IOException;
+  }
+}
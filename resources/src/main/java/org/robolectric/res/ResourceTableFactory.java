@@ -1,12 +1,43 @@
 package org.robolectric.res;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 import org.robolectric.util.Logger;
 import org.robolectric.util.PerfStatsCollector;
 
 public class ResourceTableFactory {
+
+  /**
+   * The number of threads to parse resource values files on. They're parsed on the calling thread
+   * unless this system property is greater than 1.
+   */
+  public static final String LOADING_THREADS_PROPERTY = "robolectric.resourceLoadingThreads";
+
+  @Nullable private final ResourceTableCache resourceTableCache;
+
+  public ResourceTableFactory() {
+    this(null);
+  }
+
+  /**
+   * @param resourceTableCache if not null, caches the resources loaded from each resource values
+   *     file, so that only values files which have changed are parsed again
+   */
+  public ResourceTableFactory(@Nullable ResourceTableCache resourceTableCache) {
+    this.resourceTableCache = resourceTableCache;
+  }
+
   /** Builds an Android framework resource table in the "android" package space. */
   public PackageResourceTable newFrameworkResourceTable(ResourcePath resourcePath) {
     return PerfStatsCollector.getInstance()
@@ -117,37 +148,7 @@ public class ResourceTableFactory {
     Logger.debug("Loading resources for %s from %s...", resourceTable.getPackageName(), resourcePath.getResourceBase());
 
     try {
-      new StaxDocumentLoader(resourceTable.getPackageName(), resourcePath.getResourceBase(),
-          new NodeHandler()
-              .addHandler("resources", new NodeHandler()
-                  .addHandler("bool", new StaxValueLoader(resourceTable, "bool", ResType.BOOLEAN))
-                  .addHandler("item[@type='bool']", new StaxValueLoader(resourceTable, "bool", ResType.BOOLEAN))
-                  .addHandler("color", new StaxValueLoader(resourceTable, "color", ResType.COLOR))
-                  .addHandler("item[@type='color']", new StaxValueLoader(resourceTable, "color", ResType.COLOR))
-                  .addHandler("drawable", new StaxValueLoader(resourceTable, "drawable", ResType.DRAWABLE))
-                  .addHandler("item[@type='drawable']", new StaxValueLoader(resourceTable, "drawable", ResType.DRAWABLE))
-                  .addHandler("item[@type='mipmap']", new StaxValueLoader(resourceTable, "mipmap", ResType.DRAWABLE))
-                  .addHandler("dimen", new StaxValueLoader(resourceTable, "dimen", ResType.DIMEN))
-                  .addHandler("item[@type='dimen']", new StaxValueLoader(resourceTable, "dimen", ResType.DIMEN))
-                  .addHandler("integer", new StaxValueLoader(resourceTable, "integer", ResType.INTEGER))
-                  .addHandler("item[@type='integer']", new StaxValueLoader(resourceTable, "integer", ResType.INTEGER))
-                  .addHandler("integer-array", new StaxArrayLoader(resourceTable, "array", ResType.INTEGER_ARRAY, ResType.INTEGER))
-                  .addHandler("fraction", new StaxValueLoader(resourceTable, "fraction", ResType.FRACTION))
-                  .addHandler("item[@type='fraction']", new StaxValueLoader(resourceTable, "fraction", ResType.FRACTION))
-                  .addHandler("item[@type='layout']", new StaxValueLoader(resourceTable, "layout", ResType.LAYOUT))
-                  .addHandler("plurals", new StaxPluralsLoader(resourceTable, "plurals", ResType.CHAR_SEQUENCE))
-                  .addHandler("string", new StaxValueLoader(resourceTable, "string", ResType.CHAR_SEQUENCE))
-                  .addHandler("item[@type='string']", new StaxValueLoader(resourceTable, "string", ResType.CHAR_SEQUENCE))
-                  .addHandler("string-array", new StaxArrayLoader(resourceTable, "array", ResType.CHAR_SEQUENCE_ARRAY, ResType.CHAR_SEQUENCE))
-                  .addHandler("array", new StaxArrayLoader(resourceTable, "array", ResType.TYPED_ARRAY, null))
-                  .addHandler("id", new StaxValueLoader(resourceTable, "id", ResType.CHAR_SEQUENCE))
-                  .addHandler("item[@type='id']", new StaxValueLoader(resourceTable, "id", ResType.CHAR_SEQUENCE))
-                  .addHandler("attr", new StaxAttrLoader(resourceTable, "attr", ResType.ATTR_DATA))
-                  .addHandler("declare-styleable", new NodeHandler()
-                      .addHandler("attr", new StaxAttrLoader(resourceTable, "attr", ResType.ATTR_DATA))
-                  )
-                  .addHandler("style", new StaxStyleLoader(resourceTable, "style", ResType.STYLE))
-              )).load("values");
+      loadValues(resourcePath, resourceTable);
 
       loadOpaque(resourcePath, resourceTable, "layout", ResType.LAYOUT);
       loadOpaque(resourcePath, resourceTable, "menu", ResType.LAYOUT);
@@ -167,6 +168,112 @@ public class ResourceTableFactory {
     }
   }
 
+  /**
+   * Loads the resources in {@code values} directories. They're loaded on up to {@value
+   * #LOADING_THREADS_PROPERTY} threads, one directory at a time on each thread, into {@link
+   * PartialResourceTable}s which are merged in the order the directories would be loaded in
+   * sequentially, so that resources are added, and IDs generated for them, in the same order.
+   */
+  private void loadValues(ResourcePath resourcePath, PackageResourceTable resourceTable)
+      throws Exception {
+    DocumentLoader loader = newValuesLoader(resourceTable, resourcePath);
+    int threads = Integer.getInteger(LOADING_THREADS_PROPERTY, 1);
+    if (threads <= 1) {
+      loader.load("values");
+      return;
+    }
+
+    Path[] dirs = loader.listDirs("values");
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.max(1, Math.min(threads, dirs.length)),
+            new ThreadFactoryBuilder().setNameFormat("resource-loader-%d").setDaemon(true).build());
+    try {
+      List<Future<PartialResourceTable>> partialTables = new ArrayList<>();
+      for (Path dir : dirs) {
+        partialTables.add(
+            executor.submit(
+                () -> {
+                  PartialResourceTable partialTable =
+                      new PartialResourceTable(resourceTable.getPackageName());
+                  newValuesLoader(partialTable, resourcePath).loadDir(dir);
+                  return partialTable;
+                }));
+      }
+      for (Future<PartialResourceTable> partialTable : partialTables) {
+        try {
+          partialTable.get().mergeInto(resourceTable);
+        } catch (ExecutionException e) {
+          Throwables.throwIfUnchecked(e.getCause());
+          throw e;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private DocumentLoader newValuesLoader(
+      PackageResourceTable resourceTable, ResourcePath resourcePath) {
+    if (resourceTableCache == null) {
+      return newValuesParser(resourceTable, resourcePath);
+    }
+
+    String packageName = resourceTable.getPackageName();
+    Path resourceBase = resourcePath.getResourceBase();
+    return new DocumentLoader(packageName, resourceBase) {
+      @Override
+      protected void loadResourceXmlFile(XmlContext xmlContext) {
+        resourceTableCache
+            .getValuesFile(
+                packageName,
+                resourceBase,
+                xmlContext.getXmlFile(),
+                () -> {
+                  PartialResourceTable partialTable = new PartialResourceTable(packageName);
+                  newValuesParser(partialTable, resourcePath).loadResourceXmlFile(xmlContext);
+                  return partialTable;
+                })
+            .mergeInto(resourceTable);
+      }
+    };
+  }
+
+  private StaxDocumentLoader newValuesParser(
+      PackageResourceTable resourceTable, ResourcePath resourcePath) {
+    return new StaxDocumentLoader(resourceTable.getPackageName(), resourcePath.getResourceBase(),
+        new NodeHandler()
+            .addHandler("resources", new NodeHandler()
+                .addHandler("bool", new StaxValueLoader(resourceTable, "bool", ResType.BOOLEAN))
+                .addHandler("item[@type='bool']", new StaxValueLoader(resourceTable, "bool", ResType.BOOLEAN))
+                .addHandler("color", new StaxValueLoader(resourceTable, "color", ResType.COLOR))
+                .addHandler("item[@type='color']", new StaxValueLoader(resourceTable, "color", ResType.COLOR))
+                .addHandler("drawable", new StaxValueLoader(resourceTable, "drawable", ResType.DRAWABLE))
+                .addHandler("item[@type='drawable']", new StaxValueLoader(resourceTable, "drawable", ResType.DRAWABLE))
+                .addHandler("item[@type='mipmap']", new StaxValueLoader(resourceTable, "mipmap", ResType.DRAWABLE))
+                .addHandler("dimen", new StaxValueLoader(resourceTable, "dimen", ResType.DIMEN))
+                .addHandler("item[@type='dimen']", new StaxValueLoader(resourceTable, "dimen", ResType.DIMEN))
+                .addHandler("integer", new StaxValueLoader(resourceTable, "integer", ResType.INTEGER))
+                .addHandler("item[@type='integer']", new StaxValueLoader(resourceTable, "integer", ResType.INTEGER))
+                .addHandler("integer-array", new StaxArrayLoader(resourceTable, "array", ResType.INTEGER_ARRAY, ResType.INTEGER))
+                .addHandler("fraction", new StaxValueLoader(resourceTable, "fraction", ResType.FRACTION))
+                .addHandler("item[@type='fraction']", new StaxValueLoader(resourceTable, "fraction", ResType.FRACTION))
+                .addHandler("item[@type='layout']", new StaxValueLoader(resourceTable, "layout", ResType.LAYOUT))
+                .addHandler("plurals", new StaxPluralsLoader(resourceTable, "plurals", ResType.CHAR_SEQUENCE))
+                .addHandler("string", new StaxValueLoader(resourceTable, "string", ResType.CHAR_SEQUENCE))
+                .addHandler("item[@type='string']", new StaxValueLoader(resourceTable, "string", ResType.CHAR_SEQUENCE))
+                .addHandler("string-array", new StaxArrayLoader(resourceTable, "array", ResType.CHAR_SEQUENCE_ARRAY, ResType.CHAR_SEQUENCE))
+                .addHandler("array", new StaxArrayLoader(resourceTable, "array", ResType.TYPED_ARRAY, null))
+                .addHandler("id", new StaxValueLoader(resourceTable, "id", ResType.CHAR_SEQUENCE))
+                .addHandler("item[@type='id']", new StaxValueLoader(resourceTable, "id", ResType.CHAR_SEQUENCE))
+                .addHandler("attr", new StaxAttrLoader(resourceTable, "attr", ResType.ATTR_DATA))
+                .addHandler("declare-styleable", new NodeHandler()
+                    .addHandler("attr", new StaxAttrLoader(resourceTable, "attr", ResType.ATTR_DATA))
+                )
+                .addHandler("style", new StaxStyleLoader(resourceTable, "style", ResType.STYLE))
+            ));
+  }
+
   private void loadOpaque(
       ResourcePath resourcePath,
       final PackageResourceTable resourceTable,
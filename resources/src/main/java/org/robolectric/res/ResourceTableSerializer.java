@@ -0,0 +1,483 @@
+package org.robolectric.res;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes a compact binary form of a {@link PackageResourceTable}, so that it needn't be
+ * built from R classes and resource files again, or of a {@link PartialResourceTable}, so that the
+ * resource file it was loaded from needn't be parsed again.
+ *
+ * Strings are written once, in a table at the start. Paths of resource files are stored relative
+ * to the resource directories they were loaded from, which are passed to both {@link #write} and
+ * {@link #read}, so that the table can be read back for resources at another location.
+ */
+@SuppressWarnings("NewApi")
+class ResourceTableSerializer {
+
+  private static final int MAGIC = 0x52455354; // "REST"
+  private static final int PARTIAL_MAGIC = 0x52455350; // "RESP"
+
+  /** Changed whenever the format, or the way tables are built from their sources, changes. */
+  static final int FORMAT_VERSION = 1;
+
+  private static final byte STRING_VALUE = 0;
+  private static final byte ARRAY_VALUE = 1;
+  private static final byte PLURALS_VALUE = 2;
+  private static final byte ATTR_VALUE = 3;
+  private static final byte STYLE_VALUE = 4;
+  private static final byte FILE_VALUE = 5;
+  private static final byte IMAGE_VALUE = 6;
+
+  private static final int NEW_CONTEXT = -1;
+
+  /**
+   * Writes {@code resourceTable} to {@code out}.
+   *
+   * @throws IOException if the table contains values which can't be serialized, or files which
+   *     aren't in any of {@code resourceBases}
+   */
+  static void write(
+      PackageResourceTable resourceTable, String key, List<Path> resourceBases, OutputStream out)
+      throws IOException {
+    new Writer(resourceBases).write(resourceTable, key, out);
+  }
+
+  /**
+   * Reads a table written by {@link #write}.
+   *
+   * @throws IOException if the data wasn't written for {@code key} by this version of the format
+   */
+  static PackageResourceTable read(ByteBuffer buffer, String key, List<Path> resourceBases)
+      throws IOException {
+    try {
+      return new Reader(buffer, resourceBases).read(key);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("corrupt resource table", e);
+    }
+  }
+
+  /**
+   * Writes the resources added to {@code partialTable} to {@code out}.
+   *
+   * @throws IOException if the table contains values which can't be serialized, or files which
+   *     aren't in any of {@code resourceBases}
+   */
+  static void writePartial(
+      PartialResourceTable partialTable, String key, List<Path> resourceBases, OutputStream out)
+      throws IOException {
+    new Writer(resourceBases).writePartial(partialTable, key, out);
+  }
+
+  /**
+   * Reads a table written by {@link #writePartial}.
+   *
+   * @throws IOException if the data wasn't written for {@code key} by this version of the format
+   */
+  static PartialResourceTable readPartial(ByteBuffer buffer, String key, List<Path> resourceBases)
+      throws IOException {
+    try {
+      return new Reader(buffer, resourceBases).readPartial(key);
+    } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("corrupt resource table", e);
+    }
+  }
+
+  private static class Writer {
+    private final List<Path> resourceBases;
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final Map<XmlContext, Integer> xmlContexts = new IdentityHashMap<>();
+    private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+    private final DataOutputStream body = new DataOutputStream(bodyBytes);
+
+    Writer(List<Path> resourceBases) {
+      this.resourceBases = resourceBases;
+    }
+
+    void write(PackageResourceTable resourceTable, String key, OutputStream out)
+        throws IOException {
+      writeString(key);
+      writeString(resourceTable.getPackageName());
+      body.writeInt(resourceTable.getPackageIdentifier());
+
+      Map<Integer, ResName> resNamesById = resourceTable.getResNamesById();
+      body.writeInt(resNamesById.size());
+      for (Map.Entry<Integer, ResName> entry : resNamesById.entrySet()) {
+        body.writeInt(entry.getKey());
+        writeResName(entry.getValue());
+      }
+
+      Map<String, int[]> typeIdentifiers =
+          resourceTable.getAndroidResourceIdGenerator().getTypeIdentifiers();
+      body.writeInt(typeIdentifiers.size());
+      for (Map.Entry<String, int[]> entry : typeIdentifiers.entrySet()) {
+        writeString(entry.getKey());
+        body.writeInt(entry.getValue()[0]);
+        body.writeInt(entry.getValue()[1]);
+      }
+
+      Map<ResName, Iterable<TypedResource>> values = new LinkedHashMap<>();
+      resourceTable.getResources().receive(values::put);
+      body.writeInt(values.size());
+      for (Map.Entry<ResName, Iterable<TypedResource>> entry : values.entrySet()) {
+        writeResName(entry.getKey());
+        writeValues(entry.getValue());
+      }
+      finish(MAGIC, out);
+    }
+
+    void writePartial(PartialResourceTable partialTable, String key, OutputStream out)
+        throws IOException {
+      writeString(key);
+      writeString(partialTable.getPackageName());
+
+      List<PartialResourceTable.PendingResource> pendingResources =
+          partialTable.getPendingResources();
+      body.writeInt(pendingResources.size());
+      for (PartialResourceTable.PendingResource pendingResource : pendingResources) {
+        writeString(pendingResource.type);
+        writeString(pendingResource.name);
+        writeValue(pendingResource.value);
+      }
+      finish(PARTIAL_MAGIC, out);
+    }
+
+    private void finish(int magic, OutputStream out) throws IOException {
+      body.flush();
+
+      DataOutputStream dataOut = new DataOutputStream(out);
+      dataOut.writeInt(magic);
+      dataOut.writeInt(FORMAT_VERSION);
+      dataOut.writeInt(strings.size());
+      for (String string : strings.keySet()) {
+        byte[] bytes = string.getBytes(UTF_8);
+        dataOut.writeInt(bytes.length);
+        dataOut.write(bytes);
+      }
+      bodyBytes.writeTo(dataOut);
+      dataOut.flush();
+    }
+
+    private void writeValues(Iterable<TypedResource> values) throws IOException {
+      List<TypedResource> valueList = new ArrayList<>();
+      values.forEach(valueList::add);
+      body.writeInt(valueList.size());
+      for (TypedResource<?> value : valueList) {
+        writeValue(value);
+      }
+    }
+
+    private void writeValue(TypedResource<?> value) throws IOException {
+      Object data = value.getData();
+      if (value instanceof FileTypedResource.Image) {
+        writeHeader(IMAGE_VALUE, value);
+        writePath(((FileTypedResource) value).getPath());
+        body.writeBoolean(((FileTypedResource.Image) value).isNinePatch());
+      } else if (value instanceof FileTypedResource) {
+        writeHeader(FILE_VALUE, value);
+        writePath(((FileTypedResource) value).getPath());
+      } else if (value instanceof PluralRules) {
+        writeHeader(PLURALS_VALUE, value);
+        List<Plural> plurals = ((PluralRules) value).getData();
+        body.writeInt(plurals.size());
+        for (Plural plural : plurals) {
+          writeString(plural.quantity);
+          writeString(plural.string);
+        }
+      } else if (value.getClass() != TypedResource.class) {
+        throw new IOException("can't serialize " + value);
+      } else if (data == null || data instanceof String) {
+        writeHeader(STRING_VALUE, value);
+        writeString((String) data);
+      } else if (data instanceof List) {
+        writeHeader(ARRAY_VALUE, value);
+        writeValues((List<TypedResource>) data);
+      } else if (data instanceof AttrData) {
+        writeHeader(ATTR_VALUE, value);
+        AttrData attrData = (AttrData) data;
+        writeString(attrData.getName());
+        writeString(attrData.getFormat());
+        List<AttrData.Pair> pairs = attrData.getPairs();
+        body.writeInt(pairs == null ? -1 : pairs.size());
+        if (pairs != null) {
+          for (AttrData.Pair pair : pairs) {
+            writeString(pair.getName());
+            writeString(pair.getValue());
+          }
+        }
+      } else if (data instanceof StyleData) {
+        writeHeader(STYLE_VALUE, value);
+        StyleData styleData = (StyleData) data;
+        writeString(styleData.getPackageName());
+        writeString(styleData.getName());
+        writeString(styleData.getParent());
+        List<AttributeResource> attributeResources = new ArrayList<>();
+        styleData.visit(attributeResources::add);
+        body.writeInt(attributeResources.size());
+        for (AttributeResource attributeResource : attributeResources) {
+          writeResName(attributeResource.resName);
+          writeString(attributeResource.value);
+          writeString(attributeResource.contextPackageName);
+          Integer referenceResId = attributeResource.getReferenceResId();
+          body.writeBoolean(referenceResId != null);
+          if (referenceResId != null) {
+            body.writeInt(referenceResId);
+          }
+        }
+      } else {
+        throw new IOException("can't serialize " + value);
+      }
+    }
+
+    private void writeHeader(byte kind, TypedResource<?> value) throws IOException {
+      body.writeByte(kind);
+      ResType resType = value.getResType();
+      body.writeByte(resType == null ? -1 : resType.ordinal());
+      writeXmlContext(value.getXmlContext());
+    }
+
+    private void writeXmlContext(XmlContext xmlContext) throws IOException {
+      // many values share the context of the file they were declared in
+      Integer index = xmlContexts.get(xmlContext);
+      if (index != null) {
+        body.writeInt(index);
+        return;
+      }
+
+      xmlContexts.put(xmlContext, xmlContexts.size());
+      body.writeInt(NEW_CONTEXT);
+      writeString(xmlContext.getPackageName());
+      writePath(xmlContext.getXmlFile());
+      writeString(xmlContext.getQualifiers().toString());
+    }
+
+    private void writeResName(ResName resName) throws IOException {
+      writeString(resName.packageName);
+      writeString(resName.type);
+      writeString(resName.name);
+    }
+
+    private void writePath(Path path) throws IOException {
+      if (path == null) {
+        body.writeInt(-1);
+        return;
+      }
+      for (int i = 0; i < resourceBases.size(); i++) {
+        Path resourceBase = resourceBases.get(i);
+        if (resourceBase.getFileSystem().equals(path.getFileSystem())
+            && path.startsWith(resourceBase)) {
+          body.writeInt(i);
+          writeString(resourceBase.relativize(path).toString());
+          return;
+        }
+      }
+      throw new IOException(path + " isn't in any of " + resourceBases);
+    }
+
+    private void writeString(String string) throws IOException {
+      if (string == null) {
+        body.writeInt(-1);
+        return;
+      }
+      Integer index = strings.get(string);
+      if (index == null) {
+        index = strings.size();
+        strings.put(string, index);
+      }
+      body.writeInt(index);
+    }
+  }
+
+  private static class Reader {
+    private final ByteBuffer buffer;
+    private final List<Path> resourceBases;
+    private final List<XmlContext> xmlContexts = new ArrayList<>();
+    private final Map<String, Qualifiers> qualifiers = new HashMap<>();
+    private final ResType[] resTypes = ResType.values();
+    private String[] strings;
+
+    Reader(ByteBuffer buffer, List<Path> resourceBases) {
+      this.buffer = buffer;
+      this.resourceBases = resourceBases;
+    }
+
+    PackageResourceTable read(String key) throws IOException {
+      start(MAGIC, key);
+
+      PackageResourceTable resourceTable = new PackageResourceTable(readString());
+      int packageIdentifier = buffer.getInt();
+
+      int idCount = buffer.getInt();
+      Map<Integer, ResName> resNamesById = new LinkedHashMap<>();
+      for (int i = 0; i < idCount; i++) {
+        int id = buffer.getInt();
+        resNamesById.put(id, readResName());
+      }
+      resourceTable.restore(packageIdentifier, resNamesById);
+
+      ResourceIdGenerator resourceIdGenerator = resourceTable.getAndroidResourceIdGenerator();
+      int typeCount = buffer.getInt();
+      for (int i = 0; i < typeCount; i++) {
+        String type = readString();
+        int typeIdentifier = buffer.getInt();
+        resourceIdGenerator.restoreTypeIdentifiers(type, typeIdentifier, buffer.getInt());
+      }
+
+      ResBunch resources = resourceTable.getResources();
+      int resNameCount = buffer.getInt();
+      for (int i = 0; i < resNameCount; i++) {
+        ResName resName = readResName();
+        for (TypedResource value : readValues()) {
+          resources.put(resName, value);
+        }
+      }
+      return resourceTable;
+    }
+
+    PartialResourceTable readPartial(String key) throws IOException {
+      start(PARTIAL_MAGIC, key);
+
+      PartialResourceTable partialTable = new PartialResourceTable(readString());
+      int count = buffer.getInt();
+      for (int i = 0; i < count; i++) {
+        String type = readString();
+        String name = readString();
+        partialTable.addResource(type, name, readValue());
+      }
+      return partialTable;
+    }
+
+    private void start(int magic, String key) throws IOException {
+      if (buffer.getInt() != magic || buffer.getInt() != FORMAT_VERSION) {
+        throw new IOException("not a resource table written by this version");
+      }
+      strings = new String[buffer.getInt()];
+      for (int i = 0; i < strings.length; i++) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        strings[i] = new String(bytes, UTF_8);
+      }
+      if (!key.equals(readString())) {
+        throw new IOException("resource table was written for different sources");
+      }
+    }
+
+    private List<TypedResource> readValues() throws IOException {
+      int count = buffer.getInt();
+      List<TypedResource> values = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        values.add(readValue());
+      }
+      return values;
+    }
+
+    private TypedResource readValue() throws IOException {
+      byte kind = buffer.get();
+      byte resTypeOrdinal = buffer.get();
+      ResType resType = resTypeOrdinal == -1 ? null : resTypes[resTypeOrdinal];
+      XmlContext xmlContext = readXmlContext();
+      switch (kind) {
+        case STRING_VALUE:
+          return new TypedResource<>(readString(), resType, xmlContext);
+        case ARRAY_VALUE:
+          return new TypedResource<>(readValues(), resType, xmlContext);
+        case PLURALS_VALUE:
+          {
+            int count = buffer.getInt();
+            List<Plural> plurals = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+              String quantity = readString();
+              plurals.add(new Plural(quantity, readString()));
+            }
+            return new PluralRules(plurals, resType, xmlContext);
+          }
+        case ATTR_VALUE:
+          {
+            String name = readString();
+            String format = readString();
+            int count = buffer.getInt();
+            List<AttrData.Pair> pairs = count == -1 ? null : new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+              String pairName = readString();
+              pairs.add(new AttrData.Pair(pairName, readString()));
+            }
+            return new TypedResource<>(new AttrData(name, format, pairs), resType, xmlContext);
+          }
+        case STYLE_VALUE:
+          {
+            String packageName = readString();
+            String name = readString();
+            String parent = readString();
+            int count = buffer.getInt();
+            List<AttributeResource> attributeResources = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+              ResName resName = readResName();
+              String value = readString();
+              String contextPackageName = readString();
+              Integer referenceResId = buffer.get() != 0 ? buffer.getInt() : null;
+              attributeResources.add(
+                  new AttributeResource(resName, value, contextPackageName, referenceResId));
+            }
+            StyleData styleData = new StyleData(packageName, name, parent, attributeResources);
+            return new TypedResource<>(styleData, resType, xmlContext);
+          }
+        case FILE_VALUE:
+          return new FileTypedResource(readPath(), resType, xmlContext);
+        case IMAGE_VALUE:
+          {
+            Path path = readPath();
+            return new FileTypedResource.Image(path, buffer.get() != 0, xmlContext);
+          }
+        default:
+          throw new IOException("unknown value kind " + kind);
+      }
+    }
+
+    private XmlContext readXmlContext() {
+      int index = buffer.getInt();
+      if (index != NEW_CONTEXT) {
+        return xmlContexts.get(index);
+      }
+
+      String packageName = readString();
+      Path xmlFile = readPath();
+      String qualifiersString = readString();
+      XmlContext xmlContext =
+          new XmlContext(
+              packageName,
+              xmlFile,
+              qualifiers.computeIfAbsent(qualifiersString, Qualifiers::parse));
+      xmlContexts.add(xmlContext);
+      return xmlContext;
+    }
+
+    private ResName readResName() {
+      String packageName = readString();
+      String type = readString();
+      return new ResName(packageName, type, readString());
+    }
+
+    private Path readPath() {
+      int baseIndex = buffer.getInt();
+      return baseIndex == -1 ? null : resourceBases.get(baseIndex).resolve(readString());
+    }
+
+    private String readString() {
+      int index = buffer.getInt();
+      return index == -1 ? null : strings[index];
+    }
+  }
+}
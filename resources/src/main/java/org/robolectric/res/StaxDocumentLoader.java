@@ -8,18 +8,21 @@ import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+@SuppressWarnings("NewApi")
 public class StaxDocumentLoader extends DocumentLoader {
   private static final NodeHandler NO_OP_HANDLER = new NodeHandler();
 
+  // factories aren't guaranteed to be thread-safe, and are costly to create for each loader
+  private static final ThreadLocal<XMLInputFactory> factories =
+      ThreadLocal.withInitial(XMLInputFactory::newFactory);
+
   private final NodeHandler topLevelNodeHandler;
-  private final XMLInputFactory factory;
 
   public StaxDocumentLoader(
       String packageName, Path resourceBase, NodeHandler topLevelNodeHandler) {
     super(packageName, resourceBase);
 
     this.topLevelNodeHandler = topLevelNodeHandler;
-    factory = XMLInputFactory.newFactory();
   }
 
   @Override
@@ -28,7 +31,7 @@ public class StaxDocumentLoader extends DocumentLoader {
 
     XMLStreamReader xmlStreamReader;
     try {
-      xmlStreamReader = factory.createXMLStreamReader(Fs.getInputStream(xmlFile));
+      xmlStreamReader = factories.get().createXMLStreamReader(Fs.getInputStream(xmlFile));
       doParse(xmlStreamReader, xmlContext);
     } catch (Exception e) {
       throw new RuntimeException("error parsing " + xmlFile, e);
@@ -12,6 +12,8 @@ import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.zip.ZipEntry;
@@ -117,6 +119,17 @@ public abstract class Asset {
      */
   public abstract byte[] getBuffer(boolean wordAligned);
 
+  /**
+   * Get a buffer with the entire contents of the file, which is memory-mapped rather than copied
+   * onto the heap if possible.
+   *
+   * Non-Android framework method.
+   */
+  public ByteBuffer getByteBuffer(boolean wordAligned) {
+    byte[] buffer = getBuffer(wordAligned);
+    return buffer == null ? null : ByteBuffer.wrap(buffer);
+  }
+
   /*
    * Get the total amount of data that can be read.
    */
@@ -733,7 +746,7 @@ static Asset createFromCompressedMap(FileMap dataMap,
       mLength = dataMap.getDataLength();
       assert(mOffset == 0);
 
-      mBuf = dataMap.getDataPtr();
+      // the data is read from the map when it's needed, or not at all if the map is mmapped
 
       return NO_ERROR;
     }
@@ -755,7 +768,7 @@ static Asset createFromCompressedMap(FileMap dataMap,
            * using the buffer or because what they're doing has appropriate
            * performance needs and access patterns.
            */
-        if (mBuf == null)
+        if (mBuf == null && mMap == null)
           getBuffer(false);
       }
 
@@ -772,7 +785,9 @@ static Asset createFromCompressedMap(FileMap dataMap,
           /* copy from mapped area */
         //printf("map read\n");
         // memcpy(buf, (String)mMap.getDataPtr() + mOffset, count);
-        System.arraycopy(mMap.getDataPtr(), toIntExact(mOffset), buf, bufOffset, count);
+        ByteBuffer data = mMap.getDataBuffer();
+        ((Buffer) data).position(toIntExact(mOffset));
+        data.get(buf, bufOffset, count);
         actual = count;
       } else if (mBuf != null) {
           /* copy from buffer */
@@ -865,6 +880,14 @@ static Asset createFromCompressedMap(FileMap dataMap,
       // }
     }
 
+    @Override
+    public ByteBuffer getByteBuffer(boolean wordAligned) {
+      if (mBuf == null && mMap != null) {
+        return mMap.getDataBuffer();
+      }
+      return super.getByteBuffer(wordAligned);
+    }
+
     /*
      * Return a read-only pointer to a buffer.
      *
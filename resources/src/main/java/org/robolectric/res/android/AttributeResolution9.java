@@ -8,6 +8,7 @@ import java.util.Arrays;
 import org.robolectric.res.android.CppAssetManager2.ResolvedBag;
 import org.robolectric.res.android.CppAssetManager2.ResolvedBag.Entry;
 import org.robolectric.res.android.CppAssetManager2.Theme;
+import org.robolectric.res.android.ResolvedStyleCache.ResolvedStyle;
 import org.robolectric.res.android.ResourceTypes.Res_value;
 
 // transliterated from
@@ -277,6 +278,11 @@ public class AttributeResolution9 {
       }
     }
 
+    // Robolectric-custom: the values resolved by earlier calls for attributes that weren't set in
+    // the XML, which are the same as long as the styles and the theme are.
+    ResolvedStyle resolved_style = theme.GetResolvedStyle(def_style_resid, def_style_flags.get(),
+        style_resid, style_flags.get(), attrs, attrs_length, STYLE_NUM_ENTRIES);
+
     // Retrieve the default style bag, if requested.
     ResolvedBag default_style_bag = null;
     if (def_style_resid != 0) {
@@ -311,6 +317,18 @@ public class AttributeResolution9 {
         ALOGI("RETRIEVING ATTR 0x%08x...", cur_ident);
       }
 
+      // Robolectric-custom: reuse the resolved value of an attribute that isn't set in the XML.
+      int xml_attr_idx = xml_attr_finder.Find(cur_ident);
+      if (xml_attr_idx == -1 && resolved_style.get(ii, out_values)) {
+        int destIndex = ii * STYLE_NUM_ENTRIES;
+        if (out_values[destIndex + STYLE_TYPE] != DataType.NULL.code()
+            || out_values[destIndex + STYLE_DATA] == Res_value.DATA_NULL_EMPTY) {
+          indices_idx++;
+          out_indices[indices_idx] = ii;
+        }
+        continue;
+      }
+
       ApkAssetsCookie cookie = K_INVALID_COOKIE;
       final Ref<Integer> type_set_flags = new Ref<>(0);
 
@@ -322,7 +340,6 @@ public class AttributeResolution9 {
       // style, and finally the theme.
 
       // Walk through the xml attributes looking for the requested attribute.
-      int xml_attr_idx = xml_attr_finder.Find(cur_ident);
       if (xml_attr_idx != -1) {
         // We found the attribute we were looking for.
         xml_parser.getAttributeValue(xml_attr_idx, value);
@@ -415,6 +432,10 @@ public class AttributeResolution9 {
       out_values[destIndex + STYLE_CHANGING_CONFIGURATIONS] = type_set_flags.get();
       out_values[destIndex + STYLE_DENSITY] = config.get().density;
 
+      if (xml_attr_idx == -1) {
+        resolved_style.put(ii, out_values);
+      }
+
       if (res_value.dataType != DataType.NULL.code() || res_value.data == Res_value.DATA_NULL_EMPTY) {
         indices_idx++;
 
@@ -7,8 +7,6 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.PeekingIterator;
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * transliterated from
@@ -48,14 +46,6 @@ public class ConfigDescription {
 
   private static final String kWildcardName = "any";
 
-  private static final Pattern MCC_PATTERN = Pattern.compile("mcc([\\d]+)");
-  private static final Pattern MNC_PATTERN = Pattern.compile("mnc([\\d]+)");
-  private static final Pattern SMALLEST_SCREEN_WIDTH_PATTERN = Pattern.compile("^sw([0-9]+)dp");
-  private static final Pattern SCREEN_WIDTH_PATTERN = Pattern.compile("^w([0-9]+)dp");
-  private static final Pattern SCREEN_HEIGHT_PATTERN = Pattern.compile("^h([0-9]+)dp");
-  private static final Pattern DENSITY_PATTERN = Pattern.compile("^([0-9]+)dpi");
-  private static final Pattern HEIGHT_WIDTH_PATTERN = Pattern.compile("^([0-9]+)x([0-9]+)");
-  private static final Pattern VERSION_QUALIFIER_PATTERN = Pattern.compile("v([0-9]+)$");
 
   public static class LocaleValue {
 
@@ -417,9 +407,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = SMALLEST_SCREEN_WIDTH_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.smallestScreenWidthDp = Integer.parseInt(matcher.group(1));
+    int smallestScreenWidthDp = parseNumber(name, "sw", "dp");
+    if (smallestScreenWidthDp != -1) {
+      out.smallestScreenWidthDp = smallestScreenWidthDp;
       return true;
     }
     return false;
@@ -433,9 +423,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = SCREEN_WIDTH_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.screenWidthDp = Integer.parseInt(matcher.group(1));
+    int screenWidthDp = parseNumber(name, "w", "dp");
+    if (screenWidthDp != -1) {
+      out.screenWidthDp = screenWidthDp;
       return true;
     }
     return false;
@@ -449,9 +439,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = SCREEN_HEIGHT_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.screenHeightDp = Integer.parseInt(matcher.group(1));
+    int screenHeightDp = parseNumber(name, "h", "dp");
+    if (screenHeightDp != -1) {
+      out.screenHeightDp = screenHeightDp;
       return true;
     }
     return false;
@@ -762,9 +752,9 @@ public class ConfigDescription {
     }
 
     // check that we have 'dpi' after the last digit.
-    Matcher matcher = DENSITY_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.density = Integer.parseInt(matcher.group(1));
+    int density = parseNumber(name, "", "dpi");
+    if (density != -1) {
+      out.density = density;
       return true;
     }
     return false;
@@ -913,11 +903,11 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = HEIGHT_WIDTH_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      int w = Integer.parseInt(matcher.group(1));
-      int h = Integer.parseInt(matcher.group(2));
-      if (w < h) {
+    int x = name.indexOf('x');
+    if (x != -1) {
+      int w = parseNumber(name.substring(0, x), "", "");
+      int h = parseNumber(name.substring(x + 1), "", "");
+      if (w == -1 || h == -1 || w < h) {
         return false;
       }
       out.screenWidth = w;
@@ -936,9 +926,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = VERSION_QUALIFIER_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.sdkVersion = Integer.parseInt(matcher.group(1));
+    int sdkVersion = parseNumber(name, "v", "");
+    if (sdkVersion != -1) {
+      out.sdkVersion = sdkVersion;
       out.minorVersion = 0;
       return true;
     }
@@ -953,9 +943,9 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = MNC_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.mnc = Integer.parseInt(matcher.group(1));
+    int mnc = parseNumber(name, "mnc", "");
+    if (mnc != -1) {
+      out.mnc = mnc;
       if (out.mnc == 0) {
         out.mnc = ACONFIGURATION_MNC_ZERO;
       }
@@ -972,14 +962,34 @@ public class ConfigDescription {
       return true;
     }
 
-    Matcher matcher = MCC_PATTERN.matcher(name);
-    if (matcher.matches()) {
-      out.mcc = Integer.parseInt(matcher.group(1));
+    int mcc = parseNumber(name, "mcc", "");
+    if (mcc != -1) {
+      out.mcc = mcc;
       return true;
     }
     return false;
   }
 
+  /**
+   * Robolectric-custom: returns the number between {@code prefix} and {@code suffix} in {@code
+   * name}, or -1 if {@code name} isn't {@code prefix}, one or more digits, then {@code suffix}. Like
+   * AaptConfig.cpp, this scans the characters rather than matching a regular expression.
+   */
+  private static int parseNumber(String name, String prefix, String suffix) {
+    int start = prefix.length();
+    int end = name.length() - suffix.length();
+    if (end <= start || !name.startsWith(prefix) || !name.endsWith(suffix)) {
+      return -1;
+    }
+    for (int i = start; i < end; i++) {
+      char c = name.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+    }
+    return Integer.parseInt(name.substring(start, end));
+  }
+
   // transliterated from https://android.googlesource.com/platform/frameworks/base/+/android-9.0.0_r12/tools/aapt/AaptConfig.cpp
   private static void applyVersionForCompatibility(ResTable_config config) {
     if (config == null) {
@@ -9,10 +9,14 @@ import static org.robolectric.res.android.Util.CHECK;
 import static org.robolectric.res.android.ZipFileRO.OpenArchive;
 import static org.robolectric.res.android.ZipFileRO.kCompressDeflated;
 
-import java.nio.ByteBuffer;
+import java.io.File;
+import java.lang.ref.SoftReference;
 import java.nio.ByteOrder;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.zip.ZipEntry;
 import org.robolectric.res.android.Asset.AccessMode;
@@ -41,6 +45,12 @@ import org.robolectric.util.PerfStatsCollector;
 @SuppressWarnings("NewApi")
 public class CppApkAssets {
   private static final String kResourcesArsc = "resources.arsc";
+
+  /**
+   * APKs loaded so far. The loaded resource table is never modified once it's loaded, so every
+   * sandbox that loads an APK shares the same table, as long as the APK hasn't changed.
+   */
+  private static final Map<SharedApkKey, SoftReference<SharedApk>> sharedApks = new HashMap<>();
 //  public:
 //   static std::unique_ptr<const ApkAssets> Load(const String& path, bool system = false);
 //   static std::unique_ptr<const ApkAssets> LoadAsSharedLibrary(const String& path,
@@ -87,6 +97,8 @@ public class CppApkAssets {
   Asset resources_asset_;
   Asset idmap_asset_;
   private LoadedArsc loaded_arsc_;
+  // keeps the cached parts this shares reachable, so they're reused for as long as they're in use
+  private SharedApk sharedApk;
   // };
 //
 // }  // namespace android
@@ -193,17 +205,135 @@ public class CppApkAssets {
   }
 
   /**
-   * Measure performance implications of loading {@link CppApkAssets}.
+   * Measure performance implications of loading {@link CppApkAssets}, and share those loaded
+   * from unchanged files.
    */
   static CppApkAssets LoadImpl(
       int fd, String path, Asset idmap_asset,
       LoadedIdmap loaded_idmap, boolean system, boolean load_as_shared_library) {
-    return PerfStatsCollector.getInstance()
-        .measure(
-            "load binary " + (system ? "framework" : "app") + " resources",
-            () ->
-                LoadImpl_measured(
-                    fd, path, idmap_asset, loaded_idmap, system, load_as_shared_library));
+    SharedApkKey key =
+        fd < 0 && idmap_asset == null && loaded_idmap == null
+            ? SharedApkKey.forFile(path, system, load_as_shared_library)
+            : null;
+    if (key != null) {
+      CppApkAssets shared = getShared(key);
+      if (shared != null) {
+        return shared;
+      }
+    }
+
+    CppApkAssets loaded_apk =
+        PerfStatsCollector.getInstance()
+            .measure(
+                "load binary " + (system ? "framework" : "app") + " resources",
+                () ->
+                    LoadImpl_measured(
+                        fd, path, idmap_asset, loaded_idmap, system, load_as_shared_library));
+    if (key != null && loaded_apk != null) {
+      loaded_apk.sharedApk = new SharedApk(loaded_apk);
+      synchronized (sharedApks) {
+        sharedApks.put(key, new SoftReference<>(loaded_apk.sharedApk));
+      }
+    }
+    return loaded_apk;
+  }
+
+  /**
+   * Returns a new {@link CppApkAssets} sharing the archive and resource table of one loaded
+   * previously for {@code key}, or null if there isn't one.
+   *
+   * Each caller gets its own instance, since each sandbox registers the ones it loads.
+   */
+  private static CppApkAssets getShared(SharedApkKey key) {
+    SharedApk sharedApk;
+    synchronized (sharedApks) {
+      SoftReference<SharedApk> ref = sharedApks.get(key);
+      sharedApk = ref == null ? null : ref.get();
+      if (ref != null && sharedApk == null) {
+        sharedApks.remove(key);
+      }
+    }
+    if (sharedApk == null) {
+      return null;
+    }
+
+    CppApkAssets shared = new CppApkAssets(sharedApk.zip_handle_, sharedApk.path_);
+    shared.resources_asset_ = sharedApk.resources_asset_;
+    shared.loaded_arsc_ = sharedApk.loaded_arsc_;
+    shared.sharedApk = sharedApk;
+    return shared;
+  }
+
+  /**
+   * The parts of a loaded APK which every {@link CppApkAssets} loaded from the same file shares.
+   * Each of those instances refers to it, so it's only softly reachable once none of them is.
+   */
+  private static class SharedApk {
+    private final ZipArchiveHandle zip_handle_;
+    private final String path_;
+    private final Asset resources_asset_;
+    private final LoadedArsc loaded_arsc_;
+
+    SharedApk(CppApkAssets loaded) {
+      this.zip_handle_ = loaded.zip_handle_;
+      this.path_ = loaded.path_;
+      this.resources_asset_ = loaded.resources_asset_;
+      this.loaded_arsc_ = loaded.loaded_arsc_;
+    }
+  }
+
+  /** Identifies an APK loaded from a file, which is reloaded if the file changes. */
+  private static class SharedApkKey {
+    private final String path;
+    private final long lastModified;
+    private final long length;
+    private final boolean system;
+    private final boolean load_as_shared_library;
+
+    private SharedApkKey(
+        String path,
+        long lastModified,
+        long length,
+        boolean system,
+        boolean load_as_shared_library) {
+      this.path = path;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.system = system;
+      this.load_as_shared_library = load_as_shared_library;
+    }
+
+    /** Returns the key for an APK file, or null if it doesn't exist. */
+    static SharedApkKey forFile(String path, boolean system, boolean load_as_shared_library) {
+      File file = new File(path);
+      if (!file.isFile()) {
+        return null;
+      }
+      return new SharedApkKey(
+          file.getAbsolutePath(), file.lastModified(), file.length(), system,
+          load_as_shared_library);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SharedApkKey)) {
+        return false;
+      }
+      SharedApkKey that = (SharedApkKey) o;
+      return lastModified == that.lastModified
+          && length == that.length
+          && system == that.system
+          && load_as_shared_library == that.load_as_shared_library
+          && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, lastModified, length, system, load_as_shared_library);
+    }
   }
 
   // std::unique_ptr<const ApkAssets> ApkAssets::LoadImpl(
@@ -259,7 +389,7 @@ public class CppApkAssets {
   //       reinterpret_cast<const char*>(loaded_apk.resources_asset_.getBuffer(true /*wordAligned*/)),
   //       loaded_apk.resources_asset_.getLength());
     StringPiece data = new StringPiece(
-        ByteBuffer.wrap(loaded_apk.resources_asset_.getBuffer(true /*wordAligned*/))
+        loaded_apk.resources_asset_.getByteBuffer(true /*wordAligned*/)
             .order(ByteOrder.LITTLE_ENDIAN),
         0 /*(int) loaded_apk.resources_asset_.getLength()*/);
     loaded_apk.loaded_arsc_ =
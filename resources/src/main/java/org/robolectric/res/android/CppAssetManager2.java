@@ -205,6 +205,15 @@ public class CppAssetManager2 {
   // which involves some calculation.
 //  private std.unordered_map<int, util.unique_cptr<ResolvedBag>> cached_bags_;
   final private Map<Integer, ResolvedBag> cached_bags_ = new HashMap<>();
+
+  // Non-Android framework field: the entries found by FindEntry for the current configuration,
+  // indexed by package ID, type ID and entry index, so that looking up the same resource again
+  // doesn't search through its configurations. These are purged along with cached_bags_.
+  final private FindEntryResult[][][] cached_entries_ = new FindEntryResult[256][][];
+
+  // Non-Android framework field: incremented whenever cached resources are purged, so that
+  // Themes know when the values they resolved may be stale.
+  private int cache_generation_ = 0;
 //  };
 
 //final ResolvedBag.Entry* begin(final ResolvedBag* bag) { return bag.entries; }
@@ -258,6 +267,10 @@ public class CppAssetManager2 {
     // The string pool reference to the entry's name. This uses a different string pool than
     // the global string pool, but this is hidden from the caller.
     StringPoolRef entry_string_ref;
+
+    // Non-Android framework field: the cookie of the ApkAssets in which the entry was found, so
+    // that the result can be cached.
+    ApkAssetsCookie cookie;
   }
 
 //  AssetManager2() { memset(&configuration_, 0, sizeof(configuration_)); }
@@ -622,7 +635,7 @@ public class CppAssetManager2 {
     // Select our configuration or generate a density override configuration.
     ResTable_config desired_config = configuration_;
     if (density_override != 0 && density_override != configuration_.density) {
-      density_override_config = configuration_;
+      density_override_config = new ResTable_config(configuration_);
       density_override_config.density = density_override;
       desired_config = density_override_config;
     }
@@ -632,6 +645,18 @@ public class CppAssetManager2 {
       return K_INVALID_COOKIE;
     }
 
+    // If desired_config is the same as the set configuration, then we can use our filtered list
+    // and we don't need to match the configurations, since they already matched.
+    boolean use_fast_path = desired_config == configuration_;
+
+    if (use_fast_path) {
+      FindEntryResult cached_entry = GetCachedEntry(resid);
+      if (cached_entry != null) {
+        out_entry.set(cached_entry);
+        return cached_entry.cookie;
+      }
+    }
+
     final int package_id = get_package_id(resid);
     final int type_idx = (byte) (get_type_id(resid) - 1);
     final int entry_idx = get_entry_id(resid);
@@ -653,10 +678,6 @@ public class CppAssetManager2 {
     int best_offset = 0;
     int type_flags = 0;
 
-    // If desired_config is the same as the set configuration, then we can use our filtered list
-    // and we don't need to match the configurations, since they already matched.
-    boolean use_fast_path = desired_config == configuration_;
-
     for (int pi = 0; pi < package_count; pi++) {
       ConfiguredPackage loaded_package_impl = package_group.packages_.get(pi);
       LoadedPackage loaded_package = loaded_package_impl.loaded_package_;
@@ -761,10 +782,45 @@ public class CppAssetManager2 {
     out_entry_.entry_string_ref =
         new StringPoolRef(best_package.GetKeyStringPool(), best_entry.key.index);
     out_entry_.dynamic_ref_table = package_group.dynamic_ref_table;
+    out_entry_.cookie = best_cookie;
+    if (use_fast_path) {
+      CacheEntry(resid, out_entry_);
+    }
     out_entry.set(out_entry_);
     return best_cookie;
   }
 
+  // Non-Android framework method.
+  // Returns the entry cached by FindEntry for `resid` in the current configuration, or null.
+  private FindEntryResult GetCachedEntry(int resid) {
+    FindEntryResult[][] types = cached_entries_[get_package_id(resid)];
+    if (types == null) {
+      return null;
+    }
+    FindEntryResult[] entries = types[get_type_id(resid)];
+    int entry_idx = get_entry_id(resid);
+    return entries != null && entry_idx < entries.length ? entries[entry_idx] : null;
+  }
+
+  // Non-Android framework method.
+  private void CacheEntry(int resid, FindEntryResult entry) {
+    int package_id = get_package_id(resid);
+    FindEntryResult[][] types = cached_entries_[package_id];
+    if (types == null) {
+      types = cached_entries_[package_id] = new FindEntryResult[256][];
+    }
+    int type_id = get_type_id(resid);
+    int entry_idx = get_entry_id(resid);
+    FindEntryResult[] entries = types[type_id];
+    if (entries == null) {
+      entries = types[type_id] = new FindEntryResult[Math.max(entry_idx + 1, 16)];
+    } else if (entry_idx >= entries.length) {
+      int new_length = Math.min(Math.max(entry_idx + 1, entries.length * 2), 0x10000);
+      entries = types[type_id] = Arrays.copyOf(entries, new_length);
+    }
+    entries[entry_idx] = entry;
+  }
+
   // Populates the `out_name` parameter with resource name information.
   // Utf8 strings are preferred, and only if they are unavailable are
   // the Utf16 variants populated.
@@ -1315,9 +1371,12 @@ public class CppAssetManager2 {
   // bitmask `diff`.
 //  void InvalidateCaches(int diff);
   private void InvalidateCaches(int diff) {
+    cache_generation_++;
+
     if (diff == 0xffffffff) {
       // Everything must go.
       cached_bags_.clear();
+      Arrays.fill(cached_entries_, null);
       return;
     }
 
@@ -1331,6 +1390,27 @@ public class CppAssetManager2 {
         cached_bags_.remove(key);
       }
     }
+
+    // Likewise for the entries cached by FindEntry. An entry that is defined only for configurations
+    // that set some axis can also stop matching when that axis changes, even though the entry
+    // doesn't vary by it.
+    ResTable_config default_config = new ResTable_config();
+    for (FindEntryResult[][] types : cached_entries_) {
+      if (types == null) {
+        continue;
+      }
+      for (FindEntryResult[] entries : types) {
+        if (entries == null) {
+          continue;
+        }
+        for (int i = 0; i < entries.length; i++) {
+          if (entries[i] != null
+              && isTruthy(diff & (entries[i].type_flags | entries[i].config.diff(default_config)))) {
+            entries[i] = null;
+          }
+        }
+      }
+    }
   }
 
   // Creates a new Theme from this AssetManager.
@@ -1364,6 +1444,8 @@ public class CppAssetManager2 {
     private int type_spec_flags_ = 0;
     //  std.array<std.unique_ptr<Package>, kPackageCount> packages_;
     private Package[] packages_ = new Package[kPackageCount];
+    // Non-Android framework field.
+    private final ResolvedStyleCache resolved_style_cache_ = new ResolvedStyleCache();
 
     public Theme(CppAssetManager2 cppAssetManager2) {
       asset_manager_ = cppAssetManager2;
@@ -1411,6 +1493,8 @@ public class CppAssetManager2 {
         return false;
       }
 
+      resolved_style_cache_.clear();
+
       // Merge the flags from this style.
       type_spec_flags_ |= bag.type_spec_flags;
 
@@ -1587,6 +1671,7 @@ public class CppAssetManager2 {
 
     //  void Clear();
     public void Clear() {
+      resolved_style_cache_.clear();
       type_spec_flags_ = 0;
       for (int i = 0; i < packages_.length; i++) {
 //        package_.reset();
@@ -1602,6 +1687,7 @@ public class CppAssetManager2 {
         return true;
       }
 
+      resolved_style_cache_.clear();
       type_spec_flags_ = o.type_spec_flags_;
 
       boolean copy_only_system = asset_manager_ != o.asset_manager_;
@@ -1658,6 +1744,15 @@ public class CppAssetManager2 {
       return true;
     }
 
+    // Non-Android framework method.
+    // Returns the values resolved so far by ApplyStyle for the attributes `attrs` that aren't set in
+    // a view's XML, given the default style and XML style and the flags from resolving them.
+    ResolvedStyleCache.ResolvedStyle GetResolvedStyle(int def_style_resid, int def_style_flags,
+        int style_resid, int style_flags, int[] attrs, int attrs_length, int entry_size) {
+      return resolved_style_cache_.get(asset_manager_.cache_generation_, def_style_resid,
+          def_style_flags, style_resid, style_flags, attrs, attrs_length, entry_size);
+    }
+
 //
   }  // namespace android
 
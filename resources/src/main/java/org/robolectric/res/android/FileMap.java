@@ -4,6 +4,7 @@ import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.robolectric.res.android.Asset.toIntExact;
 import static org.robolectric.res.android.Util.ALOGV;
+import static org.robolectric.res.android.Util.ALOGW;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.primitives.Ints;
@@ -13,13 +14,23 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 
+@SuppressWarnings("NewApi")
 public class FileMap {
 
+  /** ZIP archive local file header signature. */
+  private static final int LOCSIG = 0x04034b50;
+
+  private static final int LOCHDR = 30;
   /** ZIP archive central directory end header signature. */
   private static final int ENDSIG = 0x6054b50;
 
@@ -28,6 +39,8 @@ public class FileMap {
   private static final int ENDSIG64 = 0x6064b50;
   /** the maximum size of the end of central directory section in bytes */
   private static final int MAXIMUM_ZIP_EOCD_SIZE = 64 * 1024 + ENDHDR;
+  /** Stored zip entries at least this large are memory-mapped rather than read onto the heap. */
+  private static final int MAP_THRESHOLD = 64 * 1024;
 
   private ZipFile zipFile;
   private ZipEntry zipEntry;
@@ -193,6 +206,9 @@ public class FileMap {
     mDataOffset = offset;
     //mDataPtr = mBasePtr + adjust;
     mDataLength = toIntExact(entry.getSize());
+    if (entry.getMethod() == ZipEntry.STORED && mDataLength >= MAP_THRESHOLD) {
+      mDataBuffer = mapStoredEntry(zipFile, entry, offset);
+    }
 
     //assert(mBasePtr != 0);
 
@@ -202,6 +218,51 @@ public class FileMap {
     return true;
   }
 
+  /**
+   * Maps the data of an uncompressed zip entry, or returns null if it can't be found.
+   *
+   * {@code guessedDataOffset} comes from {@link #guessDataOffsets}, which assumes the extra field
+   * in the entry's local header is the same length as the one in the central directory. That
+   * isn't true of zipaligned APKs, so the local header is read to find the real offset.
+   */
+  private static ByteBuffer mapStoredEntry(ZipFile zipFile, ZipEntry entry, long guessedDataOffset) {
+    byte[] nameBytes = entry.getName().getBytes(UTF_8);
+    if (nameBytes.length != entry.getName().length()) {
+      // the name's length depends on its encoding, which ZipEntry doesn't reveal
+      return null;
+    }
+    byte[] centralExtra = entry.getExtra();
+    long localHeaderOffset =
+        guessedDataOffset
+            - LOCHDR
+            - nameBytes.length
+            - (centralExtra == null ? 0 : centralExtra.length);
+    if (localHeaderOffset < 0) {
+      return null;
+    }
+
+    try (FileChannel channel =
+        FileChannel.open(Paths.get(zipFile.getName()), StandardOpenOption.READ)) {
+      ByteBuffer localHeader = ByteBuffer.allocate(LOCHDR).order(ByteOrder.LITTLE_ENDIAN);
+      channel.read(localHeader, localHeaderOffset);
+      if (localHeader.hasRemaining()
+          || localHeader.getInt(0) != LOCSIG
+          || (localHeader.getShort(26) & 0xffff) != nameBytes.length) {
+        return null;
+      }
+      long dataOffset =
+          localHeaderOffset + LOCHDR + nameBytes.length + (localHeader.getShort(28) & 0xffff);
+      if (dataOffset + entry.getSize() > channel.size()) {
+        return null;
+      }
+      // the mapping stays valid after the channel is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, entry.getSize());
+    } catch (IOException e) {
+      ALOGW("failed to map %s in %s: %s", entry.getName(), zipFile.getName(), e);
+      return null;
+    }
+  }
+
   static ImmutableMap<String, Long> guessDataOffsets(File zipFile, int length) {
     ImmutableMap.Builder<String, Long> result = ImmutableMap.builder();
 
@@ -361,6 +422,10 @@ public class FileMap {
   synchronized byte[] getDataPtr() {
     if (mDataPtr == null) {
       mDataPtr = new byte[mDataLength];
+      if (mDataBuffer != null) {
+        mDataBuffer.duplicate().get(mDataPtr);
+        return mDataPtr;
+      }
 
       InputStream is;
       try {
@@ -381,6 +446,19 @@ public class FileMap {
     return mDataPtr;
   }
 
+  /**
+   * Returns the data, without copying it onto the heap if it's memory-mapped. Each call returns a
+   * new buffer, with its own position, on the same data.
+   *
+   * Non-Android framework method.
+   */
+  synchronized ByteBuffer getDataBuffer() {
+    if (mDataBuffer != null) {
+      return mDataBuffer.duplicate();
+    }
+    return ByteBuffer.wrap(getDataPtr());
+  }
+
   public static void readFully(InputStream is, byte[] bytes) throws IOException {
     int size = bytes.length;
     int remaining = size;
@@ -439,6 +517,7 @@ public class FileMap {
   int      mBaseLength;    // length, measured from "mBasePtr"
   long     mDataOffset;    // offset used when map was created
   byte[]       mDataPtr;       // start of requested data, offset from base
+  ByteBuffer   mDataBuffer;    // mapped data, for large stored zip entries
   int      mDataLength;    // length, measured from "mDataPtr"
   static long mPageSize;
 
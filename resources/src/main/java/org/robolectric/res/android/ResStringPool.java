@@ -14,10 +14,10 @@ import static org.robolectric.res.android.Util.ALOGW;
 import static org.robolectric.res.android.Util.SIZEOF_INT;
 import static org.robolectric.res.android.Util.isTruthy;
 
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Objects;
 import org.robolectric.res.android.ResourceString.Type;
 import org.robolectric.res.android.ResourceTypes.ResChunk_header;
 import org.robolectric.res.android.ResourceTypes.ResStringPool_header;
@@ -51,8 +51,10 @@ public class ResStringPool {
 //    const void*                 mStrings;
     private int                 mStrings;
   //private List<String> mStrings;
-  //private String[] mCache;
   //private char16_t mutable**          mCache;
+  // The strings decoded so far, which are dropped when memory is low. Strings are only decoded
+  // when they're requested, so this grows with the strings that are actually used.
+  private SoftReference<String[]> mCache;
     private int                    mStringPoolSize;    // number of uint16_t
 //    const uint32_t*             mStyles;
     private int             mStyles;
@@ -323,9 +325,34 @@ public class ResStringPool {
   void uninit() {
     setError(NO_INIT);
     mHeader = null;
+    mCache = null;
   }
 
   public String stringAt(int idx) {
+    if (mError != NO_ERROR || idx < 0 || idx >= mHeader.stringCount) {
+      return null;
+    }
+
+    String[] cache = mCache == null ? null : mCache.get();
+    if (cache != null && cache[idx] != null) {
+      return cache[idx];
+    }
+
+    String str = decodeStringAt(idx);
+    if (str != null) {
+      if (cache == null) {
+        if (kDebugStringPoolNoisy) {
+          ALOGI("CREATING STRING CACHE OF %d entries", mHeader.stringCount);
+        }
+        cache = new String[mHeader.stringCount];
+        mCache = new SoftReference<>(cache);
+      }
+      cache[idx] = str;
+    }
+    return str;
+  }
+
+  private String decodeStringAt(int idx) {
     if (mError == NO_ERROR && idx < mHeader.stringCount) {
         final boolean isUTF8 = (mHeader.flags&ResStringPool_header.UTF8_FLAG) != 0;
 //        const uint32_t off = mEntries[idx]/(isUTF8?sizeof(uint8_t):sizeof(uint16_t));
@@ -443,6 +470,18 @@ public class ResStringPool {
     return null;
   }
 
+  // Non-Android framework method.
+  private boolean encodedStringEquals(int idx, byte[] encoded) {
+    final boolean isUTF8 = (mHeader.flags&ResStringPool_header.UTF8_FLAG) != 0;
+    final int off = mEntries.get(idx) / (isUTF8 ? 1 : 2);
+    if (off >= (mStringPoolSize-1)) {
+      return false;
+    }
+    return ResourceString.encodedEquals(mHeader.myBuf(),
+        mHeader.myOffset() + mStrings + off * (isUTF8 ? 1 : 2),
+        isUTF8 ? Type.UTF8 : Type.UTF16, encoded);
+  }
+
   String stringAt(int idx, Ref<Integer> outLen) {
     String s = stringAt(idx);
     if (s != null && outLen != null) {
@@ -519,12 +558,15 @@ public class ResStringPool {
       // most often this happens because we want to get IDs for style
       // span tags; since those always appear at the end of the string
       // block, start searching at the back.
-      for (int i = mHeader.stringCount; i>=0; i--) {
-        String s = stringAt(i);
+      // Robolectric-custom: compare the encoded strings, rather than decoding every string in the
+      // block.
+      final boolean isUTF8 = (mHeader.flags&ResStringPool_header.UTF8_FLAG) != 0;
+      final byte[] encoded = str.getBytes((isUTF8 ? Type.UTF8 : Type.UTF16).charset());
+      for (int i = mHeader.stringCount - 1; i>=0; i--) {
         if (kDebugStringPoolNoisy) {
-          ALOGI("Looking at %s, i=%d\n", s, i);
+          ALOGI("Looking at %s, i=%d\n", stringAt(i), i);
         }
-        if (Objects.equals(s, str)) {
+        if (encodedStringEquals(i, encoded)) {
           if (kDebugStringPoolNoisy) {
             ALOGI("MATCH!");
           }
@@ -668,6 +668,14 @@ public class ResTable_config {
     this.unknown = other.unknown;
   }
 
+  /** Non-Android framework method: returns a copy which shares no arrays with this config. */
+  public ResTable_config deepCopy() {
+    return new ResTable_config(size, mcc, mnc, language.clone(), country.clone(), orientation,
+        touchscreen, density, keyboard, navigation, inputFlags, screenWidth, screenHeight,
+        sdkVersion, minorVersion, screenLayout, uiMode, smallestScreenWidthDp, screenWidthDp,
+        screenHeightDp, localeScript.clone(), localeVariant.clone(), screenLayout2, colorMode,
+        screenConfigPad2, unknown == null ? null : unknown.clone());
+  }
 
   public ResTable_config(int size, int mcc, int mnc, byte[] language, byte[] country,
       int orientation, int touchscreen, int density, int keyboard, int navigation, int inputFlags,
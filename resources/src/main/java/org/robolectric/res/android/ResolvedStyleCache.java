@@ -0,0 +1,141 @@
+package org.robolectric.res.android;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.robolectric.util.PerfStatsCollector;
+
+/**
+ * Remembers the values a theme resolved for style attributes that weren't set in a view's XML, so
+ * that inflating many views with the same styles doesn't resolve them all again. The values for
+ * the most recently used {@link #MAX_SIZE} combinations of styles and attributes are kept.
+ *
+ * <p>The cache must be cleared whenever its theme changes, and is cleared automatically whenever
+ * the generation of its asset manager's caches changes.
+ */
+class ResolvedStyleCache {
+
+  static final int MAX_SIZE = 64;
+
+  private final Map<Key, ResolvedStyle> resolvedStyles =
+      new LinkedHashMap<Key, ResolvedStyle>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, ResolvedStyle> eldest) {
+          return size() > MAX_SIZE;
+        }
+      };
+  private int generation;
+
+  /**
+   * Returns the values resolved so far for {@code attrs} with the given default style and XML
+   * style, creating an empty set of values if there are none.
+   *
+   * @param generation the generation of the asset manager's caches
+   * @param entrySize the number of values for each attribute
+   */
+  ResolvedStyle get(
+      int generation,
+      int defStyleRes,
+      int defStyleFlags,
+      int styleRes,
+      int styleFlags,
+      int[] attrs,
+      int attrsLength,
+      int entrySize) {
+    if (generation != this.generation) {
+      resolvedStyles.clear();
+      this.generation = generation;
+    }
+
+    Key key =
+        new Key(
+            defStyleRes, defStyleFlags, styleRes, styleFlags, Arrays.copyOf(attrs, attrsLength));
+    ResolvedStyle resolvedStyle = resolvedStyles.get(key);
+    if (resolvedStyle != null) {
+      PerfStatsCollector.getInstance().incrementCount("resolved style cache hit");
+    } else {
+      PerfStatsCollector.getInstance().incrementCount("resolved style cache miss");
+      resolvedStyle = new ResolvedStyle(attrsLength, entrySize);
+      resolvedStyles.put(key, resolvedStyle);
+    }
+    return resolvedStyle;
+  }
+
+  void clear() {
+    resolvedStyles.clear();
+  }
+
+  /** The values resolved for each of a list of attributes. */
+  static class ResolvedStyle {
+    private final int entrySize;
+    private final int[] values;
+    private final boolean[] resolved;
+
+    ResolvedStyle(int attrsLength, int entrySize) {
+      this.entrySize = entrySize;
+      this.values = new int[attrsLength * entrySize];
+      this.resolved = new boolean[attrsLength];
+    }
+
+    /**
+     * Copies the values resolved for the attribute at {@code index} to {@code outValues}, if it
+     * has been resolved.
+     *
+     * @return true if the attribute has been resolved
+     */
+    boolean get(int index, int[] outValues) {
+      if (!resolved[index]) {
+        return false;
+      }
+      System.arraycopy(values, index * entrySize, outValues, index * entrySize, entrySize);
+      return true;
+    }
+
+    /** Remembers the values resolved for the attribute at {@code index}. */
+    void put(int index, int[] resolvedValues) {
+      System.arraycopy(resolvedValues, index * entrySize, values, index * entrySize, entrySize);
+      resolved[index] = true;
+    }
+  }
+
+  private static class Key {
+    private final int defStyleRes;
+    private final int defStyleFlags;
+    private final int styleRes;
+    private final int styleFlags;
+    private final int[] attrs;
+    private final int hashCode;
+
+    Key(int defStyleRes, int defStyleFlags, int styleRes, int styleFlags, int[] attrs) {
+      this.defStyleRes = defStyleRes;
+      this.defStyleFlags = defStyleFlags;
+      this.styleRes = styleRes;
+      this.styleFlags = styleFlags;
+      this.attrs = attrs;
+      this.hashCode =
+          31 * (31 * (31 * (31 * defStyleRes + defStyleFlags) + styleRes) + styleFlags)
+              + Arrays.hashCode(attrs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return defStyleRes == key.defStyleRes
+          && defStyleFlags == key.defStyleFlags
+          && styleRes == key.styleRes
+          && styleFlags == key.styleFlags
+          && Arrays.equals(attrs, key.attrs);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
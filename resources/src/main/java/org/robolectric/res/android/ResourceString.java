@@ -23,6 +23,7 @@ import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import com.google.common.primitives.UnsignedBytes;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
@@ -76,7 +77,45 @@ public final class ResourceString {
     } else {
       length = characterCount * 2;
     }
-    return new String(buffer.array(), offset, length, type.charset());
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + offset, length, type.charset());
+    }
+    // e.g. a memory-mapped resources.arsc
+    byte[] bytes = new byte[length];
+    ByteBuffer data = buffer.duplicate();
+    ((Buffer) data).position(offset);
+    data.get(bytes);
+    return new String(bytes, type.charset());
+  }
+
+  /**
+   * Returns whether the string at {@code offset} in {@code buffer} is encoded as {@code bytes}, by
+   * comparing the encoded data rather than decoding it.
+   *
+   * @param buffer The buffer containing the string to compare.
+   * @param offset Offset into the buffer where the string resides, as for {@link #decodeString}.
+   * @param type The encoding type that the {@link ResourceString} is encoded in.
+   * @param bytes The string to compare with, encoded in {@code type}'s charset.
+   */
+  public static boolean encodedEquals(ByteBuffer buffer, int offset, Type type, byte[] bytes) {
+    int length;
+    int characterCount = decodeLength(buffer, offset, type);
+    offset += computeLengthOffset(characterCount, type);
+    if (type == Type.UTF8) {
+      length = decodeLength(buffer, offset, type);
+      offset += computeLengthOffset(length, type);
+    } else {
+      length = characterCount * 2;
+    }
+    if (length != bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (buffer.get(offset + i) != bytes[i]) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
@@ -0,0 +1,232 @@
+package org.robolectric.res.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * A compact, immutable representation of a parsed resource XML file, which can be walked like a
+ * DOM without allocating. Nodes are numbered in document order, starting with the document
+ * element at {@link #ROOT}, and their names and attributes are held in flat arrays.
+ *
+ * <p>Comments, CDATA sections, and text that is only whitespace are left out, since pull parsers
+ * skip them anyway.
+ */
+public final class CompiledXml {
+
+  public static final int ROOT = 0;
+  public static final int NO_NODE = -1;
+
+  private final short[] nodeTypes;
+  private final String[] nodeNames;
+  private final String[] namespaces;
+  // Elements have no value; their text content is built on demand from their descendants'.
+  private final String[] nodeValues;
+  private final int[] parents;
+  private final int[] firstChildren;
+  private final int[] nextSiblings;
+
+  // The attributes of node i are at attributeStarts[i] until attributeStarts[i + 1].
+  private final int[] attributeStarts;
+  private final String[] attributeNamespaces;
+  private final String[] attributeLocalNames;
+  private final String[] attributeNodeNames;
+  private final String[] attributeValues;
+
+  private CompiledXml(Builder builder) {
+    int nodeCount = builder.nodeTypes.size();
+    nodeTypes = new short[nodeCount];
+    parents = new int[nodeCount];
+    firstChildren = new int[nodeCount];
+    nextSiblings = new int[nodeCount];
+    attributeStarts = new int[nodeCount + 1];
+    for (int i = 0; i < nodeCount; i++) {
+      nodeTypes[i] = builder.nodeTypes.get(i);
+      parents[i] = builder.parents.get(i);
+      firstChildren[i] = builder.firstChildren.get(i);
+      nextSiblings[i] = builder.nextSiblings.get(i);
+      attributeStarts[i] = builder.attributeStarts.get(i);
+    }
+    attributeStarts[nodeCount] = builder.attributeValues.size();
+    nodeNames = builder.nodeNames.toArray(new String[0]);
+    namespaces = builder.namespaces.toArray(new String[0]);
+    nodeValues = builder.nodeValues.toArray(new String[0]);
+    attributeNamespaces = builder.attributeNamespaces.toArray(new String[0]);
+    attributeLocalNames = builder.attributeLocalNames.toArray(new String[0]);
+    attributeNodeNames = builder.attributeNodeNames.toArray(new String[0]);
+    attributeValues = builder.attributeValues.toArray(new String[0]);
+  }
+
+  /** Compiles the document element of {@code document} and everything in it. */
+  public static CompiledXml compile(Document document) {
+    Builder builder = new Builder();
+    builder.add(document.getDocumentElement(), NO_NODE);
+    return new CompiledXml(builder);
+  }
+
+  /** Returns true if a pull parser skips text nodes with the given value. */
+  public static boolean isWhitespace(String text) {
+    return text != null && text.split("\\s").length == 0;
+  }
+
+  /** Returns the DOM node type of a node, e.g. {@link Node#ELEMENT_NODE}. */
+  public short getNodeType(int node) {
+    return nodeTypes[node];
+  }
+
+  /** Returns the name of a node, as from {@link Node#getNodeName()}. */
+  public String getNodeName(int node) {
+    return nodeNames[node];
+  }
+
+  /** Returns the namespace URI of a node, or null if it has none. */
+  public String getNamespace(int node) {
+    return namespaces[node];
+  }
+
+  /**
+   * Returns the text content of a node, as from {@link Node#getTextContent()}. For an element,
+   * that's the text of its descendants, less the skipped whitespace, comments, and CDATA sections.
+   */
+  public String getTextContent(int node) {
+    String nodeValue = nodeValues[node];
+    if (nodeValue != null) {
+      return nodeValue;
+    }
+    StringBuilder text = new StringBuilder();
+    appendTextContent(node, text);
+    return text.toString();
+  }
+
+  private void appendTextContent(int node, StringBuilder text) {
+    for (int child = firstChildren[node]; child != NO_NODE; child = nextSiblings[child]) {
+      if (nodeValues[child] != null) {
+        text.append(nodeValues[child]);
+      } else {
+        appendTextContent(child, text);
+      }
+    }
+  }
+
+  /** Returns the parent of a node, or {@link #NO_NODE} for the document element. */
+  public int getParent(int node) {
+    return parents[node];
+  }
+
+  /** Returns the first child of a node, or {@link #NO_NODE} if it has no children. */
+  public int getFirstChild(int node) {
+    return firstChildren[node];
+  }
+
+  /** Returns the next sibling of a node, or {@link #NO_NODE} if it's the last child. */
+  public int getNextSibling(int node) {
+    return nextSiblings[node];
+  }
+
+  public int getAttributeCount(int node) {
+    return attributeStarts[node + 1] - attributeStarts[node];
+  }
+
+  /** Returns the namespace URI of an attribute of a node, or null if it has none. */
+  public String getAttributeNamespace(int node, int index) {
+    return attributeNamespaces[attributeStarts[node] + index];
+  }
+
+  /** Returns the local name of an attribute of a node, or its name if it has no local name. */
+  public String getAttributeName(int node, int index) {
+    int attribute = attributeStarts[node] + index;
+    String localName = attributeLocalNames[attribute];
+    return localName == null ? attributeNodeNames[attribute] : localName;
+  }
+
+  public String getAttributeValue(int node, int index) {
+    return attributeValues[attributeStarts[node] + index];
+  }
+
+  /**
+   * Returns the index of the attribute of a node with the given namespace URI and local name, or
+   * -1 if it has no such attribute.
+   */
+  public int indexOfAttribute(int node, String namespace, String localName) {
+    for (int i = attributeStarts[node]; i < attributeStarts[node + 1]; i++) {
+      if (localName.equals(attributeLocalNames[i])
+          && Objects.equals(namespace, attributeNamespaces[i])) {
+        return i - attributeStarts[node];
+      }
+    }
+    return -1;
+  }
+
+  private static class Builder {
+    private final List<Short> nodeTypes = new ArrayList<>();
+    private final List<String> nodeNames = new ArrayList<>();
+    private final List<String> namespaces = new ArrayList<>();
+    private final List<String> nodeValues = new ArrayList<>();
+    private final List<Integer> parents = new ArrayList<>();
+    private final List<Integer> firstChildren = new ArrayList<>();
+    private final List<Integer> nextSiblings = new ArrayList<>();
+    private final List<Integer> attributeStarts = new ArrayList<>();
+    private final List<String> attributeNamespaces = new ArrayList<>();
+    private final List<String> attributeLocalNames = new ArrayList<>();
+    private final List<String> attributeNodeNames = new ArrayList<>();
+    private final List<String> attributeValues = new ArrayList<>();
+
+    /** Adds {@code node} and its descendants, and returns its index. */
+    int add(Node node, int parent) {
+      int index = nodeTypes.size();
+      nodeTypes.add(node.getNodeType());
+      nodeNames.add(intern(node.getNodeName()));
+      namespaces.add(intern(node.getNamespaceURI()));
+      nodeValues.add(node.getNodeValue());
+      parents.add(parent);
+      firstChildren.add(NO_NODE);
+      nextSiblings.add(NO_NODE);
+
+      attributeStarts.add(attributeValues.size());
+      NamedNodeMap attributes = node.getAttributes();
+      if (attributes != null) {
+        for (int i = 0; i < attributes.getLength(); i++) {
+          Node attribute = attributes.item(i);
+          attributeNamespaces.add(intern(attribute.getNamespaceURI()));
+          attributeLocalNames.add(intern(attribute.getLocalName()));
+          attributeNodeNames.add(intern(attribute.getNodeName()));
+          attributeValues.add(attribute.getNodeValue());
+        }
+      }
+
+      int previousChild = NO_NODE;
+      for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if (isSkipped(child)) {
+          continue;
+        }
+        int childIndex = add(child, index);
+        if (previousChild == NO_NODE) {
+          firstChildren.set(index, childIndex);
+        } else {
+          nextSiblings.set(previousChild, childIndex);
+        }
+        previousChild = childIndex;
+      }
+      return index;
+    }
+
+    private static boolean isSkipped(Node node) {
+      switch (node.getNodeType()) {
+        case Node.CDATA_SECTION_NODE:
+        case Node.COMMENT_NODE:
+          return true;
+        case Node.TEXT_NODE:
+          return isWhitespace(node.getNodeValue());
+        default:
+          return false;
+      }
+    }
+
+    private static String intern(String string) {
+      return string == null ? null : string.intern();
+    }
+  }
+}
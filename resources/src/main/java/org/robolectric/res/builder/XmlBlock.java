@@ -14,12 +14,15 @@ import org.xml.sax.SAXException;
 /**
  * An XML block is a parsed representation of a resource XML file. Similar in nature
  * to Android's XmlBlock class.
+ *
+ * The file is held as a {@link CompiledXml} rather than a DOM, so a block can be kept and read by
+ * any number of parsers.
  */
 public class XmlBlock {
 
   private static DocumentBuilder documentBuilder;
 
-  private final Document document;
+  private final CompiledXml compiledXml;
   private final Path path;
   private final String packageName;
 
@@ -50,17 +53,29 @@ public class XmlBlock {
   public static XmlBlock create(Path path, String packageName) {
     Document document = parse(path);
 
-    return document == null ? null : new XmlBlock(document, path, packageName);
+    return document == null
+        ? null
+        : new XmlBlock(CompiledXml.compile(document), path, packageName);
   }
 
-  private XmlBlock(Document document, Path path, String packageName) {
-    this.document = document;
+  private XmlBlock(CompiledXml compiledXml, Path path, String packageName) {
+    this.compiledXml = compiledXml;
     this.path = path;
     this.packageName = packageName;
   }
 
+  /**
+   * Returns a newly parsed DOM of the file.
+   *
+   * @deprecated use {@link #getCompiledXml()} instead, which doesn't parse the file again.
+   */
+  @Deprecated
   public Document getDocument() {
-    return document;
+    return parse(path);
+  }
+
+  public CompiledXml getCompiledXml() {
+    return compiledXml;
   }
 
   public Path getPath() {
@@ -27,6 +27,23 @@ public class QualifiersTest {
     }
   }
 
+  @Test
+  public void parse_shouldReturnConfigsThatCanBeChangedIndependently() throws Exception {
+    Qualifiers first = Qualifiers.parse("en-rUS-land");
+    first.getConfig().orientation = ResTable_config.ORIENTATION_PORT;
+    first.getConfig().language[0] = 'f';
+
+    Qualifiers second = Qualifiers.parse("en-rUS-land");
+    assertThat(second.getConfig()).isNotSameInstanceAs(first.getConfig());
+    assertThat(second.getConfig().toString()).isEqualTo("en-rUS-land");
+  }
+
+  @Test
+  public void parse_shouldApplyVersionForCompatOnlyWhenAsked() throws Exception {
+    assertThat(Qualifiers.parse("sw320dp").getConfig().toString()).isEqualTo("sw320dp-v13");
+    assertThat(Qualifiers.parse("sw320dp", false).getConfig().toString()).isEqualTo("sw320dp");
+  }
+
   private String configFrom(String path) {
     Path xmlFile = Paths.get(path, "whatever.xml");
     Qualifiers qualifiers = Qualifiers.fromParentDir(xmlFile.getParent());
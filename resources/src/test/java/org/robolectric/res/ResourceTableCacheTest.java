@@ -0,0 +1,322 @@
+package org.robolectric.res;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResTable_config;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("NewApi")
+public class ResourceTableCacheTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path resDir;
+
+  @Before
+  public void setUp() throws Exception {
+    resDir = temporaryFolder.newFolder("res").toPath();
+    write(
+        "values/values.xml",
+        "<resources>"
+            + "<string name=\"hello\">Hello</string>"
+            + "<dimen name=\"margin\">4dp</dimen>"
+            + "<string-array name=\"greetings\"><item>hi</item><item>@string/hello</item>"
+            + "</string-array>"
+            + "<array name=\"mixed\"><item>@string/hello</item><item>4dp</item></array>"
+            + "<plurals name=\"things\"><item quantity=\"one\">a thing</item>"
+            + "<item quantity=\"other\">%d things</item></plurals>"
+            + "<attr name=\"size\"><enum name=\"small\" value=\"1\"/><enum name=\"big\" value=\"2\"/>"
+            + "</attr>"
+            + "<style name=\"Theme\"><item name=\"size\">small</item></style>"
+            + "<style name=\"Theme.Big\"><item name=\"size\">big</item></style>"
+            + "</resources>");
+    write("values-land/values.xml", "<resources><string name=\"hello\">Hi</string></resources>");
+    write("layout/main.xml", "<LinearLayout/>");
+    write("drawable/icon.png", "png");
+    write("drawable/frame.9.png", "png");
+    write("raw/data.txt", "data");
+  }
+
+  @Test
+  public void get_shouldBuildTableOnceAndThenReadItBack() throws Exception {
+    ResourceTableCache cache = new ResourceTableCache(cacheDir(), "1.0");
+    AtomicInteger builds = new AtomicInteger();
+
+    PackageResourceTable built =
+        cache.get("key", bases(), () -> {
+          builds.incrementAndGet();
+          return buildTable(resDir);
+        });
+    PackageResourceTable cached =
+        cache.get("key", bases(), () -> {
+          builds.incrementAndGet();
+          return buildTable(resDir);
+        });
+
+    assertThat(builds.get()).isEqualTo(1);
+    assertThat(cached).isNotSameInstanceAs(built);
+    assertThat(describe(cached, resDir)).isEqualTo(describe(built, resDir));
+    assertThat(describe(cached, resDir)).hasSize(12);
+
+    ResName hello = new ResName("pkg:string/hello");
+    assertThat(cached.getResourceId(hello)).isEqualTo(built.getResourceId(hello));
+    ResTable_config land = Qualifiers.parse("land").getConfig();
+    assertThat(cached.getValue(hello, land).getData()).isEqualTo("Hi");
+    assertThat(cached.getValue(hello, new ResTable_config()).getData()).isEqualTo("Hello");
+  }
+
+  @Test
+  public void get_shouldRebuildTableForDifferentKey() throws Exception {
+    ResourceTableCache cache = new ResourceTableCache(cacheDir(), "1.0");
+    AtomicInteger builds = new AtomicInteger();
+
+    cache.get("key", bases(), () -> {
+      builds.incrementAndGet();
+      return buildTable(resDir);
+    });
+    cache.get("other key", bases(), () -> {
+      builds.incrementAndGet();
+      return buildTable(resDir);
+    });
+
+    assertThat(builds.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void get_shouldResolveFilesAgainstGivenResourceBases() throws Exception {
+    ResourceTableCache cache = new ResourceTableCache(cacheDir(), "1.0");
+    PackageResourceTable built = cache.get("key", bases(), () -> buildTable(resDir));
+
+    Path movedResDir = temporaryFolder.getRoot().toPath().resolve("moved-res");
+    Files.move(resDir, movedResDir);
+    PackageResourceTable cached =
+        cache.get("key", Collections.singletonList(movedResDir), () -> {
+          throw new AssertionError("should have been cached");
+        });
+
+    assertThat(describe(cached, movedResDir)).isEqualTo(describe(built, resDir));
+    FileTypedResource layout =
+        (FileTypedResource)
+            cached.getValue(new ResName("pkg:layout/main"), new ResTable_config());
+    assertThat((Object) layout.getPath()).isEqualTo(movedResDir.resolve("layout/main.xml"));
+  }
+
+  @Test
+  public void get_shouldRebuildCorruptTable() throws Exception {
+    ResourceTableCache cache = new ResourceTableCache(cacheDir(), "1.0");
+    cache.get("key", bases(), () -> buildTable(resDir));
+    try (Stream<Path> files = Files.list(cacheDir())) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.write(file, new byte[] {1, 2, 3});
+      }
+    }
+
+    AtomicInteger builds = new AtomicInteger();
+    cache.get("key", bases(), () -> {
+      builds.incrementAndGet();
+      return buildTable(resDir);
+    });
+
+    assertThat(builds.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void get_shouldNotReadTableCachedByAnotherVersion() throws Exception {
+    AtomicInteger builds = new AtomicInteger();
+
+    for (String version : new String[] {"1.0", "2.0"}) {
+      new ResourceTableCache(cacheDir(), version).get("key", bases(), () -> {
+        builds.incrementAndGet();
+        return buildTable(resDir);
+      });
+    }
+
+    assertThat(builds.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void getValuesFile_shouldLoadFileOnceUntilItChanges() throws Exception {
+    ResourceTableCache cache = new ResourceTableCache(cacheDir(), "1.0");
+    Path valuesFile = resDir.resolve("values-land/values.xml");
+    AtomicInteger loads = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      PartialResourceTable partialTable =
+          cache.getValuesFile("pkg", resDir, valuesFile, () -> {
+            loads.incrementAndGet();
+            return loadValuesFile(valuesFile);
+          });
+      assertThat(partialTable.getPendingResources()).hasSize(1);
+    }
+    assertThat(loads.get()).isEqualTo(1);
+
+    write("values-land/values.xml", "<resources><string name=\"hello\">Hey</string></resources>");
+    cache.getValuesFile("pkg", resDir, valuesFile, () -> {
+      loads.incrementAndGet();
+      return loadValuesFile(valuesFile);
+    });
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void getValuesFile_shouldNotReadFileCachedByAnotherVersion() throws Exception {
+    Path valuesFile = resDir.resolve("values-land/values.xml");
+    AtomicInteger loads = new AtomicInteger();
+
+    for (String version : new String[] {"1.0", "2.0"}) {
+      new ResourceTableCache(cacheDir(), version).getValuesFile("pkg", resDir, valuesFile, () -> {
+        loads.incrementAndGet();
+        return loadValuesFile(valuesFile);
+      });
+    }
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void newResourceTable_shouldRebuildTableFromCachedValuesFiles() throws Exception {
+    ResourceTableCache cache = new ResourceTableCache(cacheDir(), "1.0");
+    PackageResourceTable built = buildTable(resDir, cache);
+    PackageResourceTable cached = buildTable(resDir, cache);
+
+    assertThat(describe(cached, resDir)).isEqualTo(describe(built, resDir));
+    assertThat(describe(cached, resDir)).isEqualTo(describe(buildTable(resDir), resDir));
+
+    write("values-land/values.xml", "<resources><string name=\"hello\">Hey</string></resources>");
+    PackageResourceTable rebuilt = buildTable(resDir, cache);
+
+    assertThat(describe(rebuilt, resDir)).isEqualTo(describe(buildTable(resDir), resDir));
+    ResTable_config land = Qualifiers.parse("land").getConfig();
+    assertThat(rebuilt.getValue(new ResName("pkg:string/hello"), land).getData())
+        .isEqualTo("Hey");
+  }
+
+  @Test
+  public void hashJar_shouldChangeWithContents() throws Exception {
+    File jar = temporaryFolder.newFile("a.jar");
+    writeJar(jar, "contents");
+    String hash = ResourceTableCache.hashJar(jar.toPath());
+
+    assertThat(ResourceTableCache.hashJar(jar.toPath())).isEqualTo(hash);
+    writeJar(jar, "other contents");
+    assertThat(ResourceTableCache.hashJar(jar.toPath())).isNotEqualTo(hash);
+  }
+
+  private Path cacheDir() {
+    return temporaryFolder.getRoot().toPath().resolve("cache");
+  }
+
+  private List<Path> bases() {
+    return Collections.singletonList(resDir);
+  }
+
+  private static PackageResourceTable buildTable(Path resDir) {
+    return new ResourceTableFactory()
+        .newResourceTable("pkg", new ResourcePath(null, resDir, null));
+  }
+
+  private static PackageResourceTable buildTable(Path resDir, ResourceTableCache cache) {
+    return new ResourceTableFactory(cache)
+        .newResourceTable("pkg", new ResourcePath(null, resDir, null));
+  }
+
+  private PartialResourceTable loadValuesFile(Path valuesFile) {
+    PartialResourceTable partialTable = new PartialResourceTable("pkg");
+    new StaxDocumentLoader(
+            "pkg",
+            resDir,
+            new NodeHandler()
+                .addHandler(
+                    "resources",
+                    new NodeHandler()
+                        .addHandler(
+                            "string",
+                            new StaxValueLoader(partialTable, "string", ResType.CHAR_SEQUENCE))))
+        .loadResourceXmlFile(
+            new XmlContext("pkg", valuesFile, Qualifiers.fromParentDir(valuesFile.getParent())));
+    return partialTable;
+  }
+
+  private void write(String name, String contents) throws IOException {
+    Path file = resDir.resolve(name);
+    Files.createDirectories(file.getParent());
+    Files.write(file, contents.getBytes(UTF_8));
+  }
+
+  private static void writeJar(File jar, String contents) throws IOException {
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(new JarEntry("file.txt"));
+      out.write(contents.getBytes(UTF_8));
+    }
+  }
+
+  /** Describes every value in the table, with file paths relative to {@code resDir}. */
+  private static Map<String, List<String>> describe(PackageResourceTable table, Path resDir) {
+    Map<String, List<String>> descriptions = new TreeMap<>();
+    table.receive(
+        (resName, values) -> {
+          List<String> valueDescriptions = new ArrayList<>();
+          for (TypedResource value : values) {
+            valueDescriptions.add(describe(value, resDir));
+          }
+          descriptions.put(
+              resName.getFullyQualifiedName() + "=" + table.getResourceId(resName),
+              valueDescriptions);
+        });
+    return descriptions;
+  }
+
+  private static String describe(TypedResource<?> value, Path resDir) {
+    StringBuilder description =
+        new StringBuilder()
+            .append(value.getClass().getSimpleName())
+            .append(' ')
+            .append(value.getResType())
+            .append(' ')
+            .append(value.getXmlContext().getQualifiers())
+            .append(' ')
+            .append(resDir.relativize(value.getXmlContext().getXmlFile()))
+            .append(' ');
+    Object data = value.getData();
+    if (value instanceof FileTypedResource) {
+      description.append(resDir.relativize(((FileTypedResource) value).getPath()));
+      if (value instanceof FileTypedResource.Image) {
+        description.append(" nine-patch=").append(((FileTypedResource.Image) value).isNinePatch());
+      }
+    } else if (data instanceof List) {
+      for (Object item : (List<?>) data) {
+        description
+            .append('[')
+            .append(item instanceof TypedResource ? describe((TypedResource<?>) item, resDir) : item)
+            .append(']');
+      }
+    } else if (data instanceof StyleData) {
+      StyleData styleData = (StyleData) data;
+      description.append(styleData).append(" parent=").append(styleData.getParent());
+      styleData.visit(attributeResource -> description.append(' ').append(attributeResource));
+    } else {
+      description.append(data);
+    }
+    return description.toString();
+  }
+}
@@ -408,6 +408,14 @@ public class ConfigDescriptionTest {
     assertThat(config.sdkVersion).isEqualTo(ConfigDescription.SDK_HONEYCOMB_MR2);
   }
 
+  @Test public void parse_malformedNumericQualifiers() {
+    for (String qualifiers :
+        new String[] {"swdp", "sw3x0dp", "w480", "w480dpi", "h12dpx", "12dpix", "v", "v1a",
+            "mcc31a", "mnc1b", "x320", "480x", "480x3a0"}) {
+      assertThat(ConfigDescription.parse(qualifiers, new ResTable_config())).isFalse();
+    }
+  }
+
   @Test public void parse_multipleQualifiers_outOfOrder() {
     ResTable_config config = new ResTable_config();
     assertThat(ConfigDescription.parse("v7-en-rUS-sw320dp", config)).isFalse();
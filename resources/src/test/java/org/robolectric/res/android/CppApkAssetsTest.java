@@ -0,0 +1,66 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit test for {@link CppApkAssets}. */
+@RunWith(JUnit4.class)
+public final class CppApkAssetsTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void load_shouldShareLoadedArscForSameFile() throws Exception {
+    File apk = temporaryFolder.newFile("app.apk");
+    writeApk(apk, "contents");
+
+    CppApkAssets first = CppApkAssets.Load(apk.getPath(), false);
+    CppApkAssets second = CppApkAssets.Load(apk.getPath(), false);
+
+    assertThat(second).isNotSameInstanceAs(first);
+    assertThat(second.GetLoadedArsc()).isSameInstanceAs(first.GetLoadedArsc());
+    assertThat(second.GetPath()).isEqualTo(first.GetPath());
+  }
+
+  @Test
+  public void load_shouldNotShareLoadedArscForDifferentOptions() throws Exception {
+    File apk = temporaryFolder.newFile("app.apk");
+    writeApk(apk, "contents");
+
+    CppApkAssets app = CppApkAssets.Load(apk.getPath(), false);
+    CppApkAssets system = CppApkAssets.Load(apk.getPath(), true);
+    CppApkAssets sharedLibrary = CppApkAssets.LoadAsSharedLibrary(apk.getPath(), false);
+
+    assertThat(system.GetLoadedArsc()).isNotSameInstanceAs(app.GetLoadedArsc());
+    assertThat(sharedLibrary.GetLoadedArsc()).isNotSameInstanceAs(app.GetLoadedArsc());
+  }
+
+  @Test
+  public void load_shouldReloadChangedFile() throws Exception {
+    File apk = temporaryFolder.newFile("app.apk");
+    writeApk(apk, "contents");
+    CppApkAssets before = CppApkAssets.Load(apk.getPath(), false);
+
+    writeApk(apk, "changed contents");
+    CppApkAssets after = CppApkAssets.Load(apk.getPath(), false);
+
+    assertThat(after.GetLoadedArsc()).isNotSameInstanceAs(before.GetLoadedArsc());
+  }
+
+  private static void writeApk(File apk, String contents) throws IOException {
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(apk))) {
+      zip.putNextEntry(new ZipEntry("assets/file.txt"));
+      zip.write(contents.getBytes(UTF_8));
+    }
+  }
+}
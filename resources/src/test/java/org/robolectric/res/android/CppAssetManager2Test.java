@@ -0,0 +1,259 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.ApkAssetsCookie.kInvalidCookie;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResourceTypes.ResStringPool_header;
+import org.robolectric.res.android.ResourceTypes.ResTable_type;
+import org.robolectric.res.android.ResourceTypes.Res_value;
+
+/** Unit test for the entries {@link CppAssetManager2} caches per configuration. */
+@RunWith(JUnit4.class)
+public final class CppAssetManager2Test {
+  private static final int BY_LANGUAGE = 0x7f010000;
+  private static final int ONLY_FRENCH = 0x7f010001;
+  private static final int BY_DENSITY = 0x7f010002;
+  private static final String[] KEYS = {"by_language", "only_french", "by_density"};
+  private static final int[] TYPE_SPEC_FLAGS = {
+    AConfiguration.ACONFIGURATION_LOCALE, 0, AConfiguration.ACONFIGURATION_DENSITY
+  };
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private CppAssetManager2 assetManager;
+
+  @Before
+  public void setUp() throws Exception {
+    assetManager = new CppAssetManager2();
+    assetManager.SetApkAssets(Collections.singletonList(loadApk(1)), true);
+    assetManager.SetConfiguration(config("mdpi"));
+  }
+
+  @Test
+  public void getResource_afterSetConfiguration_shouldReflectChangedAxis() throws Exception {
+    assertThat(getInt(BY_LANGUAGE)).isEqualTo(1);
+
+    assetManager.SetConfiguration(config("fr-mdpi"));
+    assertThat(getInt(BY_LANGUAGE)).isEqualTo(2);
+
+    assetManager.SetConfiguration(config("mdpi"));
+    assertThat(getInt(BY_LANGUAGE)).isEqualTo(1);
+  }
+
+  @Test
+  public void getResource_forEntryOnlyInQualifiedConfig_shouldNotBeFoundAfterItStopsMatching()
+      throws Exception {
+    assertThat(getInt(ONLY_FRENCH)).isNull();
+
+    assetManager.SetConfiguration(config("fr-mdpi"));
+    assertThat(getInt(ONLY_FRENCH)).isEqualTo(3);
+
+    assetManager.SetConfiguration(config("mdpi"));
+    assertThat(getInt(ONLY_FRENCH)).isNull();
+  }
+
+  @Test
+  public void getResource_withDensityOverride_shouldBypassCachedEntries() throws Exception {
+    assertThat(getInt(BY_DENSITY)).isEqualTo(4);
+    assertThat(getInt(BY_DENSITY, ResTable_config.DENSITY_XHIGH)).isEqualTo(5);
+    assertThat(getInt(BY_DENSITY)).isEqualTo(4);
+  }
+
+  @Test
+  public void setApkAssets_shouldInvalidateCachedEntries() throws Exception {
+    assertThat(getInt(BY_LANGUAGE)).isEqualTo(1);
+
+    assetManager.SetApkAssets(Collections.singletonList(loadApk(10)), true);
+
+    assertThat(getInt(BY_LANGUAGE)).isEqualTo(10);
+  }
+
+  private Integer getInt(int resid) {
+    return getInt(resid, 0);
+  }
+
+  private Integer getInt(int resid, int densityOverride) {
+    Ref<Res_value> value = new Ref<>(null);
+    ApkAssetsCookie cookie =
+        assetManager.GetResource(
+            resid, false, (short) densityOverride, value, new Ref<>(null), new Ref<>(0));
+    return cookie.intValue() == kInvalidCookie ? null : value.get().data;
+  }
+
+  private static ResTable_config config(String qualifiers) {
+    ResTable_config config = new ResTable_config();
+    assertThat(ConfigDescription.parse(qualifiers, config)).isTrue();
+    return config;
+  }
+
+  /**
+   * Loads an APK whose resource table defines three integers, each with the value
+   * {@code base + n} in its nth configuration:
+   *
+   * * `by_language`: in the default configuration and for French.
+   * * `only_french`: only for French.
+   * * `by_density`: in the default configuration and for xhdpi.
+   */
+  private CppApkAssets loadApk(int base) throws IOException {
+    Integer[][] valuesByConfig = {
+      {base, null, base + 3}, // default
+      {base + 1, base + 2, null}, // fr
+      {null, null, base + 4} // xhdpi
+    };
+    ResTable_config[] configs = {new ResTable_config(), config("fr"), config("xhdpi")};
+    byte[] resourceTable = buildResourceTable(configs, valuesByConfig);
+
+    File apk = temporaryFolder.newFile();
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(apk))) {
+      // stored, as aapt does, so it can be read in place
+      ZipEntry entry = new ZipEntry("resources.arsc");
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(resourceTable.length);
+      CRC32 crc = new CRC32();
+      crc.update(resourceTable);
+      entry.setCrc(crc.getValue());
+      zip.putNextEntry(entry);
+      zip.write(resourceTable);
+    }
+    return CppApkAssets.Load(apk.getPath(), false);
+  }
+
+  /** Builds a resource table with a single package, 0x7f, containing a single type, "integer". */
+  private static byte[] buildResourceTable(ResTable_config[] configs, Integer[][] valuesByConfig) {
+    byte[] typeStrings = stringPool("integer");
+    byte[] keyStrings = stringPool(KEYS);
+
+    ByteBuffer typeSpec = newChunk(ResourceTypes.RES_TABLE_TYPE_SPEC_TYPE, 16, KEYS.length * 4);
+    typeSpec.put((byte) 1).put((byte) 0).putShort((short) 0).putInt(KEYS.length);
+    for (int flags : TYPE_SPEC_FLAGS) {
+      typeSpec.putInt(flags);
+    }
+
+    ByteBuffer types = ByteBuffer.allocate(0);
+    for (int i = 0; i < configs.length; i++) {
+      types = concat(types.array(), typeChunk(configs[i], valuesByConfig[i]));
+    }
+
+    int packageHeaderSize = 288;
+    int typeStringsOffset = packageHeaderSize;
+    int keyStringsOffset = typeStringsOffset + typeStrings.length;
+    ByteBuffer pkg =
+        newChunk(
+            ResourceTypes.RES_TABLE_PACKAGE_TYPE,
+            packageHeaderSize,
+            typeStrings.length + keyStrings.length + typeSpec.capacity() + types.capacity());
+    pkg.putInt(0x7f);
+    char[] name = Arrays.copyOf("org.robolectric.test".toCharArray(), 128);
+    for (char c : name) {
+      pkg.putChar(c);
+    }
+    pkg.putInt(typeStringsOffset).putInt(1).putInt(keyStringsOffset).putInt(KEYS.length).putInt(0);
+    pkg.put(typeStrings).put(keyStrings).put(typeSpec.array()).put(types.array());
+
+    byte[] globalStrings = stringPool();
+    ByteBuffer table =
+        newChunk(ResourceTypes.RES_TABLE_TYPE, 12, globalStrings.length + pkg.capacity());
+    table.putInt(1);
+    table.put(globalStrings).put(pkg.array());
+    return table.array();
+  }
+
+  private static byte[] typeChunk(ResTable_config config, Integer[] values) {
+    int headerSize = 20 + 56;
+    int entriesSize = 0;
+    for (Integer value : values) {
+      entriesSize += value == null ? 0 : 16;
+    }
+    ByteBuffer type =
+        newChunk(ResourceTypes.RES_TABLE_TYPE_TYPE, headerSize, values.length * 4 + entriesSize);
+    type.put((byte) 1).put((byte) 0).putShort((short) 0).putInt(values.length);
+    type.putInt(headerSize + values.length * 4);
+
+    // only the fields these tests vary are written
+    type.putInt(56)
+        .putShort((short) config.mcc)
+        .putShort((short) config.mnc)
+        .put(config.language)
+        .put(config.country)
+        .put((byte) config.orientation)
+        .put((byte) config.touchscreen)
+        .putShort((short) config.density);
+    type.position(type.position() + 56 - 16);
+
+    int offset = 0;
+    for (Integer value : values) {
+      type.putInt(value == null ? ResTable_type.NO_ENTRY : offset);
+      offset += value == null ? 0 : 16;
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        type.putShort((short) 8).putShort((short) 0).putInt(i);
+        type.putShort((short) 8).put((byte) 0).put((byte) Res_value.TYPE_INT_DEC).putInt(values[i]);
+      }
+    }
+    return type.array();
+  }
+
+  /** Returns a UTF-8 string pool containing {@code strings}, each shorter than 128 bytes. */
+  private static byte[] stringPool(String... strings) {
+    ByteBuffer data = ByteBuffer.allocate(0);
+    int[] offsets = new int[strings.length];
+    for (int i = 0; i < strings.length; i++) {
+      offsets[i] = data.capacity();
+      byte[] bytes = strings[i].getBytes(StandardCharsets.UTF_8);
+      byte[] string = new byte[bytes.length + 3];
+      string[0] = (byte) strings[i].length();
+      string[1] = (byte) bytes.length;
+      System.arraycopy(bytes, 0, string, 2, bytes.length);
+      data = concat(data.array(), string);
+    }
+    int stringsStart = 28 + strings.length * 4;
+    int padding = (4 - (stringsStart + data.capacity()) % 4) % 4;
+
+    ByteBuffer pool =
+        newChunk(
+            ResourceTypes.RES_STRING_POOL_TYPE,
+            28,
+            strings.length * 4 + data.capacity() + padding);
+    pool.putInt(strings.length)
+        .putInt(0)
+        .putInt(ResStringPool_header.UTF8_FLAG)
+        .putInt(strings.length == 0 ? 0 : stringsStart)
+        .putInt(0);
+    for (int offset : offsets) {
+      pool.putInt(offset);
+    }
+    pool.put(data.array());
+    return pool.array();
+  }
+
+  private static ByteBuffer newChunk(int type, int headerSize, int bodySize) {
+    ByteBuffer chunk =
+        ByteBuffer.allocate(headerSize + bodySize).order(ByteOrder.LITTLE_ENDIAN);
+    chunk.putShort((short) type).putShort((short) headerSize).putInt(headerSize + bodySize);
+    return chunk;
+  }
+
+  private static ByteBuffer concat(byte[] a, byte[] b) {
+    byte[] result = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, result, a.length, b.length);
+    return ByteBuffer.wrap(result);
+  }
+}
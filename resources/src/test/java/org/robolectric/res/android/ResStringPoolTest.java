@@ -0,0 +1,58 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.res.android.Errors.NAME_NOT_FOUND;
+import static org.robolectric.res.android.Errors.NO_ERROR;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResourceTypes.ResStringPool_header;
+
+/** Unit test for {@link ResStringPool}. */
+@RunWith(JUnit4.class)
+public final class ResStringPoolTest {
+  private final ResStringPool pool = new ResStringPool();
+
+  @Before
+  public void setUp() {
+    ResStringPool_header.Writer writer = new ResStringPool_header.Writer();
+    writer.string("hello");
+    writer.string("wörld");
+    writer.string("hello world");
+    writer.string("");
+    ByteBuffer buf = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    writer.write(buf);
+
+    assertThat(pool.setTo(buf, 0, buf.position(), false)).isEqualTo(NO_ERROR);
+  }
+
+  @Test
+  public void stringAt_shouldDecodeStrings() {
+    assertThat(pool.size()).isEqualTo(4);
+    assertThat(pool.stringAt(0)).isEqualTo("hello");
+    assertThat(pool.stringAt(1)).isEqualTo("wörld");
+    assertThat(pool.stringAt(2)).isEqualTo("hello world");
+    assertThat(pool.stringAt(3)).isEmpty();
+    assertThat(pool.stringAt(4)).isNull();
+    assertThat(pool.stringAt(-1)).isNull();
+  }
+
+  @Test
+  public void stringAt_shouldReuseDecodedStrings() {
+    assertThat(pool.stringAt(1)).isSameInstanceAs(pool.stringAt(1));
+  }
+
+  @Test
+  public void indexOfString_shouldFindStringsWithoutDecodingThem() {
+    assertThat(pool.indexOfString("hello")).isEqualTo(0);
+    assertThat(pool.indexOfString("wörld")).isEqualTo(1);
+    assertThat(pool.indexOfString("hello world")).isEqualTo(2);
+    assertThat(pool.indexOfString("")).isEqualTo(3);
+    assertThat(pool.indexOfString("hell")).isEqualTo(NAME_NOT_FOUND);
+    assertThat(pool.indexOfString("world")).isEqualTo(NAME_NOT_FOUND);
+  }
+}
@@ -0,0 +1,82 @@
+package org.robolectric.res.android;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.res.android.ResolvedStyleCache.ResolvedStyle;
+
+/** Unit test for {@link ResolvedStyleCache}. */
+@RunWith(JUnit4.class)
+public final class ResolvedStyleCacheTest {
+  private static final int[] ATTRS = {0x01010000, 0x01010001, 0x01010002};
+  private static final int ENTRY_SIZE = 2;
+
+  private final ResolvedStyleCache cache = new ResolvedStyleCache();
+
+  @Test
+  public void get_shouldReturnValuesResolvedForSameStylesAndAttrs() {
+    ResolvedStyle resolvedStyle = cache.get(0, 1, 2, 3, 4, ATTRS, ATTRS.length, ENTRY_SIZE);
+    resolvedStyle.put(1, new int[] {0, 0, 5, 6, 0, 0});
+
+    int[] outValues = new int[ATTRS.length * ENTRY_SIZE];
+    ResolvedStyle cached = cache.get(0, 1, 2, 3, 4, ATTRS.clone(), ATTRS.length, ENTRY_SIZE);
+    assertThat(cached.get(0, outValues)).isFalse();
+    assertThat(cached.get(1, outValues)).isTrue();
+    assertThat(cached.get(2, outValues)).isFalse();
+    assertThat(outValues).asList().containsExactly(0, 0, 5, 6, 0, 0).inOrder();
+  }
+
+  @Test
+  public void get_shouldNotReturnValuesResolvedForDifferentStylesOrAttrs() {
+    cache.get(0, 1, 2, 3, 4, ATTRS, ATTRS.length, ENTRY_SIZE).put(0, new int[] {5, 6, 0, 0, 0, 0});
+
+    int[] outValues = new int[ATTRS.length * ENTRY_SIZE];
+    assertThat(cache.get(0, 9, 2, 3, 4, ATTRS, ATTRS.length, ENTRY_SIZE).get(0, outValues))
+        .isFalse();
+    assertThat(cache.get(0, 1, 9, 3, 4, ATTRS, ATTRS.length, ENTRY_SIZE).get(0, outValues))
+        .isFalse();
+    assertThat(cache.get(0, 1, 2, 9, 4, ATTRS, ATTRS.length, ENTRY_SIZE).get(0, outValues))
+        .isFalse();
+    assertThat(cache.get(0, 1, 2, 3, 9, ATTRS, ATTRS.length, ENTRY_SIZE).get(0, outValues))
+        .isFalse();
+    assertThat(cache.get(0, 1, 2, 3, 4, new int[] {0x01010009}, 1, ENTRY_SIZE).get(0, outValues))
+        .isFalse();
+  }
+
+  @Test
+  public void get_shouldForgetValuesWhenGenerationChanges() {
+    cache.get(0, 1, 2, 3, 4, ATTRS, ATTRS.length, ENTRY_SIZE).put(0, new int[] {5, 6, 0, 0, 0, 0});
+
+    int[] outValues = new int[ATTRS.length * ENTRY_SIZE];
+    assertThat(cache.get(1, 1, 2, 3, 4, ATTRS, ATTRS.length, ENTRY_SIZE).get(0, outValues))
+        .isFalse();
+  }
+
+  @Test
+  public void clear_shouldForgetValues() {
+    cache.get(0, 1, 2, 3, 4, ATTRS, ATTRS.length, ENTRY_SIZE).put(0, new int[] {5, 6, 0, 0, 0, 0});
+    cache.clear();
+
+    int[] outValues = new int[ATTRS.length * ENTRY_SIZE];
+    assertThat(cache.get(0, 1, 2, 3, 4, ATTRS, ATTRS.length, ENTRY_SIZE).get(0, outValues))
+        .isFalse();
+  }
+
+  @Test
+  public void get_shouldForgetLeastRecentlyUsedValues() {
+    cache.get(0, 0, 0, 0, 0, ATTRS, ATTRS.length, ENTRY_SIZE).put(0, new int[] {5, 6, 0, 0, 0, 0});
+    cache.get(0, 1, 0, 0, 0, ATTRS, ATTRS.length, ENTRY_SIZE).put(0, new int[] {5, 6, 0, 0, 0, 0});
+    for (int i = 2; i <= ResolvedStyleCache.MAX_SIZE; i++) {
+      cache.get(0, 0, 0, 0, 0, ATTRS, ATTRS.length, ENTRY_SIZE);
+      cache.get(0, i, 0, 0, 0, ATTRS, ATTRS.length, ENTRY_SIZE);
+    }
+
+    int[] outValues = new int[ATTRS.length * ENTRY_SIZE];
+    assertThat(cache.get(0, 0, 0, 0, 0, ATTRS, ATTRS.length, ENTRY_SIZE).get(0, outValues))
+        .isTrue();
+    assertThat(cache.get(0, 1, 0, 0, 0, ATTRS, ATTRS.length, ENTRY_SIZE).get(0, outValues))
+        .isFalse();
+  }
+}
@@ -6,6 +6,10 @@ import com.google.common.io.ByteStreams;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -63,4 +67,39 @@ public final class ZipFileROTest {
     ZipFileRO zipFile = ZipFileRO.open(blob.toString());
     assertThat(zipFile).isNotNull();
   }
+
+  @Test
+  public void createEntryFileMap_mapsLargeStoredEntries() throws Exception {
+    byte[] contents = new byte[100 * 1024];
+    new Random(0).nextBytes(contents);
+    File blob = File.createTempFile("prefix", "zip");
+    try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(blob))) {
+      zip.putNextEntry(new ZipEntry("deflated"));
+      zip.write(contents);
+      ZipEntry storedEntry = new ZipEntry("stored");
+      storedEntry.setMethod(ZipEntry.STORED);
+      storedEntry.setSize(contents.length);
+      CRC32 crc = new CRC32();
+      crc.update(contents);
+      storedEntry.setCrc(crc.getValue());
+      storedEntry.setExtra(new byte[] {(byte) 0xca, (byte) 0xfe, 0, 0});
+      zip.putNextEntry(storedEntry);
+      zip.write(contents);
+    }
+
+    ZipFileRO zipFile = ZipFileRO.open(blob.toString());
+    FileMap storedMap = zipFile.createEntryFileMap(zipFile.findEntryByName("stored"));
+    FileMap deflatedMap = zipFile.createEntryFileMap(zipFile.findEntryByName("deflated"));
+
+    assertThat(storedMap.getDataBuffer().isDirect()).isTrue();
+    assertThat(storedMap.getDataBuffer()).isEqualTo(ByteBuffer.wrap(contents));
+    assertThat(deflatedMap.getDataBuffer().isDirect()).isFalse();
+
+    Asset asset = Asset.createFromUncompressedMap(storedMap, Asset.AccessMode.ACCESS_BUFFER);
+    assertThat(asset.getByteBuffer(true).isDirect()).isTrue();
+    byte[] read = new byte[contents.length];
+    assertThat(asset.read(read, 0, read.length)).isEqualTo(contents.length);
+    assertThat(read).isEqualTo(contents);
+    assertThat(asset.getBuffer(true)).isEqualTo(contents);
+  }
 }
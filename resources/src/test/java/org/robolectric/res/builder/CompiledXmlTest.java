@@ -0,0 +1,87 @@
+package org.robolectric.res.builder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.w3c.dom.Node;
+
+/** Unit test for {@link CompiledXml}. */
+@RunWith(JUnit4.class)
+public final class CompiledXmlTest {
+  private static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+
+  private CompiledXml xml;
+
+  @Before
+  public void setUp() throws Exception {
+    String source =
+        "<LinearLayout xmlns:android=\"" + ANDROID_NS + "\" android:id=\"@+id/root\">\n"
+            + "  <!-- a comment -->\n"
+            + "  <TextView android:text=\" hello \" style=\"@style/Text\"/>\n"
+            + "  <Button>click</Button>\n"
+            + "</LinearLayout>\n";
+    xml = compile(source);
+  }
+
+  @Test
+  public void compile_shouldSkipWhitespaceAndComments() {
+    int textView = xml.getFirstChild(CompiledXml.ROOT);
+    int button = xml.getNextSibling(textView);
+    int text = xml.getFirstChild(button);
+
+    assertThat(xml.getNodeName(CompiledXml.ROOT)).isEqualTo("LinearLayout");
+    assertThat(xml.getParent(CompiledXml.ROOT)).isEqualTo(CompiledXml.NO_NODE);
+    assertThat(xml.getNodeName(textView)).isEqualTo("TextView");
+    assertThat(xml.getFirstChild(textView)).isEqualTo(CompiledXml.NO_NODE);
+    assertThat(xml.getNodeName(button)).isEqualTo("Button");
+    assertThat(xml.getNextSibling(button)).isEqualTo(CompiledXml.NO_NODE);
+    assertThat(xml.getParent(button)).isEqualTo(CompiledXml.ROOT);
+    assertThat(xml.getNodeType(text)).isEqualTo(Node.TEXT_NODE);
+    assertThat(xml.getTextContent(text)).isEqualTo("click");
+  }
+
+  @Test
+  public void compile_shouldKeepAttributes() {
+    int textView = xml.getFirstChild(CompiledXml.ROOT);
+
+    assertThat(xml.getAttributeCount(textView)).isEqualTo(2);
+    int text = xml.indexOfAttribute(textView, ANDROID_NS, "text");
+    assertThat(xml.getAttributeNamespace(textView, text)).isEqualTo(ANDROID_NS);
+    assertThat(xml.getAttributeName(textView, text)).isEqualTo("text");
+    assertThat(xml.getAttributeValue(textView, text)).isEqualTo(" hello ");
+    int style = xml.indexOfAttribute(textView, null, "style");
+    assertThat(xml.getAttributeValue(textView, style)).isEqualTo("@style/Text");
+    assertThat(xml.indexOfAttribute(textView, null, "text")).isEqualTo(-1);
+    assertThat(xml.indexOfAttribute(textView, ANDROID_NS, "id")).isEqualTo(-1);
+  }
+
+  @Test
+  public void getTextContent_ofElement_shouldJoinTextOfDescendants() throws Exception {
+    CompiledXml xml = compile("<string>Hello, <b>big <i>wide</i></b> world</string>");
+
+    assertThat(xml.getTextContent(CompiledXml.ROOT)).isEqualTo("Hello, big wide world");
+    int bold = xml.getNextSibling(xml.getFirstChild(CompiledXml.ROOT));
+    assertThat(xml.getTextContent(bold)).isEqualTo("big wide");
+    assertThat(compile("<string/>").getTextContent(CompiledXml.ROOT)).isEmpty();
+  }
+
+  @Test
+  public void isWhitespace() {
+    assertThat(CompiledXml.isWhitespace(" \n\t")).isTrue();
+    assertThat(CompiledXml.isWhitespace(" a ")).isFalse();
+    assertThat(CompiledXml.isWhitespace(null)).isFalse();
+  }
+
+  private static CompiledXml compile(String source) throws Exception {
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    return CompiledXml.compile(
+        factory.newDocumentBuilder().parse(new ByteArrayInputStream(source.getBytes(UTF_8))));
+  }
+}
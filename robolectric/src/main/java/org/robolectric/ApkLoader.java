@@ -7,6 +7,7 @@ import org.robolectric.manifest.AndroidManifest;
 import org.robolectric.res.PackageResourceTable;
 import org.robolectric.res.ResourceMerger;
 import org.robolectric.res.ResourcePath;
+import org.robolectric.res.ResourceTableCache;
 import org.robolectric.res.ResourceTableFactory;
 
 /**
@@ -20,7 +21,9 @@ public class ApkLoader {
   synchronized public PackageResourceTable getAppResourceTable(final AndroidManifest appManifest) {
     PackageResourceTable resourceTable = appResourceTableCache.get(appManifest);
     if (resourceTable == null) {
-      resourceTable = new ResourceMerger().buildResourceTable(appManifest);
+      resourceTable =
+          new ResourceMerger()
+              .buildResourceTable(appManifest, ResourceTableCache.fromSystemProperties());
 
       appResourceTableCache.put(appManifest, resourceTable);
     }
@@ -12,9 +12,11 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import javax.annotation.Priority;
@@ -36,6 +38,7 @@ import org.robolectric.internal.ManifestIdentifier;
 import org.robolectric.internal.MavenManifestFactory;
 import org.robolectric.internal.ResourcesMode;
 import org.robolectric.internal.SandboxManager;
+import org.robolectric.internal.SandboxManager.SandboxKey;
 import org.robolectric.internal.SandboxTestRunner;
 import org.robolectric.internal.TestEnvironment;
 import org.robolectric.internal.bytecode.ClassHandler;
@@ -53,6 +56,7 @@ import org.robolectric.pluginapi.config.ConfigurationStrategy;
 import org.robolectric.pluginapi.config.ConfigurationStrategy.Configuration;
 import org.robolectric.pluginapi.config.GlobalConfigProvider;
 import org.robolectric.plugins.HierarchicalConfigurationStrategy.ConfigurationImpl;
+import org.robolectric.util.Logger;
 import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.util.inject.Injector;
@@ -86,6 +90,11 @@ public class RobolectricTestRunner extends SandboxTestRunner {
   private boolean alwaysIncludeVariantMarkersInName =
       Boolean.parseBoolean(
           System.getProperty("robolectric.alwaysIncludeVariantMarkersInTestName", "false"));
+  private boolean groupTestsBySandbox =
+      Boolean.parseBoolean(System.getProperty("robolectric.groupTestsBySandbox", "false"));
+  private boolean warmUpSandboxes =
+      Boolean.parseBoolean(System.getProperty("robolectric.warmUpSandboxes", "false"));
+  private volatile List<FrameworkMethod> children;
 
   /**
    * Creates a runner to run {@code testClass}. Use the {@link Config} annotation to configure.
@@ -245,9 +254,47 @@ public class RobolectricTestRunner extends SandboxTestRunner {
             ": " + e.getMessage(), e);
       }
     }
+    if (groupTestsBySandbox) {
+      children = groupBySandbox(children);
+    }
+    this.children = children;
     return children;
   }
 
+  /**
+   * Reorders tests so that those which run in the same sandbox are adjacent, preserving their
+   * relative order otherwise. Enabled by the `robolectric.groupTestsBySandbox` system property.
+   */
+  @VisibleForTesting
+  List<FrameworkMethod> groupBySandbox(List<FrameworkMethod> children) {
+    Map<SandboxKey, List<FrameworkMethod>> childrenBySandbox = new LinkedHashMap<>();
+    int sandboxSwitches = 0;
+    SandboxKey previousKey = null;
+    for (FrameworkMethod child : children) {
+      SandboxKey key = getSandboxKey((RobolectricFrameworkMethod) child);
+      childrenBySandbox.computeIfAbsent(key, k -> new ArrayList<>()).add(child);
+      if (previousKey != null && !previousKey.equals(key)) {
+        sandboxSwitches++;
+      }
+      previousKey = key;
+    }
+
+    List<FrameworkMethod> grouped = new ArrayList<>(children.size());
+    childrenBySandbox.values().forEach(grouped::addAll);
+
+    // every switch to a sandbox which has since been evicted requires creating it again
+    int sandboxSwitchesSaved = sandboxSwitches - Math.max(0, childrenBySandbox.size() - 1);
+    if (sandboxSwitchesSaved > 0) {
+      Logger.info(
+          "%s: grouped %d tests into %d sandboxes, saving up to %d sandbox creations",
+          getTestClass().getName(),
+          children.size(),
+          childrenBySandbox.size(),
+          sandboxSwitchesSaved);
+    }
+    return grouped;
+  }
+
   @Override
   @Nonnull
   protected AndroidSandbox getSandbox(FrameworkMethod method) {
@@ -260,11 +307,66 @@ public class RobolectricTestRunner extends SandboxTestRunner {
     if (resourcesMode == ResourcesMode.LEGACY && sdk.getApiLevel() > Build.VERSION_CODES.P) {
       throw new AssumptionViolatedException("Robolectric doesn't support legacy mode after P");
     }
-    LooperMode.Mode looperMode = roboMethod.configuration == null ? Mode.LEGACY
-        : roboMethod.configuration.get(LooperMode.Mode.class);
+    LooperMode.Mode looperMode = getLooperMode(roboMethod);
 
     sdk.verifySupportedSdk(method.getDeclaringClass().getName());
-    return sandboxManager.getAndroidSandbox(classLoaderConfig, sdk, resourcesMode, looperMode);
+    if (warmUpSandboxes) {
+      warmUpNextSandbox(roboMethod);
+    }
+    return sandboxManager.acquireAndroidSandbox(classLoaderConfig, sdk, resourcesMode, looperMode);
+  }
+
+  /**
+   * Starts preparing the sandbox for the first test after {@code method} which needs a different
+   * one, so it's ready by the time that test runs. Enabled by the `robolectric.warmUpSandboxes`
+   * system property.
+   */
+  private void warmUpNextSandbox(RobolectricFrameworkMethod method) {
+    List<FrameworkMethod> children = this.children;
+    int index = children == null ? -1 : children.indexOf(method);
+    if (index == -1) {
+      return;
+    }
+
+    SandboxKey key = getSandboxKey(method);
+    for (FrameworkMethod child : children.subList(index + 1, children.size())) {
+      RobolectricFrameworkMethod nextMethod = (RobolectricFrameworkMethod) child;
+      if (getSandboxKey(nextMethod).equals(key)) {
+        continue;
+      }
+
+      Sdk sdk = nextMethod.getSdk();
+      ResourcesMode resourcesMode = nextMethod.getResourcesMode();
+      if (sdk.isSupported()
+          && !(resourcesMode == ResourcesMode.LEGACY
+              && sdk.getApiLevel() > Build.VERSION_CODES.P)) {
+        sandboxManager.warmUpAndroidSandbox(
+            createClassLoaderConfig(nextMethod),
+            sdk,
+            resourcesMode,
+            getLooperMode(nextMethod),
+            sandbox -> configureSandbox(sandbox, nextMethod));
+      }
+      return;
+    }
+  }
+
+  @Override
+  protected void releaseSandbox(Sandbox sandbox) {
+    sandboxManager.releaseAndroidSandbox((AndroidSandbox) sandbox);
+  }
+
+  private SandboxKey getSandboxKey(RobolectricFrameworkMethod roboMethod) {
+    return new SandboxKey(
+        createClassLoaderConfig(roboMethod),
+        roboMethod.getSdk(),
+        roboMethod.getResourcesMode(),
+        getLooperMode(roboMethod));
+  }
+
+  private static LooperMode.Mode getLooperMode(RobolectricFrameworkMethod roboMethod) {
+    return roboMethod.configuration == null ? Mode.LEGACY
+        : roboMethod.configuration.get(LooperMode.Mode.class);
   }
 
   @Override
@@ -559,7 +661,7 @@ public class RobolectricTestRunner extends SandboxTestRunner {
   public static class RobolectricFrameworkMethod extends FrameworkMethod {
 
     private static final AtomicInteger NEXT_ID = new AtomicInteger();
-    private static final Map<Integer, TestExecutionContext> CONTEXT = new HashMap<>();
+    private static final Map<Integer, TestExecutionContext> CONTEXT = new ConcurrentHashMap<>();
     
     private final int id;
 
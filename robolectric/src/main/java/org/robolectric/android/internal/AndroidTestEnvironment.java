@@ -33,6 +33,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.Security;
 import java.util.Locale;
+import java.util.function.Predicate;
 import javax.annotation.Nonnull;
 import javax.inject.Named;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -46,6 +47,7 @@ import org.robolectric.config.ConfigurationRegistry;
 import org.robolectric.internal.ResourcesMode;
 import org.robolectric.internal.ShadowProvider;
 import org.robolectric.internal.TestEnvironment;
+import org.robolectric.internal.bytecode.SandboxClassLoader;
 import org.robolectric.manifest.AndroidManifest;
 import org.robolectric.manifest.BroadcastReceiverData;
 import org.robolectric.manifest.RoboNotFoundException;
@@ -56,6 +58,7 @@ import org.robolectric.res.Fs;
 import org.robolectric.res.PackageResourceTable;
 import org.robolectric.res.ResourcePath;
 import org.robolectric.res.ResourceTable;
+import org.robolectric.res.ResourceTableCache;
 import org.robolectric.res.ResourceTableFactory;
 import org.robolectric.res.RoutingResourceTable;
 import org.robolectric.shadow.api.Shadow;
@@ -94,6 +97,8 @@ public class AndroidTestEnvironment implements TestEnvironment {
   private PackageResourceTable systemResourceTable;
   private final ShadowProvider[] shadowProviders;
   private final TestEnvironmentLifecyclePlugin[] testEnvironmentLifecyclePlugins;
+  private final boolean incrementalReset =
+      Boolean.parseBoolean(System.getProperty("robolectric.incrementalReset", "false"));
 
   public AndroidTestEnvironment(
       @Named("runtimeSdk") Sdk runtimeSdk,
@@ -168,6 +173,20 @@ public class AndroidTestEnvironment implements TestEnvironment {
     installAndCreateApplication(appManifest, config, androidConfiguration, displayMetrics);
   }
 
+  @Override
+  public void warmUp() {
+    PerfStatsCollector.getInstance().measure("warm up sandbox", () -> {
+      if (RuntimeEnvironment.useLegacyResources()) {
+        getSystemResourceTable();
+        apkLoader.getCompileTimeSdkResourceTable();
+      }
+
+      // loads the classes used to configure the device, without changing any global state
+      Bootstrap.applyQualifiers("", apiLevel, new android.content.res.Configuration(),
+          new DisplayMetrics());
+    });
+  }
+
   private void installAndCreateApplication(AndroidManifest appManifest, Config config,
       android.content.res.Configuration androidConfiguration, DisplayMetrics displayMetrics) {
     final ActivityThread activityThread = ReflectionHelpers.newInstance(ActivityThread.class);
@@ -313,7 +332,11 @@ public class AndroidTestEnvironment implements TestEnvironment {
   private synchronized PackageResourceTable getSystemResourceTable() {
     if (systemResourceTable == null) {
       ResourcePath resourcePath = createRuntimeSdkResourcePath();
-      systemResourceTable = new ResourceTableFactory().newFrameworkResourceTable(resourcePath);
+      ResourceTableCache resourceTableCache = ResourceTableCache.fromSystemProperties();
+      systemResourceTable =
+          resourceTableCache == null
+              ? new ResourceTableFactory().newFrameworkResourceTable(resourcePath)
+              : resourceTableCache.getFrameworkResourceTable(sdkJarPath, resourcePath);
     }
     return systemResourceTable;
   }
@@ -496,8 +519,17 @@ public class AndroidTestEnvironment implements TestEnvironment {
 
   @Override
   public void resetState() {
-    for (ShadowProvider provider : shadowProviders) {
-      provider.reset();
+    ClassLoader classLoader = getClass().getClassLoader();
+    if (incrementalReset && classLoader instanceof SandboxClassLoader) {
+      // only the classes used so far in this sandbox can have state to reset
+      Predicate<String> isClassLoaded = ((SandboxClassLoader) classLoader)::isClassLoaded;
+      for (ShadowProvider provider : shadowProviders) {
+        provider.reset(isClassLoaded);
+      }
+    } else {
+      for (ShadowProvider provider : shadowProviders) {
+        provider.reset();
+      }
     }
   }
 
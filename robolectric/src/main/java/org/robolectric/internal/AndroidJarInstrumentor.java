@@ -0,0 +1,47 @@
+package org.robolectric.internal;
+
+import java.io.File;
+import java.io.IOException;
+import org.robolectric.JarInstrumentor;
+import org.robolectric.android.AndroidInterceptors;
+import org.robolectric.internal.bytecode.ClassInstrumentor;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.internal.bytecode.Interceptors;
+import org.robolectric.internal.bytecode.ShadowProviders;
+import org.robolectric.util.inject.Injector;
+
+/**
+ * Instruments an android-all jar ahead of time, using the same {@link InstrumentationConfiguration}
+ * and {@link ClassInstrumentor} that {@link org.robolectric.RobolectricTestRunner} uses for tests
+ * without extra shadows or instrumented packages.
+ *
+ * Tests run against the output jar (e.g. by pointing `robolectric.dependency.dir` at its
+ * directory) load its classes without instrumenting them again. If the runtime configuration
+ * differs, e.g. because a test adds shadows via {@link org.robolectric.annotation.Config}, the
+ * jar's classes are instrumented at runtime as usual.
+ *
+ * This must be run on the same major Java version and with the same `org.robolectric.*` system
+ * properties as the tests.
+ */
+public class AndroidJarInstrumentor {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: AndroidJarInstrumentor <source jar> <dest jar>");
+      System.exit(1);
+    }
+
+    Injector injector = SandboxTestRunner.defaultInjector().build();
+    ClassInstrumentor classInstrumentor = injector.getInstance(ClassInstrumentor.class);
+    ShadowProviders shadowProviders = injector.getInstance(ShadowProviders.class);
+
+    InstrumentationConfiguration.Builder builder =
+        SandboxTestRunner.newDefaultClassLoaderConfigBuilder();
+    new AndroidConfigurer(shadowProviders)
+        .configure(builder, new Interceptors(AndroidInterceptors.all()));
+
+    new JarInstrumentor(builder.build(), classInstrumentor)
+        .setParallelism(Runtime.getRuntime().availableProcessors())
+        .instrumentJar(new File(args[0]), new File(args[1]));
+  }
+}
@@ -67,6 +67,11 @@ public class AndroidSandbox extends Sandbox {
     return testEnvironment;
   }
 
+  /** Prepares the sandbox for its first test; see {@link TestEnvironment#warmUp()}. */
+  public void warmUp() {
+    runOnMainThread(() -> testEnvironment.warmUp());
+  }
+
   @Override
   public String toString() {
     return "AndroidSandbox[SDK " + sdk + "]";
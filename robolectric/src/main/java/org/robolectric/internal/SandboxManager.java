@@ -1,66 +1,250 @@
 package org.robolectric.internal;
 
 import android.annotation.SuppressLint;
-import java.util.LinkedHashMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import javax.inject.Inject;
 import javax.inject.Named;
 import org.robolectric.annotation.LooperMode;
 import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.internal.bytecode.SandboxClassLoader;
+import org.robolectric.pluginapi.SandboxEvictionPolicy;
+import org.robolectric.pluginapi.SandboxEvictionPolicy.SandboxStats;
 import org.robolectric.pluginapi.Sdk;
 import org.robolectric.plugins.SdkCollection;
+import org.robolectric.util.Logger;
+import org.robolectric.util.PerfStatsCollector;
 import org.robolectric.util.inject.AutoFactory;
 
 /** Manager of sandboxes. */
 @SuppressLint("NewApi")
 public class SandboxManager {
 
-  /**
-   * The factor for cache size. See {@link #sandboxesByKey} for details.
-   */
-  private static final int CACHE_SIZE_FACTOR = 3;
-
   private final SandboxBuilder sandboxBuilder;
   private final SdkCollection sdkCollection;
+  private final SandboxEvictionPolicy evictionPolicy;
 
-  // Simple LRU Cache. AndroidSandboxes are unique across InstrumentationConfiguration and Sdk
-  private final LinkedHashMap<SandboxKey, AndroidSandbox> sandboxesByKey;
+  // LRU Cache, bounded by evictionPolicy, from least to most recently used. There may be several
+  // sandboxes for a SandboxKey if tests run concurrently.
+  private final List<CachedSandbox> sandboxes = new ArrayList<>();
+  // sandboxes being created in the background, which haven't been claimed by a test yet; whichever
+  // of a test or the background thread removes one under the lock takes ownership of it
+  private final Map<SandboxKey, WarmingSandbox> warmingSandboxes = new HashMap<>();
+
+  private static Executor warmUpExecutor;
 
   @Inject
-  public SandboxManager(SandboxBuilder sandboxBuilder, SdkCollection sdkCollection) {
+  public SandboxManager(
+      SandboxBuilder sandboxBuilder,
+      SdkCollection sdkCollection,
+      SandboxEvictionPolicy evictionPolicy) {
     this.sandboxBuilder = sandboxBuilder;
     this.sdkCollection = sdkCollection;
+    this.evictionPolicy = evictionPolicy;
+  }
 
-    // We need to set the cache size of class loaders more than the number of supported APIs as
-    // different tests may have different configurations.
-    final int cacheSize = sdkCollection.getSupportedSdks().size() * CACHE_SIZE_FACTOR;
-    sandboxesByKey = new LinkedHashMap<SandboxKey, AndroidSandbox>() {
-      @Override
-      protected boolean removeEldestEntry(Map.Entry<SandboxKey, AndroidSandbox> eldest) {
-        return size() > cacheSize;
-      }
-    };
+  public AndroidSandbox getAndroidSandbox(
+      InstrumentationConfiguration instrumentationConfig,
+      Sdk sdk,
+      ResourcesMode resourcesMode,
+      LooperMode.Mode looperMode) {
+    SandboxKey key = new SandboxKey(instrumentationConfig, sdk, resourcesMode, looperMode);
+    return obtainSandbox(key, false);
   }
 
-  public synchronized AndroidSandbox getAndroidSandbox(
+  /**
+   * Returns a sandbox which no other caller has acquired, creating one if necessary. It must be
+   * passed to {@link #releaseAndroidSandbox(AndroidSandbox)} when the caller is done with it.
+   *
+   * This allows tests with the same configuration to run concurrently in separate sandboxes.
+   */
+  public AndroidSandbox acquireAndroidSandbox(
       InstrumentationConfiguration instrumentationConfig,
       Sdk sdk,
       ResourcesMode resourcesMode,
       LooperMode.Mode looperMode) {
     SandboxKey key = new SandboxKey(instrumentationConfig, sdk, resourcesMode, looperMode);
+    return obtainSandbox(key, true);
+  }
 
-    AndroidSandbox androidSandbox = sandboxesByKey.get(key);
-    if (androidSandbox == null) {
-      Sdk compileSdk = sdkCollection.getMaxSupportedSdk();
+  /**
+   * Starts creating a sandbox in the background and running its {@link AndroidSandbox#warmUp()},
+   * unless there's already an idle sandbox for the configuration. A test which asks for the sandbox
+   * later gets it without waiting, or waits only for the remaining work.
+   *
+   * @param sandboxConfigurer sets up the sandbox's class handler, interceptors and shadows before
+   *     it's warmed up, as the test which will run in it would; instrumented code can't run before
+   */
+  public void warmUpAndroidSandbox(
+      InstrumentationConfiguration instrumentationConfig,
+      Sdk sdk,
+      ResourcesMode resourcesMode,
+      LooperMode.Mode looperMode,
+      Consumer<? super AndroidSandbox> sandboxConfigurer) {
+    SandboxKey key = new SandboxKey(instrumentationConfig, sdk, resourcesMode, looperMode);
+    WarmingSandbox warmingSandbox;
+    synchronized (this) {
+      if (warmingSandboxes.containsKey(key) || hasIdleSandbox(key)) {
+        return;
+      }
+      warmingSandbox = new WarmingSandbox(key, sandboxConfigurer);
+      warmingSandboxes.put(key, warmingSandbox);
+    }
+    getWarmUpExecutor().execute(() -> warmUp(warmingSandbox));
+  }
+
+  private AndroidSandbox obtainSandbox(SandboxKey key, boolean acquire) {
+    WarmingSandbox warmingSandbox;
+    synchronized (this) {
+      CachedSandbox cachedSandbox = findSandbox(key, acquire);
+      if (cachedSandbox != null) {
+        cachedSandbox.inUse |= acquire;
+        return cachedSandbox.androidSandbox;
+      }
+      warmingSandbox = claimWarmingSandbox(key);
+    }
+
+    // built outside the lock, so other sandboxes can be built or acquired meanwhile
+    AndroidSandbox androidSandbox = null;
+    if (warmingSandbox != null) {
       androidSandbox =
-          sandboxBuilder.build(
-              instrumentationConfig, sdk, compileSdk, resourcesMode, looperMode);
-      sandboxesByKey.put(key, androidSandbox);
+          PerfStatsCollector.getInstance()
+              .measure("wait for warm sandbox", () -> warmingSandbox.await());
+    }
+    if (androidSandbox == null) {
+      androidSandbox = buildSandbox(key);
+    }
+
+    CachedSandbox cachedSandbox = new CachedSandbox(key, androidSandbox);
+    cachedSandbox.inUse = acquire;
+    synchronized (this) {
+      addSandbox(cachedSandbox);
     }
     return androidSandbox;
   }
 
+  /** Makes a sandbox returned by {@link #acquireAndroidSandbox} available to other callers. */
+  public synchronized void releaseAndroidSandbox(AndroidSandbox androidSandbox) {
+    for (CachedSandbox cachedSandbox : sandboxes) {
+      if (cachedSandbox.androidSandbox == androidSandbox) {
+        cachedSandbox.inUse = false;
+        cachedSandbox.lastUsedTimeMillis = System.currentTimeMillis();
+        return;
+      }
+    }
+  }
+
+  /** Returns statistics about the cached sandboxes, from least to most recently used. */
+  public synchronized List<SandboxStats> getSandboxStats() {
+    return new ArrayList<>(sandboxes);
+  }
+
+  private void warmUp(WarmingSandbox warmingSandbox) {
+    try {
+      AndroidSandbox androidSandbox = buildSandbox(warmingSandbox.key);
+      warmingSandbox.sandboxConfigurer.accept(androidSandbox);
+      androidSandbox.warmUp();
+      warmingSandbox.future.complete(androidSandbox);
+    } catch (Throwable t) {
+      warmingSandbox.future.completeExceptionally(t);
+    }
+
+    // if no test has claimed it yet, make it available to the next one
+    synchronized (this) {
+      if (warmingSandboxes.remove(warmingSandbox.key, warmingSandbox)) {
+        AndroidSandbox androidSandbox = warmingSandbox.await();
+        if (androidSandbox != null) {
+          addSandbox(new CachedSandbox(warmingSandbox.key, androidSandbox));
+        }
+      }
+    }
+  }
+
+  /** Takes ownership of the sandbox warming up for {@code key}, if any; call with the lock held. */
+  private WarmingSandbox claimWarmingSandbox(SandboxKey key) {
+    return warmingSandboxes.remove(key);
+  }
+
+  private boolean hasIdleSandbox(SandboxKey key) {
+    for (CachedSandbox cachedSandbox : sandboxes) {
+      if (cachedSandbox.key.equals(key) && !cachedSandbox.inUse) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static synchronized Executor getWarmUpExecutor() {
+    if (warmUpExecutor == null) {
+      warmUpExecutor =
+          Executors.newSingleThreadExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("sandbox-warm-up-%d")
+                  .setDaemon(true)
+                  .build());
+    }
+    return warmUpExecutor;
+  }
+
+  private AndroidSandbox buildSandbox(SandboxKey key) {
+    Sdk compileSdk = sdkCollection.getMaxSupportedSdk();
+    return sandboxBuilder.build(
+        key.instrumentationConfiguration, key.sdk, compileSdk, key.resourcesMode, key.looperMode);
+  }
+
+  /** Finds the most recently used sandbox for {@code key}, and marks it as used. */
+  private CachedSandbox findSandbox(SandboxKey key, boolean mustBeIdle) {
+    for (int i = sandboxes.size() - 1; i >= 0; i--) {
+      CachedSandbox cachedSandbox = sandboxes.get(i);
+      if (cachedSandbox.key.equals(key) && !(mustBeIdle && cachedSandbox.inUse)) {
+        sandboxes.remove(i);
+        sandboxes.add(cachedSandbox);
+        cachedSandbox.lastUsedTimeMillis = System.currentTimeMillis();
+        return cachedSandbox;
+      }
+    }
+    return null;
+  }
+
+  private void addSandbox(CachedSandbox newSandbox) {
+    newSandbox.lastUsedTimeMillis = System.currentTimeMillis();
+    sandboxes.add(newSandbox);
+
+    List<SandboxStats> evictableSandboxes = getEvictableSandboxes(newSandbox);
+    while (!evictableSandboxes.isEmpty()
+        && evictionPolicy.shouldEvictEldest(evictableSandboxes)) {
+      CachedSandbox eldest = (CachedSandbox) evictableSandboxes.remove(0);
+      sandboxes.remove(eldest);
+      Logger.debug(
+          "Evicted %s: %d classes, %d bytes of bytecode",
+          eldest.androidSandbox, eldest.getLoadedClassCount(), eldest.getLoadedClassBytes());
+    }
+  }
+
+  /**
+   * Returns the sandboxes which may be evicted, from least to most recently used: those in use are
+   * skipped, as is the new one.
+   */
+  private List<SandboxStats> getEvictableSandboxes(CachedSandbox newSandbox) {
+    List<SandboxStats> evictableSandboxes = new ArrayList<>();
+    for (CachedSandbox cachedSandbox : sandboxes) {
+      if (!cachedSandbox.inUse && cachedSandbox != newSandbox) {
+        evictableSandboxes.add(cachedSandbox);
+      }
+    }
+    return evictableSandboxes;
+  }
+
   /** Factory interface for AndroidSandbox. */
   @AutoFactory
   public interface SandboxBuilder {
@@ -72,7 +256,73 @@ public class SandboxManager {
         LooperMode.Mode looperMode);
   }
 
-  static class SandboxKey {
+  private static class CachedSandbox implements SandboxStats {
+    private final SandboxKey key;
+    private final AndroidSandbox androidSandbox;
+    private long lastUsedTimeMillis;
+    private boolean inUse;
+
+    CachedSandbox(SandboxKey key, AndroidSandbox androidSandbox) {
+      this.key = key;
+      this.androidSandbox = androidSandbox;
+    }
+
+    @Override
+    public Sdk getSdk() {
+      return androidSandbox.getSdk();
+    }
+
+    @Override
+    public int getLoadedClassCount() {
+      ClassLoader classLoader = androidSandbox.getRobolectricClassLoader();
+      return classLoader instanceof SandboxClassLoader
+          ? ((SandboxClassLoader) classLoader).getLoadedClassCount()
+          : 0;
+    }
+
+    @Override
+    public long getLoadedClassBytes() {
+      ClassLoader classLoader = androidSandbox.getRobolectricClassLoader();
+      return classLoader instanceof SandboxClassLoader
+          ? ((SandboxClassLoader) classLoader).getLoadedClassBytes()
+          : 0;
+    }
+
+    @Override
+    public long getLastUsedTimeMillis() {
+      return lastUsedTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+      return androidSandbox + ": " + getLoadedClassCount() + " classes";
+    }
+  }
+
+  /** A sandbox being created and warmed up in the background. */
+  private static class WarmingSandbox {
+    private final SandboxKey key;
+    private final Consumer<? super AndroidSandbox> sandboxConfigurer;
+    private final CompletableFuture<AndroidSandbox> future = new CompletableFuture<>();
+
+    WarmingSandbox(SandboxKey key, Consumer<? super AndroidSandbox> sandboxConfigurer) {
+      this.key = key;
+      this.sandboxConfigurer = sandboxConfigurer;
+    }
+
+    /** Waits for the sandbox, returning null if it couldn't be created. */
+    AndroidSandbox await() {
+      try {
+        return future.join();
+      } catch (CompletionException | CancellationException e) {
+        Logger.warn("failed to warm up sandbox: %s", e.getCause());
+        return null;
+      }
+    }
+  }
+
+  /** Identifies a sandbox; tests with equal keys run in the same sandbox. */
+  public static class SandboxKey {
     private final Sdk sdk;
     private final InstrumentationConfiguration instrumentationConfiguration;
     private final ResourcesMode resourcesMode;
@@ -18,4 +18,11 @@ public interface TestEnvironment {
   void checkStateAfterTestFailure(Throwable t) throws Throwable;
 
   void resetState();
+
+  /**
+   * Does the work of {@link #setUpApplicationState} which doesn't depend on the test, such as
+   * loading the system resources, ahead of the first test in the sandbox. Called on the sandbox's
+   * main thread, once the sandbox has been configured for that test.
+   */
+  default void warmUp() {}
 }
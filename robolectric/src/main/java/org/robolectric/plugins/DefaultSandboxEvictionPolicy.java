@@ -0,0 +1,93 @@
+package org.robolectric.plugins;
+
+import com.google.auto.service.AutoService;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.List;
+import java.util.Properties;
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import org.robolectric.pluginapi.SandboxEvictionPolicy;
+
+/**
+ * Robolectric's default {@link SandboxEvictionPolicy}.
+ *
+ * By default, up to three idle sandboxes per supported SDK are cached, besides those in use by
+ * running tests. The following system properties impose further limits on the idle sandboxes; the
+ * eldest is evicted while any of them is exceeded:
+ *
+ * * `robolectric.sandboxCache.maxSandboxes`: the number of idle sandboxes.
+ * * `robolectric.sandboxCache.maxLoadedClasses`: the total number of classes loaded by idle
+ *   sandboxes.
+ * * `robolectric.sandboxCache.maxLoadedClassBytes`: the total bytecode size of the classes loaded
+ *   by idle sandboxes; see {@link SandboxStats#getLoadedClassBytes()}.
+ * * `robolectric.sandboxCache.maxIdleMillis`: how long a sandbox may go unused.
+ */
+@AutoService(SandboxEvictionPolicy.class)
+@Priority(Integer.MIN_VALUE)
+public class DefaultSandboxEvictionPolicy implements SandboxEvictionPolicy {
+
+  /**
+   * The factor for the default cache size. We need to cache more sandboxes than the number of
+   * supported APIs, as different tests may have different configurations.
+   */
+  private static final int CACHE_SIZE_FACTOR = 3;
+
+  private final int maxSandboxes;
+  private final long maxLoadedClasses;
+  private final long maxLoadedClassBytes;
+  private final long maxIdleMillis;
+
+  @Inject
+  public DefaultSandboxEvictionPolicy(SdkCollection sdkCollection, Properties systemProperties) {
+    this(
+        (int)
+            getLong(
+                systemProperties,
+                "robolectric.sandboxCache.maxSandboxes",
+                sdkCollection.getSupportedSdks().size() * CACHE_SIZE_FACTOR),
+        getLong(systemProperties, "robolectric.sandboxCache.maxLoadedClasses", Long.MAX_VALUE),
+        getLong(systemProperties, "robolectric.sandboxCache.maxLoadedClassBytes", Long.MAX_VALUE),
+        getLong(systemProperties, "robolectric.sandboxCache.maxIdleMillis", Long.MAX_VALUE));
+  }
+
+  @VisibleForTesting
+  DefaultSandboxEvictionPolicy(
+      int maxSandboxes, long maxLoadedClasses, long maxLoadedClassBytes, long maxIdleMillis) {
+    this.maxSandboxes = maxSandboxes;
+    this.maxLoadedClasses = maxLoadedClasses;
+    this.maxLoadedClassBytes = maxLoadedClassBytes;
+    this.maxIdleMillis = maxIdleMillis;
+  }
+
+  @Override
+  public boolean shouldEvictEldest(List<SandboxStats> sandboxes) {
+    if (sandboxes.size() > maxSandboxes) {
+      return true;
+    }
+
+    long loadedClasses = 0;
+    long loadedClassBytes = 0;
+    for (SandboxStats sandbox : sandboxes) {
+      loadedClasses += sandbox.getLoadedClassCount();
+      loadedClassBytes += sandbox.getLoadedClassBytes();
+    }
+    if (loadedClasses > maxLoadedClasses || loadedClassBytes > maxLoadedClassBytes) {
+      return true;
+    }
+
+    long idleMillis = System.currentTimeMillis() - sandboxes.get(0).getLastUsedTimeMillis();
+    return idleMillis > maxIdleMillis;
+  }
+
+  private static long getLong(Properties systemProperties, String name, long defaultValue) {
+    String value = systemProperties == null ? null : systemProperties.getProperty(name);
+    if (value == null || value.isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid value for " + name + ": " + value, e);
+    }
+  }
+}
@@ -297,6 +297,21 @@ public class RobolectricTestRunnerTest {
             "finished: assumptionViolationWithUnexecutedRunnables");
   }
 
+  @Test
+  public void groupTestsBySandbox_shouldRunTestsInTheSameSandboxTogether() throws Exception {
+    System.setProperty("robolectric.groupTestsBySandbox", "true");
+    try {
+      RobolectricTestRunner runner = new RobolectricTestRunner(TestWithAlternatingSdks.class);
+      List<String> methodNames = new ArrayList<>();
+      for (FrameworkMethod child : runner.getChildren()) {
+        methodNames.add(child.getMethod().getName());
+      }
+      assertThat(methodNames).containsExactly("a", "c", "b", "d").inOrder();
+    } finally {
+      System.clearProperty("robolectric.groupTestsBySandbox");
+    }
+  }
+
   /////////////////////////////
 
   /** To simulate failures. */
@@ -333,6 +348,26 @@ public class RobolectricTestRunnerTest {
     }
   }
 
+  @Ignore
+  @FixMethodOrder(MethodSorters.NAME_ASCENDING)
+  public static class TestWithAlternatingSdks {
+    @Config(sdk = Build.VERSION_CODES.P)
+    @Test
+    public void a() throws Exception {}
+
+    @Config(sdk = Build.VERSION_CODES.O_MR1)
+    @Test
+    public void b() throws Exception {}
+
+    @Config(sdk = Build.VERSION_CODES.P)
+    @Test
+    public void c() throws Exception {}
+
+    @Config(sdk = Build.VERSION_CODES.O_MR1)
+    @Test
+    public void d() throws Exception {}
+  }
+
   @Ignore
   @FixMethodOrder(MethodSorters.NAME_ASCENDING)
   @Config(qualifiers = "w123dp-h456dp-land-hdpi")
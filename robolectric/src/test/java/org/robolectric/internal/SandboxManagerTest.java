@@ -0,0 +1,255 @@
+package org.robolectric.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntUnaryOperator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.pluginapi.SandboxEvictionPolicy;
+import org.robolectric.pluginapi.SandboxEvictionPolicy.SandboxStats;
+import org.robolectric.pluginapi.Sdk;
+import org.robolectric.plugins.DefaultSandboxEvictionPolicy;
+import org.robolectric.plugins.SdkCollection;
+import org.robolectric.plugins.StubSdk;
+
+@RunWith(JUnit4.class)
+public class SandboxManagerTest {
+
+  private SdkCollection sdkCollection;
+  private InstrumentationConfiguration instrumentationConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    sdkCollection =
+        new SdkCollection(
+            () ->
+                ImmutableList.of(
+                    new StubSdk(26, true),
+                    new StubSdk(27, true),
+                    new StubSdk(28, true),
+                    new StubSdk(29, true)));
+    instrumentationConfig = InstrumentationConfiguration.newBuilder().build();
+  }
+
+  @Test
+  public void whenEldestSandboxIsInUse_shouldOnlyEvictIdleSandboxesBeyondTheLimit()
+      throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("robolectric.sandboxCache.maxSandboxes", "1");
+    SandboxManager sandboxManager =
+        new SandboxManager(
+            SandboxManagerTest::newSandbox,
+            sdkCollection,
+            new DefaultSandboxEvictionPolicy(sdkCollection, properties));
+
+    acquire(sandboxManager, 26);
+    sandboxManager.releaseAndroidSandbox(acquire(sandboxManager, 27));
+    sandboxManager.releaseAndroidSandbox(acquire(sandboxManager, 28));
+    acquire(sandboxManager, 29);
+
+    // the eldest is in use and the newest was just created; one idle sandbox may be kept
+    assertThat(getApiLevels(sandboxManager.getSandboxStats()))
+        .containsExactly(26, 28, 29)
+        .inOrder();
+  }
+
+  @Test
+  public void evictionPolicy_shouldOnlyBeGivenSandboxesWhichMayBeEvicted() throws Exception {
+    List<List<Integer>> givenSandboxes = new ArrayList<>();
+    SandboxManager sandboxManager =
+        new SandboxManager(
+            SandboxManagerTest::newSandbox,
+            sdkCollection,
+            sandboxes -> {
+              givenSandboxes.add(getApiLevels(sandboxes));
+              return false;
+            });
+
+    acquire(sandboxManager, 26);
+    sandboxManager.releaseAndroidSandbox(acquire(sandboxManager, 27));
+    acquire(sandboxManager, 28);
+
+    // the eldest is in use, and the policy wasn't consulted while nothing could be evicted
+    assertThat(givenSandboxes).containsExactly(ImmutableList.of(27));
+  }
+
+  @Test
+  public void warmedUpSandbox_shouldBeConfiguredBeforeWarmUpAndReused() throws Exception {
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    List<AndroidSandbox> builtSandboxes = Collections.synchronizedList(new ArrayList<>());
+    SandboxManager sandboxManager =
+        new SandboxManager(
+            (instrumentationConfig, runtimeSdk, compileSdk, resourcesMode, looperMode) -> {
+              AndroidSandbox androidSandbox = newSandbox(runtimeSdk);
+              doAnswer(invocation -> events.add("warm up")).when(androidSandbox).warmUp();
+              builtSandboxes.add(androidSandbox);
+              events.add("build");
+              return androidSandbox;
+            },
+            sdkCollection,
+            sandboxes -> false);
+
+    sandboxManager.warmUpAndroidSandbox(
+        instrumentationConfig,
+        sdkCollection.getSdk(28),
+        ResourcesMode.BINARY,
+        LooperMode.Mode.PAUSED,
+        sandbox -> events.add("configure"));
+    AndroidSandbox androidSandbox = acquire(sandboxManager, 28);
+
+    assertThat(builtSandboxes).containsExactly(androidSandbox);
+    assertThat(events).containsExactly("build", "configure", "warm up").inOrder();
+  }
+
+  @Test
+  public void sandboxClaimedAsWarmUpFinishes_shouldNotBeBuiltTwice() throws Exception {
+    List<AndroidSandbox> builtSandboxes = Collections.synchronizedList(new ArrayList<>());
+    CompletableFuture<Thread> warmUpThread = new CompletableFuture<>();
+    SandboxManager sandboxManager =
+        new SandboxManager(
+            (instrumentationConfig, runtimeSdk, compileSdk, resourcesMode, looperMode) -> {
+              AndroidSandbox androidSandbox = newSandbox(runtimeSdk);
+              doAnswer(invocation -> warmUpThread.complete(Thread.currentThread()))
+                  .when(androidSandbox)
+                  .warmUp();
+              builtSandboxes.add(androidSandbox);
+              return androidSandbox;
+            },
+            sdkCollection,
+            sandboxes -> false);
+
+    AndroidSandbox androidSandbox;
+    synchronized (sandboxManager) {
+      sandboxManager.warmUpAndroidSandbox(
+          instrumentationConfig,
+          sdkCollection.getSdk(28),
+          ResourcesMode.BINARY,
+          LooperMode.Mode.PAUSED,
+          sandbox -> {});
+      // let the warm-up finish and wait to hand the sandbox over, then claim it first
+      Thread thread = warmUpThread.get();
+      while (thread.getState() != Thread.State.BLOCKED) {
+        Thread.yield();
+      }
+      androidSandbox = acquire(sandboxManager, 28);
+    }
+
+    assertThat(builtSandboxes).containsExactly(androidSandbox);
+  }
+
+  @Test
+  public void concurrentAcquireAndRelease_withSameKey_shouldNeverShareOrEvictSandboxesInUse()
+      throws Exception {
+    acquireAndReleaseConcurrently(iteration -> 28);
+  }
+
+  @Test
+  public void concurrentAcquireAndRelease_withDifferentKeys_shouldNeverShareOrEvictSandboxesInUse()
+      throws Exception {
+    acquireAndReleaseConcurrently(iteration -> 26 + iteration % 4);
+  }
+
+  /**
+   * Acquires and releases sandboxes on several threads at once, checking that no sandbox is held
+   * by two threads at once, and that the eviction policy is never offered a sandbox that's held.
+   */
+  private void acquireAndReleaseConcurrently(IntUnaryOperator apiLevelForIteration)
+      throws Exception {
+    // each sandbox gets its own Sdk instance, by which the eviction policy can identify it
+    Set<Sdk> sandboxesInUse =
+        Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+    List<String> problems = Collections.synchronizedList(new ArrayList<>());
+    Properties properties = new Properties();
+    properties.setProperty("robolectric.sandboxCache.maxSandboxes", "1");
+    SandboxEvictionPolicy defaultPolicy =
+        new DefaultSandboxEvictionPolicy(sdkCollection, properties);
+    SandboxManager sandboxManager =
+        new SandboxManager(
+            (instrumentationConfig, runtimeSdk, compileSdk, resourcesMode, looperMode) ->
+                newSandbox(new StubSdk(runtimeSdk.getApiLevel(), true)),
+            sdkCollection,
+            sandboxes -> {
+              for (SandboxStats sandbox : sandboxes) {
+                if (sandboxesInUse.contains(sandbox.getSdk())) {
+                  problems.add("offered for eviction while in use: " + sandbox);
+                }
+              }
+              return defaultPolicy.shouldEvictEldest(sandboxes);
+            });
+
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        futures.add(executorService.submit(() -> {
+          for (int i = 0; i < 100; i++) {
+            AndroidSandbox androidSandbox =
+                acquire(sandboxManager, apiLevelForIteration.applyAsInt(i));
+            if (!sandboxesInUse.add(androidSandbox.getSdk())) {
+              problems.add("acquired while in use: " + androidSandbox);
+            }
+            Thread.yield();
+            sandboxesInUse.remove(androidSandbox.getSdk());
+            sandboxManager.releaseAndroidSandbox(androidSandbox);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+
+    assertThat(problems).isEmpty();
+  }
+
+  private AndroidSandbox acquire(SandboxManager sandboxManager, int apiLevel) {
+    return sandboxManager.acquireAndroidSandbox(
+        instrumentationConfig,
+        sdkCollection.getSdk(apiLevel),
+        ResourcesMode.BINARY,
+        LooperMode.Mode.PAUSED);
+  }
+
+  private static AndroidSandbox newSandbox(
+      InstrumentationConfiguration instrumentationConfig,
+      Sdk runtimeSdk,
+      Sdk compileSdk,
+      ResourcesMode resourcesMode,
+      LooperMode.Mode looperMode) {
+    return newSandbox(runtimeSdk);
+  }
+
+  private static AndroidSandbox newSandbox(Sdk runtimeSdk) {
+    AndroidSandbox androidSandbox = mock(AndroidSandbox.class);
+    when(androidSandbox.getSdk()).thenReturn(runtimeSdk);
+    return androidSandbox;
+  }
+
+  private static List<Integer> getApiLevels(List<SandboxStats> sandboxes) {
+    List<Integer> apiLevels = new ArrayList<>();
+    for (SandboxStats sandbox : sandboxes) {
+      apiLevels.add(sandbox.getSdk().getApiLevel());
+    }
+    return apiLevels;
+  }
+}
@@ -1,6 +1,7 @@
 package org.robolectric.internal.bytecode;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.util.Arrays.asList;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -115,6 +116,29 @@ public class InstrumentationConfigurationTest {
     assertThat(baseConfig).isNotEqualTo(customConfig);
   }
 
+  @Test
+  public void shouldNotConsiderClassesShadowFreeUnlessShadowedClassesAreKnown() throws Exception {
+    assertThat(config.isShadowFree("android.foo.Bar")).isFalse();
+
+    InstrumentationConfiguration customConfig =
+        InstrumentationConfiguration.newBuilder()
+            .addInstrumentedClass("android.foo.Instrumented")
+            .addInterceptedMethod(new MethodRef("android.foo.Intercepted", "method"))
+            .setShadowedClasses(asList("android.foo.Shadowed", "android.foo.Outer.Inner"))
+            .build();
+    assertThat(customConfig.isShadowFree("android.foo.Bar")).isTrue();
+    assertThat(customConfig.isShadowFree("android.foo.Shadowed")).isFalse();
+    assertThat(customConfig.isShadowFree("android.foo.Outer$Inner")).isFalse();
+    assertThat(customConfig.isShadowFree("android.foo.Instrumented")).isFalse();
+    assertThat(customConfig.isShadowFree("android.foo.Intercepted")).isFalse();
+    assertThat(customConfig)
+        .isNotEqualTo(new InstrumentationConfiguration.Builder(customConfig)
+            .setShadowedClasses(asList("android.foo.Shadowed"))
+            .build());
+    assertThat(new InstrumentationConfiguration.Builder(customConfig).build())
+        .isEqualTo(customConfig);
+  }
+
   @Test
   public void shouldNotInstrumentListedClasses() throws Exception {
     String instrumentName = "android.foo.bar";
@@ -86,6 +86,18 @@ public class ShadowMapTest {
     assertThat(current.getInvalidatedClasses(previous)).containsExactly(C1);
   }
 
+  @Test public void getShadowedClassNames_shouldBeComputedOnce() {
+    ShadowMap map =
+        baseShadowMap
+            .newBuilder()
+            .addShadowClass(A1, A2, true, false)
+            .addShadowClass(B1, B2, true, false)
+            .build();
+
+    assertThat(map.getShadowedClassNames()).containsExactly(A1, B1);
+    assertThat(map.getShadowedClassNames()).isSameInstanceAs(map.getShadowedClassNames());
+  }
+
   @Test public void equalsHashCode() throws Exception {
     ShadowMap a = baseShadowMap.newBuilder().addShadowClass(A, B, true, false).build();
     ShadowMap b = baseShadowMap.newBuilder().addShadowClass(A, B, true, false).build();
@@ -116,6 +116,26 @@ public class ShadowWranglerUnitTest {
     assertThat(new ShadowWrangler(shadowMap, sdk21, interceptors).methodInvoked(methodName, false, DummyClass.class)).isNull();
   }
 
+  @Test
+  public void methodInvoked_shouldReusePlans() throws Throwable {
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowDummyClass.class).build();
+    ShadowWrangler shadowWrangler = new ShadowWrangler(shadowMap, sdk20, interceptors);
+    String shadowedMethod = internalName(DummyClass.class) + "/methodFor20()V";
+    String realMethod = internalName(DummyClass.class) + "/methodMax20()V";
+
+    Plan plan = shadowWrangler.methodInvoked(shadowedMethod, false, DummyClass.class);
+    assertThat(shadowWrangler.methodInvoked(shadowedMethod, false, DummyClass.class))
+        .isSameInstanceAs(plan);
+    assertThat(shadowWrangler.getPlanCacheMisses()).isEqualTo(1);
+    assertThat(shadowWrangler.getPlanCacheHits()).isEqualTo(1);
+
+    shadowWrangler = new ShadowWrangler(shadowMap, sdk21, interceptors);
+    assertThat(shadowWrangler.methodInvoked(realMethod, false, DummyClass.class)).isNull();
+    assertThat(shadowWrangler.methodInvoked(realMethod, false, DummyClass.class)).isNull();
+    assertThat(shadowWrangler.getPlanCacheMisses()).isEqualTo(1);
+    assertThat(shadowWrangler.getPlanCacheHits()).isEqualTo(1);
+  }
+
   @Test
   public void shadowConstructor() throws Throwable {
     ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowDummyClass.class).build();
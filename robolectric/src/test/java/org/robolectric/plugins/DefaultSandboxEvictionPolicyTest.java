@@ -0,0 +1,103 @@
+package org.robolectric.plugins;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.pluginapi.SandboxEvictionPolicy;
+import org.robolectric.pluginapi.SandboxEvictionPolicy.SandboxStats;
+import org.robolectric.pluginapi.Sdk;
+
+@RunWith(JUnit4.class)
+public class DefaultSandboxEvictionPolicyTest {
+
+  @Test
+  public void byDefault_shouldCacheThreeSandboxesPerSdk() throws Exception {
+    SdkCollection sdkCollection =
+        new SdkCollection(() -> ImmutableList.of(new StubSdk(28, true), new StubSdk(29, true)));
+    SandboxEvictionPolicy policy = new DefaultSandboxEvictionPolicy(sdkCollection, null);
+
+    assertThat(policy.shouldEvictEldest(sandboxes(6, 1000, 1000))).isFalse();
+    assertThat(policy.shouldEvictEldest(sandboxes(7, 1000, 1000))).isTrue();
+  }
+
+  @Test
+  public void shouldBoundLoadedClasses() throws Exception {
+    SandboxEvictionPolicy policy =
+        policyWithProperty("robolectric.sandboxCache.maxLoadedClasses", "3000");
+
+    assertThat(policy.shouldEvictEldest(sandboxes(3, 1000, 1000))).isFalse();
+    assertThat(policy.shouldEvictEldest(sandboxes(4, 1000, 1000))).isTrue();
+  }
+
+  @Test
+  public void shouldBoundLoadedClassBytes() throws Exception {
+    SandboxEvictionPolicy policy =
+        policyWithProperty("robolectric.sandboxCache.maxLoadedClassBytes", "2500");
+
+    assertThat(policy.shouldEvictEldest(sandboxes(2, 1, 1000))).isFalse();
+    assertThat(policy.shouldEvictEldest(sandboxes(3, 1, 1000))).isTrue();
+  }
+
+  @Test
+  public void shouldEvictIdleSandboxes() throws Exception {
+    SandboxEvictionPolicy policy =
+        policyWithProperty("robolectric.sandboxCache.maxIdleMillis", "60000");
+    List<SandboxStats> sandboxes = sandboxes(2, 1, 1);
+    assertThat(policy.shouldEvictEldest(sandboxes)).isFalse();
+
+    ((FakeSandboxStats) sandboxes.get(0)).lastUsedTimeMillis -= 120000;
+    assertThat(policy.shouldEvictEldest(sandboxes)).isTrue();
+  }
+
+  private static SandboxEvictionPolicy policyWithProperty(String name, String value) {
+    Properties properties = new Properties();
+    properties.setProperty(name, value);
+    return new DefaultSandboxEvictionPolicy(
+        new SdkCollection(() -> ImmutableList.of(new StubSdk(29, true))), properties);
+  }
+
+  private static List<SandboxStats> sandboxes(int count, int classes, long classBytes) {
+    List<SandboxStats> sandboxes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      sandboxes.add(new FakeSandboxStats(classes, classBytes));
+    }
+    return sandboxes;
+  }
+
+  private static class FakeSandboxStats implements SandboxStats {
+    private final int loadedClassCount;
+    private final long loadedClassBytes;
+    long lastUsedTimeMillis = System.currentTimeMillis();
+
+    FakeSandboxStats(int loadedClassCount, long loadedClassBytes) {
+      this.loadedClassCount = loadedClassCount;
+      this.loadedClassBytes = loadedClassBytes;
+    }
+
+    @Override
+    public Sdk getSdk() {
+      return null;
+    }
+
+    @Override
+    public int getLoadedClassCount() {
+      return loadedClassCount;
+    }
+
+    @Override
+    public long getLoadedClassBytes() {
+      return loadedClassBytes;
+    }
+
+    @Override
+    public long getLastUsedTimeMillis() {
+      return lastUsedTimeMillis;
+    }
+  }
+}
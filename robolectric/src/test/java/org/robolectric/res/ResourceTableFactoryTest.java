@@ -4,6 +4,10 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.robolectric.util.TestUtil.systemResources;
 import static org.robolectric.util.TestUtil.testResources;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -45,4 +49,36 @@ public class ResourceTableFactoryTest {
     assertThat(systemResourceTable.getResName(android.R.id.text1).getFullyQualifiedName()).isEqualTo("android:id/text1");
     assertThat(appResourceTable.getResName(R.id.burritos).getFullyQualifiedName()).isEqualTo("org.robolectric:id/burritos");
   }
+
+  @Test
+  public void shouldLoadTheSameResourcesOnMultipleThreads() throws Exception {
+    System.setProperty(ResourceTableFactory.LOADING_THREADS_PROPERTY, "4");
+    try {
+      ResourceTableFactory resourceTableFactory = new ResourceTableFactory();
+      ResourceTable parallelAppResourceTable =
+          resourceTableFactory.newResourceTable("org.robolectric", testResources());
+      ResourceTable parallelSystemResourceTable =
+          resourceTableFactory.newFrameworkResourceTable(systemResources());
+
+      assertThat(describe(parallelAppResourceTable)).isEqualTo(describe(appResourceTable));
+      assertThat(describe(parallelSystemResourceTable)).isEqualTo(describe(systemResourceTable));
+    } finally {
+      System.clearProperty(ResourceTableFactory.LOADING_THREADS_PROPERTY);
+    }
+  }
+
+  private static Map<String, List<String>> describe(ResourceTable resourceTable) {
+    Map<String, List<String>> descriptions = new TreeMap<>();
+    resourceTable.receive(
+        (resName, values) -> {
+          List<String> valueDescriptions = new ArrayList<>();
+          for (TypedResource value : values) {
+            valueDescriptions.add(value.getXmlContext() + " " + value.getData());
+          }
+          descriptions.put(
+              resName.getFullyQualifiedName() + " " + resourceTable.getResourceId(resName),
+              valueDescriptions);
+        });
+    return descriptions;
+  }
 }
@@ -0,0 +1,99 @@
+package org.robolectric;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.internal.SandboxTestRunner;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.internal.bytecode.Interceptors;
+import org.robolectric.internal.bytecode.InvokeDynamicClassInstrumentor;
+import org.robolectric.internal.bytecode.Sandbox;
+import org.robolectric.internal.bytecode.ShadowDecorator;
+import org.robolectric.internal.bytecode.ShadowMap;
+import org.robolectric.internal.bytecode.ShadowWrangler;
+import org.robolectric.internal.bytecode.UrlResourceProvider;
+import org.robolectric.sandbox.ShadowMatcher;
+
+/** Measures the overhead of calling a shadowed instance method through invokedynamic. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShadowDispatchBenchmark {
+
+  private MethodHandle getLabel;
+  private Object target;
+  private Object subclassTarget;
+  private int calls;
+
+  @Setup
+  public void setUp() throws Exception {
+    InstrumentationConfiguration config =
+        SandboxTestRunner.newDefaultClassLoaderConfigBuilder()
+            .addInstrumentedClass(Target.class.getName())
+            .addInstrumentedClass(SubclassTarget.class.getName())
+            .build();
+    Sandbox sandbox =
+        new Sandbox(
+            config,
+            new UrlResourceProvider(),
+            new InvokeDynamicClassInstrumentor(new ShadowDecorator()));
+    ShadowMap shadowMap = new ShadowMap.Builder().addShadowClasses(ShadowTarget.class).build();
+    sandbox.replaceShadowMap(shadowMap);
+    Interceptors interceptors = new Interceptors();
+    sandbox.configure(
+        new ShadowWrangler(shadowMap, ShadowMatcher.MATCH_ALL, interceptors), interceptors);
+
+    Class<?> targetClass = sandbox.bootstrappedClass(Target.class);
+    target = targetClass.getConstructor().newInstance();
+    subclassTarget = sandbox.bootstrappedClass(SubclassTarget.class).getConstructor().newInstance();
+    getLabel =
+        MethodHandles.publicLookup()
+            .findVirtual(targetClass, "getLabel", methodType(String.class))
+            .asType(methodType(String.class, Object.class));
+  }
+
+  /** Calls a shadowed method on receivers of a single class, as most call sites do. */
+  @Benchmark
+  public String sameReceiverClass() throws Throwable {
+    return (String) getLabel.invokeExact(target);
+  }
+
+  /** Calls a shadowed method on receivers of alternating classes. */
+  @Benchmark
+  public String alternatingReceiverClasses() throws Throwable {
+    return (String) getLabel.invokeExact((calls++ & 1) == 0 ? target : subclassTarget);
+  }
+
+  public static class Target {
+    public String getLabel() {
+      return "real";
+    }
+  }
+
+  public static class SubclassTarget extends Target {}
+
+  @Implements(Target.class)
+  public static class ShadowTarget {
+    @Implementation
+    protected String getLabel() {
+      return "shadow";
+    }
+  }
+}
@@ -5,34 +5,56 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.Enumeration;
 import java.util.Locale;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.zip.ZipEntry;
+import org.robolectric.internal.bytecode.ClassInstrumentor;
 import org.robolectric.internal.bytecode.ClassNodeProvider;
 import org.robolectric.internal.bytecode.InstrumentationConfiguration;
 import org.robolectric.internal.bytecode.InstrumentationConfiguration.Builder;
+import org.robolectric.internal.bytecode.MutableClass;
 import org.robolectric.internal.bytecode.OldClassInstrumentor;
+import org.robolectric.internal.bytecode.PreinstrumentedJars;
 import org.robolectric.internal.bytecode.ShadowDecorator;
 import org.robolectric.util.Util;
 
 /**
  * Instruments an entire jar.
+ *
+ * The output jar contains everything in the original jar, plus the instrumented classes and the
+ * configuration they were instrumented with (see {@link PreinstrumentedJars}). When it's used in
+ * place of the original jar with a matching configuration, {@link
+ * org.robolectric.internal.bytecode.SandboxClassLoader} loads the instrumented classes instead of
+ * instrumenting the originals again.
  */
 public class JarInstrumentor {
 
   private final InstrumentationConfiguration instrumentationConfiguration;
-  private final ShadowDecorator shadowDecorator;
-  private final OldClassInstrumentor classInstrumentor;
+  private final ClassInstrumentor classInstrumentor;
+  private int parallelism = 1;
 
   public JarInstrumentor() {
-    instrumentationConfiguration = createInstrumentationConfiguration();
-    shadowDecorator = new ShadowDecorator();
-    classInstrumentor = new OldClassInstrumentor(shadowDecorator);
+    this(createInstrumentationConfiguration(), new OldClassInstrumentor(new ShadowDecorator()));
+  }
+
+  public JarInstrumentor(
+      InstrumentationConfiguration instrumentationConfiguration,
+      ClassInstrumentor classInstrumentor) {
+    this.instrumentationConfiguration = instrumentationConfiguration;
+    this.classInstrumentor = classInstrumentor;
   }
 
   public static void main(String[] args) throws Exception {
@@ -40,77 +62,128 @@ public class JarInstrumentor {
   }
 
   private void run(String[] args) throws IOException {
+    int parallelism = 1;
+    if (args.length == 4 && args[0].equals("--parallelism")) {
+      parallelism = Integer.parseInt(args[1]);
+      args = new String[] {args[2], args[3]};
+    }
     if (args.length != 2) {
-      System.err.println("Usage: JarInstrumentor <source jar> <dest jar>");
+      System.err.println("Usage: JarInstrumentor [--parallelism <n>] <source jar> <dest jar>");
       System.exit(1);
     }
 
+    setParallelism(parallelism);
     instrumentJar(new File(args[0]), new File(args[1]));
   }
 
-  private void instrumentJar(File sourceFile, File destFile) throws IOException {
-    long startNs = System.nanoTime();
-    JarFile jarFile = new JarFile(sourceFile);
-    ClassNodeProvider classNodeProvider =
-        new ClassNodeProvider() {
-          @Override
-          protected byte[] getClassBytes(String className) throws ClassNotFoundException {
-            return JarInstrumentor.getClassBytes(className, jarFile);
-          }
-        };
+  /**
+   * Sets the number of threads used to instrument classes. Classes are independent of each other,
+   * so instrumentation scales with the number of cores; the output jar is the same regardless.
+   *
+   * @param parallelism the number of threads, or 1 to instrument on the calling thread
+   */
+  public JarInstrumentor setParallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
 
-    int nonClassCount = 0;
-    int classCount = 0;
+  public void instrumentJar(File sourceFile, File destFile) throws IOException {
+    long startNs = System.nanoTime();
+    ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    Stats stats = new Stats();
     Set<String> failedClasses = new TreeSet<>();
-    try (JarOutputStream jarOut =
-        new JarOutputStream(
-            new BufferedOutputStream(new FileOutputStream(destFile), 32 * 1024))) {
-      System.out.println("Instrumenting from " + sourceFile + " to " + destFile);
+    try (JarFile jarFile = new JarFile(sourceFile);
+        JarOutputStream jarOut =
+            new JarOutputStream(
+                new BufferedOutputStream(new FileOutputStream(destFile), 32 * 1024))) {
+      ClassNodeProvider classNodeProvider =
+          new ClassNodeProvider() {
+            @Override
+            protected byte[] getClassBytes(String className) throws ClassNotFoundException {
+              return JarInstrumentor.getClassBytes(className, jarFile);
+            }
+          };
+
+      System.out.println(
+          "Instrumenting from " + sourceFile + " to " + destFile + " using " + parallelism
+              + " thread(s)");
+
+      // Entries are read and written in their original order, so the output is deterministic;
+      // classes are instrumented concurrently in between. At most maxPending entries are held in
+      // memory at once.
+      int maxPending = parallelism * 64;
+      ArrayDeque<PendingEntry> pending = new ArrayDeque<>();
       Enumeration<JarEntry> entries = jarFile.entries();
       while (entries.hasMoreElements()) {
         JarEntry jarEntry = entries.nextElement();
 
         String name = jarEntry.getName();
-        if (name.endsWith("/")) {
-          jarOut.putNextEntry(new JarEntry(name));
-        } else if (name.endsWith(".class")) {
+        if (name.equals(PreinstrumentedJars.MARKER_ENTRY)
+            || name.startsWith(PreinstrumentedJars.INSTRUMENTED_CLASSES_DIR)) {
+          // left over from a previous instrumentation; replaced below
+          continue;
+        }
+
+        long readStartNs = System.nanoTime();
+        byte[] bytes =
+            name.endsWith("/") ? new byte[0] : Util.readBytes(jarFile.getInputStream(jarEntry));
+        stats.read.record(System.nanoTime() - readStartNs, bytes.length);
+
+        PendingEntry pendingEntry = new PendingEntry(name, bytes);
+        if (name.endsWith(".class")) {
           String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
 
-          boolean classIsRenamed = isClassRenamed(className);
-          if (classIsRenamed) {
+          if (isClassRenamed(className)) {
             System.out.println("className = " + className);
-            continue;
+          } else {
+            Callable<byte[]> task =
+                () -> {
+                  long instrumentStartNs = System.nanoTime();
+                  byte[] outBytes = instrumentClass(bytes, classNodeProvider);
+                  stats.instrument.record(System.nanoTime() - instrumentStartNs, bytes.length);
+                  return outBytes;
+                };
+            pendingEntry.className = className;
+            pendingEntry.instrumented = pool == null ? inline(task) : pool.submit(task);
           }
+        }
+        pending.add(pendingEntry);
 
-          try {
-            byte[] classBytes = getClassBytes(className, jarFile);
-            byte[] outBytes =
-                classInstrumentor.instrument(
-                    classBytes, instrumentationConfiguration, classNodeProvider);
-            jarOut.putNextEntry(new JarEntry(name));
-            jarOut.write(outBytes);
-            classCount++;
-          } catch (Exception e) {
-            failedClasses.add(className);
-            System.err.print("Failed to instrument " + className + ": ");
-            e.printStackTrace();
-          }
-        } else {
-          // resources & stuff
-          jarOut.putNextEntry(new JarEntry(name));
-          Util.copy(jarFile.getInputStream(jarEntry), jarOut);
-          nonClassCount++;
+        while (pending.size() > maxPending) {
+          write(pending.remove(), jarOut, stats, failedClasses);
         }
       }
+      while (!pending.isEmpty()) {
+        write(pending.remove(), jarOut, stats, failedClasses);
+      }
+
+      // written by hand rather than with Properties.store() to keep the output reproducible
+      String fingerprint =
+          PreinstrumentedJars.instrumentationFingerprint(
+              instrumentationConfiguration, classInstrumentor);
+      jarOut.putNextEntry(new JarEntry(PreinstrumentedJars.MARKER_ENTRY));
+      jarOut.write(
+          (PreinstrumentedJars.FINGERPRINT_PROPERTY + "=" + fingerprint + "\n")
+              .getBytes(StandardCharsets.UTF_8));
+    } finally {
+      if (pool != null) {
+        pool.shutdownNow();
+      }
     }
     long elapsedNs = System.nanoTime() - startNs;
     System.out.println(
         String.format(
             Locale.getDefault(),
             "Wrote %d classes and %d resources in %1.2f seconds",
-            classCount,
-            nonClassCount,
+            stats.classCount,
+            stats.nonClassCount,
             elapsedNs / 1000000000.0));
+    System.out.println(stats.read.describe("read"));
+    System.out.println(stats.instrument.describe("instrument"));
+    System.out.println(stats.write.describe("write"));
     if (!failedClasses.isEmpty()) {
       System.out.println("Failed to instrument:");
     }
@@ -119,6 +192,65 @@ public class JarInstrumentor {
     }
   }
 
+  private static void write(
+      PendingEntry pendingEntry, JarOutputStream jarOut, Stats stats, Set<String> failedClasses)
+      throws IOException {
+    byte[] instrumented = null;
+    if (pendingEntry.instrumented != null) {
+      try {
+        instrumented = pendingEntry.instrumented.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("interrupted while instrumenting " + pendingEntry.className, e);
+      } catch (ExecutionException e) {
+        failedClasses.add(pendingEntry.className);
+        System.err.print("Failed to instrument " + pendingEntry.className + ": ");
+        e.getCause().printStackTrace();
+      }
+    }
+
+    long writeStartNs = System.nanoTime();
+    String name = pendingEntry.name;
+    jarOut.putNextEntry(new JarEntry(name));
+    // the original class is kept so the jar remains usable with other configurations
+    jarOut.write(pendingEntry.bytes);
+    long byteCount = pendingEntry.bytes.length;
+    if (name.endsWith(".class")) {
+      if (instrumented != null) {
+        jarOut.putNextEntry(new JarEntry(PreinstrumentedJars.INSTRUMENTED_CLASSES_DIR + name));
+        jarOut.write(instrumented);
+        byteCount += instrumented.length;
+        stats.classCount++;
+      }
+    } else if (!name.endsWith("/")) {
+      // resources & stuff
+      stats.nonClassCount++;
+    }
+    stats.write.record(System.nanoTime() - writeStartNs, byteCount);
+  }
+
+  private static <T> Future<T> inline(Callable<T> callable) {
+    FutureTask<T> futureTask = new FutureTask<>(callable);
+    futureTask.run();
+    return futureTask;
+  }
+
+  /**
+   * Instruments a class exactly as {@link
+   * org.robolectric.internal.bytecode.SandboxClassLoader} would.
+   *
+   * @return the instrumented bytes, or null if the class isn't instrumented at runtime
+   */
+  private byte[] instrumentClass(byte[] classBytes, ClassNodeProvider classNodeProvider) {
+    MutableClass mutableClass =
+        classInstrumentor.analyzeClass(
+            classBytes, instrumentationConfiguration, classNodeProvider);
+    if (!instrumentationConfiguration.shouldInstrument(mutableClass)) {
+      return null;
+    }
+    return classInstrumentor.instrumentToBytes(mutableClass);
+  }
+
   private boolean isClassRenamed(String className) {
     String internalName = className.replace('.', '/');
     String remappedName = instrumentationConfiguration.mappedTypeName(internalName);
@@ -204,4 +336,51 @@ public class JarInstrumentor {
     builder.doNotInstrumentPackage("androidx.test");
     return builder.build();
   }
+
+  /** A jar entry waiting to be written. */
+  private static class PendingEntry {
+    final String name;
+    final byte[] bytes;
+    String className;
+    Future<byte[]> instrumented;
+
+    PendingEntry(String name, byte[] bytes) {
+      this.name = name;
+      this.bytes = bytes;
+    }
+  }
+
+  /** Throughput statistics for each phase of jar instrumentation. */
+  private static class Stats {
+    final Phase read = new Phase();
+    final Phase instrument = new Phase();
+    final Phase write = new Phase();
+    int classCount;
+    int nonClassCount;
+  }
+
+  /** Time spent and bytes processed in one phase, summed across threads. */
+  private static class Phase {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    void record(long elapsedNs, long byteCount) {
+      count.incrementAndGet();
+      nanos.addAndGet(elapsedNs);
+      bytes.addAndGet(byteCount);
+    }
+
+    String describe(String name) {
+      double seconds = Math.max(nanos.get(), 1) / 1000000000.0;
+      return String.format(
+          Locale.getDefault(),
+          "  %-10s %6d entries in %6.2f thread-seconds: %8.0f entries/sec, %6.2f MB/sec",
+          name,
+          count.get(),
+          seconds,
+          count.get() / seconds,
+          bytes.get() / seconds / (1024 * 1024));
+    }
+  }
 }
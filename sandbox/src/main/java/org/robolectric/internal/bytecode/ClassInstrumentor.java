@@ -1,5 +1,9 @@
 package org.robolectric.internal.bytecode;
 
+import static org.robolectric.internal.bytecode.OldClassInstrumentor.HANDLE_EXCEPTION_METHOD;
+import static org.robolectric.internal.bytecode.OldClassInstrumentor.ROBOLECTRIC_INTERNALS_TYPE;
+import static org.robolectric.internal.bytecode.OldClassInstrumentor.THROWABLE_TYPE;
+
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Modifier;
 import java.util.List;
@@ -64,7 +68,7 @@ public abstract class ClassInstrumentor {
     return new MutableClass(classNode, config, classNodeProvider);
   }
 
-  byte[] instrumentToBytes(MutableClass mutableClass) {
+  public byte[] instrumentToBytes(MutableClass mutableClass) {
     instrument(mutableClass);
 
     ClassNode classNode = mutableClass.classNode;
@@ -282,7 +286,7 @@ public abstract class ClassInstrumentor {
 
     generator.loadThis();
     generator.invokeVirtual(mutableClass.classType, new Method(ROBO_INIT_METHOD_NAME, "()V"));
-    generateClassHandlerCall(mutableClass, method, ShadowConstants.CONSTRUCTOR_METHOD_NAME, generator);
+    generateCall(mutableClass, method, ShadowConstants.CONSTRUCTOR_METHOD_NAME, generator);
 
     generator.endMethod();
     mutableClass.addMethod(initMethodNode);
@@ -359,7 +363,7 @@ public abstract class ClassInstrumentor {
     makeMethodPrivate(method);
 
     RobolectricGeneratorAdapter generator = new RobolectricGeneratorAdapter(delegatorMethodNode);
-    generateClassHandlerCall(mutableClass, method, originalName, generator);
+    generateCall(mutableClass, method, originalName, generator);
     generator.endMethod();
     mutableClass.addMethod(delegatorMethodNode);
   }
@@ -527,6 +531,42 @@ public abstract class ClassInstrumentor {
     return methodNode;
   }
 
+  /**
+   * Generates the body of a method which calls its original code, renamed to `originalMethod`,
+   * through the {@link ClassHandler}; or, if no shadow can apply to the class, directly.
+   */
+  private void generateCall(MutableClass mutableClass, MethodNode originalMethod,
+      String originalMethodName, RobolectricGeneratorAdapter generator) {
+    if (mutableClass.shadowFree) {
+      generateDirectCall(mutableClass, originalMethod, originalMethodName, generator);
+    } else {
+      generateClassHandlerCall(mutableClass, originalMethod, originalMethodName, generator);
+    }
+  }
+
+  /**
+   * Generates code like this:
+   * ```java
+   * try {
+   *   return $$robo$$thisMethod(*args);
+   * } catch (Throwable t) {
+   *   throw RobolectricInternals.cleanStackTrace(t);
+   * }
+   * ```
+   */
+  protected void generateDirectCall(MutableClass mutableClass, MethodNode originalMethod,
+      String originalMethodName, RobolectricGeneratorAdapter generator) {
+    TryCatch tryCatchForDirect = generator.tryStart(THROWABLE_TYPE);
+    generator.invokeMethod(mutableClass.internalClassName, originalMethod);
+    tryCatchForDirect.end();
+    generator.returnValue();
+
+    // catch(Throwable)
+    tryCatchForDirect.handler();
+    generator.invokeStatic(ROBOLECTRIC_INTERNALS_TYPE, HANDLE_EXCEPTION_METHOD);
+    generator.throwException();
+  }
+
   // todo javadocs
   protected abstract void generateClassHandlerCall(MutableClass mutableClass,
       MethodNode originalMethod, String originalMethodName, RobolectricGeneratorAdapter generator);
@@ -0,0 +1,142 @@
+package org.robolectric.internal.bytecode;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.robolectric.util.CacheFiles;
+import org.robolectric.util.Logger;
+
+/**
+ * The classes instrumented by {@link SandboxClassLoader}s with a given configuration, in the order
+ * they were first loaded.
+ *
+ * The profile recorded during one run is saved when the JVM exits, and read back by the next run,
+ * which instruments the profiled classes on background threads before they're needed.
+ *
+ * Profiles are enabled by setting the {@value #PROFILE_DIR_PROPERTY} system property to a
+ * directory.
+ */
+@SuppressWarnings("NewApi")
+public class ClassLoadProfile {
+
+  public static final String PROFILE_DIR_PROPERTY = "robolectric.classLoadProfileDir";
+
+  private static final Map<String, ClassLoadProfile> profiles = new HashMap<>();
+  private static boolean shutdownHookRegistered;
+
+  private final Path file;
+  private final ImmutableList<String> previousClasses;
+  private final Set<String> recordedClasses = new LinkedHashSet<>();
+
+  /** Returns true if the {@value #PROFILE_DIR_PROPERTY} system property is set. */
+  public static boolean isEnabled() {
+    String profileDir = System.getProperty(PROFILE_DIR_PROPERTY);
+    return profileDir != null && !profileDir.isEmpty();
+  }
+
+  /**
+   * Returns the profile for class loaders identified by {@code key}, or null if profiles aren't
+   * enabled.
+   *
+   * @param key identifies the configuration, instrumentor, and class path of the class loaders
+   */
+  @Nullable
+  public static synchronized ClassLoadProfile forKey(String key) {
+    if (!isEnabled()) {
+      return null;
+    }
+
+    String fileName = Hashing.sha256().hashString(key, StandardCharsets.UTF_8) + ".txt";
+    Path file = Paths.get(System.getProperty(PROFILE_DIR_PROPERTY)).resolve(fileName);
+    ClassLoadProfile profile = profiles.get(file.toString());
+    if (profile == null) {
+      profile = new ClassLoadProfile(file);
+      profiles.put(file.toString(), profile);
+      if (!shutdownHookRegistered) {
+        shutdownHookRegistered = true;
+        Runtime.getRuntime()
+            .addShutdownHook(new Thread(ClassLoadProfile::saveAll, "ClassLoadProfile saver"));
+      }
+    }
+    return profile;
+  }
+
+  ClassLoadProfile(Path file) {
+    this.file = file;
+    this.previousClasses = read(file);
+  }
+
+  /**
+   * Returns the classes recorded by the previous run and so far during this one, in the order they
+   * were loaded.
+   */
+  public synchronized ImmutableList<String> getProfiledClasses() {
+    Set<String> classNames = new LinkedHashSet<>(previousClasses);
+    classNames.addAll(recordedClasses);
+    return ImmutableList.copyOf(classNames);
+  }
+
+  /** Records that a class was instrumented during this run. */
+  public synchronized void recordClass(String className) {
+    recordedClasses.add(className);
+  }
+
+  /**
+   * Writes the classes recorded during this run, replacing the previous profile. Nothing is written
+   * if no classes were recorded.
+   */
+  public void save() {
+    List<String> classNames;
+    synchronized (this) {
+      if (recordedClasses.isEmpty()) {
+        return;
+      }
+      classNames = new ArrayList<>(recordedClasses);
+    }
+
+    try {
+      CacheFiles.writeAtomically(file, out -> {
+        for (String className : classNames) {
+          out.write((className + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+      });
+    } catch (IOException e) {
+      Logger.warn("failed to write class load profile %s: %s", file, e);
+    }
+  }
+
+  private static synchronized void saveAll() {
+    for (ClassLoadProfile profile : profiles.values()) {
+      profile.save();
+    }
+  }
+
+  private static ImmutableList<String> read(Path file) {
+    try {
+      ImmutableList.Builder<String> classNames = ImmutableList.builder();
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        if (!line.isEmpty()) {
+          classNames.add(line);
+        }
+      }
+      return classNames.build();
+    } catch (NoSuchFileException e) {
+      return ImmutableList.of();
+    } catch (IOException e) {
+      Logger.warn("failed to read class load profile %s: %s", file, e);
+      return ImmutableList.of();
+    }
+  }
+}
@@ -1,16 +1,35 @@
 package org.robolectric.internal.bytecode;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.tree.ClassNode;
 
 public abstract class ClassNodeProvider {
   private final Map<String, ClassNode> classNodes = new ConcurrentHashMap<>();
+  private final ThreadLocal<Set<String>> requestedClasses = new ThreadLocal<>();
 
   protected abstract byte[] getClassBytes(String className) throws ClassNotFoundException;
 
+  /** Starts recording the names of the classes requested on the current thread. */
+  void startRecording() {
+    requestedClasses.set(new HashSet<>());
+  }
+
+  /** Returns the internal names of the classes requested since {@link #startRecording()}. */
+  Set<String> stopRecording() {
+    Set<String> requested = requestedClasses.get();
+    requestedClasses.remove();
+    return requested;
+  }
+
   ClassNode getClassNode(String internalClassName) throws ClassNotFoundException {
+    Set<String> requested = requestedClasses.get();
+    if (requested != null) {
+      requested.add(internalClassName);
+    }
     ClassNode classNode = classNodes.get(internalClassName);
     if (classNode == null) {
       classNode = createClassNode(internalClassName);
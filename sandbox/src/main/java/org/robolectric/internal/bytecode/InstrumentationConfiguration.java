@@ -3,14 +3,21 @@ package org.robolectric.internal.bytecode;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.robolectric.annotation.internal.DoNotInstrument;
 import org.robolectric.annotation.internal.Instrument;
@@ -46,7 +53,10 @@ public class InstrumentationConfiguration {
   private final Set<String> classesToNotAcquire;
   private final Set<String> packagesToNotAcquire;
   private final Set<String> packagesToNotInstrument;
+  @Nullable private final Set<String> shadowedClasses;
+  private final Set<String> classesWithInterceptedMethods;
   private int cachedHashCode;
+  private String cachedFingerprint;
 
   private final TypeMapper typeMapper;
   private final Set<MethodRef> methodsToIntercept;
@@ -60,7 +70,8 @@ public class InstrumentationConfiguration {
       Collection<String> packagesToNotAquire,
       Collection<String> classesToNotInstrument,
       Collection<String> packagesToNotInstrument,
-      String classesToNotInstrumentRegex) {
+      String classesToNotInstrumentRegex,
+      @Nullable Collection<String> shadowedClasses) {
     this.classNameTranslations = ImmutableMap.copyOf(classNameTranslations);
     this.interceptedMethods = ImmutableSet.copyOf(interceptedMethods);
     this.instrumentedPackages = ImmutableList.copyOf(instrumentedPackages);
@@ -70,6 +81,12 @@ public class InstrumentationConfiguration {
     this.classesToNotInstrument = ImmutableSet.copyOf(classesToNotInstrument);
     this.packagesToNotInstrument = ImmutableSet.copyOf(packagesToNotInstrument);
     this.classesToNotInstrumentRegex = classesToNotInstrumentRegex;
+    this.shadowedClasses = shadowedClasses == null ? null : ImmutableSet.copyOf(shadowedClasses);
+    Set<String> classesWithInterceptedMethods = new HashSet<>();
+    for (MethodRef methodRef : interceptedMethods) {
+      classesWithInterceptedMethods.add(methodRef.className);
+    }
+    this.classesWithInterceptedMethods = ImmutableSet.copyOf(classesWithInterceptedMethods);
     this.cachedHashCode = 0;
 
     this.typeMapper = new TypeMapper(classNameTranslations());
@@ -94,6 +111,27 @@ public class InstrumentationConfiguration {
         && !classMatchesExclusionRegex(mutableClass.getName());
   }
 
+  /**
+   * Determine if no shadow can ever apply to a given class, so that its instrumented methods may
+   * call their original code directly instead of dispatching through the {@link ClassHandler}.
+   *
+   * This is only known if the configuration was given the names of every shadowed class with
+   * {@link Builder#setShadowedClasses(Collection)}. Classes instrumented by name, which includes
+   * those shadowed by a test's extra shadows, and classes with intercepted methods are never
+   * considered shadow-free.
+   *
+   * @param   className The fully-qualified class name.
+   * @return  True if calls to the class's methods need not be dispatched.
+   */
+  public boolean isShadowFree(String className) {
+    return shadowedClasses != null
+        && !shadowedClasses.contains(className)
+        // shadows provided by ShadowProviders are keyed by canonical name
+        && !shadowedClasses.contains(className.replace('$', '.'))
+        && !instrumentedClasses.contains(className)
+        && !classesWithInterceptedMethods.contains(className);
+  }
+
   private boolean classMatchesExclusionRegex(String className) {
     return classesToNotInstrumentRegex != null && className.matches(classesToNotInstrumentRegex);
   }
@@ -190,6 +228,7 @@ public class InstrumentationConfiguration {
     if (!instrumentedPackages.equals(that.instrumentedPackages)) return false;
     if (!instrumentedClasses.equals(that.instrumentedClasses)) return false;
     if (!interceptedMethods.equals(that.interceptedMethods)) return false;
+    if (!Objects.equals(shadowedClasses, that.shadowedClasses)) return false;
 
 
     return true;
@@ -206,10 +245,57 @@ public class InstrumentationConfiguration {
     result = 31 * result + classNameTranslations.hashCode();
     result = 31 * result + interceptedMethods.hashCode();
     result = 31 * result + classesToNotAcquire.hashCode();
+    result = 31 * result + Objects.hashCode(shadowedClasses);
     cachedHashCode = result;
     return result;
   }
 
+  /**
+   * Returns a digest of every rule in this configuration.
+   *
+   * Unlike {@link #hashCode()}, the fingerprint covers all rules and is stable across JVMs, so it
+   * may be used to key instrumented bytecode that is persisted between runs.
+   *
+   * @return a hex-encoded SHA-256 digest of this configuration
+   */
+  public String fingerprint() {
+    if (cachedFingerprint != null) {
+      return cachedFingerprint;
+    }
+
+    Hasher hasher = Hashing.sha256().newHasher();
+    putStrings(hasher, "instrumentedPackages", instrumentedPackages);
+    putStrings(hasher, "instrumentedClasses", instrumentedClasses);
+    putStrings(hasher, "classesToNotInstrument", classesToNotInstrument);
+    putStrings(hasher, "classesToNotAcquire", classesToNotAcquire);
+    putStrings(hasher, "packagesToNotAcquire", packagesToNotAcquire);
+    putStrings(hasher, "packagesToNotInstrument", packagesToNotInstrument);
+    List<String> translations = new ArrayList<>();
+    for (Map.Entry<String, String> entry : classNameTranslations.entrySet()) {
+      translations.add(entry.getKey() + "=" + entry.getValue());
+    }
+    putStrings(hasher, "classNameTranslations", translations);
+    List<String> methods = new ArrayList<>();
+    for (MethodRef methodRef : interceptedMethods) {
+      methods.add(methodRef.className + "#" + methodRef.methodName);
+    }
+    putStrings(hasher, "interceptedMethods", methods);
+    hasher.putString("classesToNotInstrumentRegex=" + classesToNotInstrumentRegex + "\n",
+        StandardCharsets.UTF_8);
+    if (shadowedClasses != null) {
+      putStrings(hasher, "shadowedClasses", shadowedClasses);
+    }
+    cachedFingerprint = hasher.hash().toString();
+    return cachedFingerprint;
+  }
+
+  private static void putStrings(Hasher hasher, String name, Collection<String> strings) {
+    hasher.putString(name + ":\n", StandardCharsets.UTF_8);
+    for (String string : Ordering.natural().sortedCopy(strings)) {
+      hasher.putString(string + "\n", StandardCharsets.UTF_8);
+    }
+  }
+
   public String remapParamType(String desc) {
     return typeMapper.remapParamType(desc);
   }
@@ -250,7 +336,7 @@ public class InstrumentationConfiguration {
     public final Collection<String> classesToNotInstrument = new HashSet<>();
     public final Collection<String> packagesToNotInstrument = new HashSet<>();
     public String classesToNotInstrumentRegex;
-
+    public Collection<String> shadowedClasses;
 
     public Builder() {
     }
@@ -265,6 +351,7 @@ public class InstrumentationConfiguration {
       classesToNotInstrument.addAll(classLoaderConfig.classesToNotInstrument);
       packagesToNotInstrument.addAll(classLoaderConfig.packagesToNotInstrument);
       classesToNotInstrumentRegex = classLoaderConfig.classesToNotInstrumentRegex;
+      shadowedClasses = classLoaderConfig.shadowedClasses;
     }
 
     public Builder doNotAcquireClass(Class<?> clazz) {
@@ -317,6 +404,20 @@ public class InstrumentationConfiguration {
       return this;
     }
 
+    /**
+     * Sets the names of all classes which may be shadowed. Once set, the instrumented methods of
+     * any other class call their original code directly, with no shadow dispatch.
+     *
+     * The set is usually large and the same for every test, so an {@link ImmutableSet} is shared
+     * by the configurations built with it rather than copied.
+     *
+     * @see InstrumentationConfiguration#isShadowFree(String)
+     */
+    public Builder setShadowedClasses(Collection<String> classNames) {
+      this.shadowedClasses = ImmutableSet.copyOf(classNames);
+      return this;
+    }
+
 
       public InstrumentationConfiguration build() {
       return new InstrumentationConfiguration(
@@ -328,7 +429,8 @@ public class InstrumentationConfiguration {
           packagesToNotAcquire,
           classesToNotInstrument,
           packagesToNotInstrument,
-          classesToNotInstrumentRegex);
+          classesToNotInstrumentRegex,
+          shadowedClasses);
     }
   }
 }
@@ -0,0 +1,191 @@
+package org.robolectric.internal.bytecode;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.robolectric.util.CacheFiles;
+import org.robolectric.util.Logger;
+
+/**
+ * Content-addressed disk cache of instrumented class bytes, shared between JVMs.
+ *
+ * Entries are keyed by a hash of the original class bytes, the {@link
+ * InstrumentationConfiguration#fingerprint()}, the {@link ClassInstrumentor} in use, and the
+ * Robolectric version, so a stale entry is never looked up; it's simply orphaned.
+ *
+ * The instrumented form of a class also depends on the classes consulted while computing its
+ * stack map frames, which may differ between sandboxes (e.g. those for different SDKs) and between
+ * runs. Each entry records a hash of every consulted class, and is only used if those classes are
+ * unchanged in the sandbox looking it up; otherwise the class is instrumented again and the entry
+ * is replaced.
+ *
+ * Several forked test JVMs may share a cache directory. Each entry is written to a temporary file
+ * and atomically renamed into place, so readers only ever see complete entries, and concurrent
+ * writers of the same entry produce identical bytes.
+ *
+ * The cache is enabled by setting the {@value #CACHE_DIR_PROPERTY} system property to a directory.
+ */
+@SuppressWarnings("NewApi")
+public class InstrumentedClassCache {
+
+  public static final String CACHE_DIR_PROPERTY = "robolectric.instrumentedClassCacheDir";
+
+  private static final int ENTRY_FORMAT = 2;
+
+  private static InstrumentedClassCache instance;
+
+  private final Path cacheDir;
+  private final String version;
+
+  /**
+   * Returns the cache configured by the {@value #CACHE_DIR_PROPERTY} system property, or null if
+   * no cache is configured.
+   */
+  @Nullable
+  public static synchronized InstrumentedClassCache getInstance() {
+    String cacheDir = System.getProperty(CACHE_DIR_PROPERTY);
+    if (cacheDir == null || cacheDir.isEmpty()) {
+      return null;
+    }
+
+    Path cachePath = Paths.get(cacheDir);
+    if (instance == null || !instance.cacheDir.equals(cachePath)) {
+      instance =
+          new InstrumentedClassCache(
+              cachePath, CacheFiles.robolectricVersion(InstrumentedClassCache.class));
+    }
+    return instance;
+  }
+
+  public InstrumentedClassCache(Path cacheDir, String version) {
+    this.cacheDir = cacheDir;
+    this.version = version;
+  }
+
+  /**
+   * Computes the cache key for a class.
+   *
+   * @param origClassBytes the uninstrumented class bytes
+   * @param instrumentationFingerprint identifies the configuration and instrumentor in use
+   * @return the key for the instrumented form of the class
+   */
+  public String keyFor(byte[] origClassBytes, String instrumentationFingerprint) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putInt(ENTRY_FORMAT);
+    hasher.putString(version, StandardCharsets.UTF_8);
+    hasher.putByte((byte) 0);
+    hasher.putString(instrumentationFingerprint, StandardCharsets.UTF_8);
+    hasher.putByte((byte) 0);
+    hasher.putBytes(origClassBytes);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the cached instrumented bytes for {@code key}, or null if there's no such entry or any
+   * of the classes consulted while instrumenting it have changed.
+   *
+   * @param classHashes returns the current {@link #hashClass(byte[]) hash} of a consulted class,
+   *     given its internal name, or null if it can't be found
+   */
+  @Nullable
+  public byte[] get(String key, Function<String, String> classHashes) {
+    byte[] entry;
+    try {
+      entry = Files.readAllBytes(pathFor(key));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      Logger.warn("failed to read instrumented class cache entry %s: %s", key, e);
+      return null;
+    }
+
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry))) {
+      int consultedClassCount = in.readInt();
+      for (int i = 0; i < consultedClassCount; i++) {
+        String internalClassName = in.readUTF();
+        String hash = in.readUTF();
+        if (!hash.equals(classHashes.apply(internalClassName))) {
+          return null;
+        }
+      }
+      byte[] instrumentedBytes = new byte[in.readInt()];
+      in.readFully(instrumentedBytes);
+      return instrumentedBytes;
+    } catch (IOException e) {
+      Logger.warn("failed to read instrumented class cache entry %s: %s", key, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the instrumented bytes for {@code key}, replacing any entry which was instrumented
+   * against different consulted classes. Failures are logged and otherwise ignored; the cache is
+   * only an optimization.
+   *
+   * @param consultedClassHashes the {@link #hashClass(byte[]) hashes} of the classes consulted
+   *     while instrumenting the class, keyed by internal name
+   */
+  public void put(String key, byte[] instrumentedBytes, Map<String, String> consultedClassHashes) {
+    Path path = pathFor(key);
+    if (consultedClassHashes.equals(readConsultedClassHashes(path))) {
+      return;
+    }
+
+    try {
+      CacheFiles.writeAtomically(path, out -> {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(consultedClassHashes.size());
+        for (Map.Entry<String, String> consultedClass : consultedClassHashes.entrySet()) {
+          dataOut.writeUTF(consultedClass.getKey());
+          dataOut.writeUTF(consultedClass.getValue());
+        }
+        dataOut.writeInt(instrumentedBytes.length);
+        dataOut.write(instrumentedBytes);
+        dataOut.flush();
+      });
+    } catch (IOException e) {
+      Logger.warn("failed to write instrumented class cache entry %s: %s", key, e);
+    }
+  }
+
+  /**
+   * Returns the consulted class hashes recorded in the entry at {@code path}, or null if there's no
+   * readable entry there.
+   */
+  @Nullable
+  private static Map<String, String> readConsultedClassHashes(Path path) {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      int consultedClassCount = in.readInt();
+      Map<String, String> consultedClassHashes = new HashMap<>();
+      for (int i = 0; i < consultedClassCount; i++) {
+        consultedClassHashes.put(in.readUTF(), in.readUTF());
+      }
+      return consultedClassHashes;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /** Hashes the bytes of a class consulted while instrumenting another. */
+  public static String hashClass(byte[] classBytes) {
+    return Hashing.sha256().hashBytes(classBytes).toString();
+  }
+
+  private Path pathFor(String key) {
+    return cacheDir.resolve(key.substring(0, 2)).resolve(key.substring(2) + ".class");
+  }
+}
@@ -6,6 +6,8 @@ import static java.lang.invoke.MethodHandles.dropArguments;
 import static java.lang.invoke.MethodHandles.exactInvoker;
 import static java.lang.invoke.MethodHandles.filterArguments;
 import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.guardWithTest;
+import static java.lang.invoke.MethodHandles.insertArguments;
 import static java.lang.invoke.MethodHandles.throwException;
 import static java.lang.invoke.MethodType.methodType;
 import static org.robolectric.internal.bytecode.MethodCallSite.Kind.REGULAR;
@@ -18,25 +20,37 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.SwitchPoint;
 import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
 import org.robolectric.util.ReflectionHelpers;
 
 public class InvokeDynamicSupport {
   @SuppressWarnings("unused")
   private static Interceptors INTERCEPTORS;
 
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
   private static final MethodHandle BIND_CALL_SITE;
   private static final MethodHandle BIND_INIT_CALL_SITE;
+  private static final MethodHandle BIND_RECEIVER_CLASS;
+  private static final MethodHandle BIND_ANY_RECEIVER_CLASS;
+  private static final MethodHandle IS_EXACTLY;
   private static final MethodHandle EXCEPTION_HANDLER;
   private static final MethodHandle GET_SHADOW;
 
   static {
     try {
-      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      MethodHandles.Lookup lookup = LOOKUP;
 
       BIND_CALL_SITE = lookup.findStatic(InvokeDynamicSupport.class, "bindCallSite",
           methodType(MethodHandle.class, MethodCallSite.class));
       BIND_INIT_CALL_SITE = lookup.findStatic(InvokeDynamicSupport.class, "bindInitCallSite",
           methodType(MethodHandle.class, RoboCallSite.class));
+      BIND_RECEIVER_CLASS = lookup.findStatic(InvokeDynamicSupport.class, "bindReceiverClass",
+          methodType(MethodHandle.class, MethodCallSite.class, MethodHandle.class, Object.class));
+      BIND_ANY_RECEIVER_CLASS = lookup.findStatic(InvokeDynamicSupport.class,
+          "bindAnyReceiverClass",
+          methodType(MethodHandle.class, MethodCallSite.class, MethodHandle.class));
+      IS_EXACTLY = lookup.findStatic(InvokeDynamicSupport.class, "isExactly",
+          methodType(boolean.class, Class.class, Object.class));
       MethodHandle cleanStackTrace = lookup.findStatic(RobolectricInternals.class, "cleanStackTrace",
           methodType(Throwable.class, Throwable.class));
       EXCEPTION_HANDLER = filterArguments(throwException(void.class, Throwable.class), 0, cleanStackTrace);
@@ -128,9 +142,11 @@ public class InvokeDynamicSupport {
       // no-op
       mh = dropArguments(mh, 0, site.type().parameterList());
     } else if (!site.isStatic()) {
-      // drop arg 0 (this) for static methods
-      Class<?> shadowType = mh.type().parameterType(0);
-      mh = filterArguments(mh, 0, GET_SHADOW.asType(methodType(shadowType, site.thisType())));
+      // the shadow is found from the receiver, so wait for the first call to see its class
+      MethodHandle bindReceiverClass = insertArguments(BIND_RECEIVER_CLASS, 0, site, mh)
+          .asType(methodType(MethodHandle.class, site.thisType()));
+      return bindWithFallback(site, foldArguments(exactInvoker(site.type()), bindReceiverClass),
+          BIND_CALL_SITE);
     }
 
     try {
@@ -144,6 +160,60 @@ public class InvokeDynamicSupport {
     }
   }
 
+  /**
+   * Binds an instance method call site to a shadow method, specialized for the class of the first
+   * receiver it's called with: while receivers are of exactly that class, the shadow is read
+   * directly from its field rather than through {@link ShadowedObject}, so that the call can be
+   * inlined. The first receiver of another class rebinds the site for any receiver.
+   */
+  private static MethodHandle bindReceiverClass(
+      MethodCallSite site, MethodHandle shadowMethod, Object receiver) {
+    MethodHandle getShadow = receiver == null ? null : findShadowGetter(receiver.getClass());
+    if (getShadow == null) {
+      return bindAnyReceiverClass(site, shadowMethod);
+    }
+
+    MethodType type = site.type();
+    Class<?> shadowType = shadowMethod.type().parameterType(0);
+    MethodHandle fastPath = filterArguments(shadowMethod, 0,
+        getShadow.asType(methodType(shadowType, site.thisType())));
+    MethodHandle test = dropArguments(
+        IS_EXACTLY.bindTo(receiver.getClass()).asType(methodType(boolean.class, site.thisType())),
+        1, type.dropParameterTypes(0, 1).parameterList());
+    MethodHandle rebind = foldArguments(exactInvoker(type),
+        insertArguments(BIND_ANY_RECEIVER_CLASS, 0, site, shadowMethod));
+    return bindWithFallback(site,
+        guardWithTest(test, cleanStackTraces(fastPath).asType(type), rebind), BIND_CALL_SITE);
+  }
+
+  /** Binds an instance method call site to a shadow method, for receivers of any class. */
+  private static MethodHandle bindAnyReceiverClass(
+      MethodCallSite site, MethodHandle shadowMethod) {
+    Class<?> shadowType = shadowMethod.type().parameterType(0);
+    MethodHandle mh = filterArguments(shadowMethod, 0,
+        GET_SHADOW.asType(methodType(shadowType, site.thisType())));
+    return bindWithFallback(site, cleanStackTraces(mh), BIND_CALL_SITE);
+  }
+
+  /**
+   * Returns a getter for the field holding the shadow of instances of {@code receiverClass}, which
+   * is the field read by their {@link ShadowedObject#$$robo$getData()}, or null if there's none.
+   */
+  private static MethodHandle findShadowGetter(Class<?> receiverClass) {
+    try {
+      Field field = receiverClass.getField(ShadowConstants.CLASS_HANDLER_DATA_FIELD_NAME);
+      field.setAccessible(true);
+      return LOOKUP.unreflectGetter(field);
+    } catch (NoSuchFieldException | IllegalAccessException | SecurityException e) {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private static boolean isExactly(Class<?> theClass, Object receiver) {
+    return receiver != null && receiver.getClass() == theClass;
+  }
+
   private static MethodHandle bindWithFallback(RoboCallSite site, MethodHandle mh,
       MethodHandle fallback) {
     SwitchPoint switchPoint = getInvalidator(site.getTheClass());
@@ -16,6 +16,7 @@ public class MutableClass {
   final InstrumentationConfiguration config;
   final ClassNodeProvider classNodeProvider;
   final boolean containsStubs;
+  final boolean shadowFree;
 
   final String internalClassName;
   private final String className;
@@ -31,6 +32,7 @@ public class MutableClass {
     this.className = classNode.name.replace('/', '.');
     this.classType = Type.getObjectType(internalClassName);
     this.containsStubs = config.containsStubs(className);
+    this.shadowFree = config.isShadowFree(className);
 
     List<String> foundMethods = new ArrayList<>(classNode.methods.size());
     for (MethodNode methodNode : getMethods()) {
@@ -72,6 +72,14 @@ public class OldClassInstrumentor extends ClassInstrumentor {
     generateCallToClassHandler(mutableClass, originalMethod, originalMethodName, generator);
   }
 
+  @Override
+  protected void generateDirectCall(MutableClass mutableClass, MethodNode originalMethod,
+      String originalMethodName, RobolectricGeneratorAdapter generator) {
+    // direct call proxies still need to be redirected to their target
+    decorator.decorateMethodPreClassHandler(mutableClass, originalMethod, originalMethodName, generator);
+    super.generateDirectCall(mutableClass, originalMethod, originalMethodName, generator);
+  }
+
   /**
    * Generates codelike this:
    * ```java
@@ -0,0 +1,123 @@
+package org.robolectric.internal.bytecode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.robolectric.util.Logger;
+import org.robolectric.util.Util;
+
+/**
+ * Support for jars whose classes were instrumented ahead of time by {@link
+ * org.robolectric.JarInstrumentor}.
+ *
+ * Such jars contain the original classes, the instrumented classes under {@value
+ * #INSTRUMENTED_CLASSES_DIR}, and a {@value #MARKER_ENTRY} entry recording the {@link
+ * #instrumentationFingerprint(InstrumentationConfiguration, ClassInstrumentor)} they were
+ * instrumented with. {@link SandboxClassLoader} only uses the instrumented classes from a jar
+ * whose fingerprint matches its own configuration and instrumentor; otherwise, the original
+ * classes are instrumented at runtime as usual.
+ */
+public class PreinstrumentedJars {
+
+  public static final String MARKER_ENTRY = "META-INF/robolectric-instrumentation.properties";
+  public static final String INSTRUMENTED_CLASSES_DIR = "META-INF/robolectric-instrumented/";
+  public static final String FINGERPRINT_PROPERTY = "instrumentation.fingerprint";
+
+  private static final Map<String, String> fingerprintsByJar = new ConcurrentHashMap<>();
+
+  private final Set<String> matchingJars;
+
+  /**
+   * Returns an identifier for the bytecode produced by instrumenting classes with the given
+   * configuration and instrumentor.
+   */
+  public static String instrumentationFingerprint(
+      InstrumentationConfiguration config, ClassInstrumentor classInstrumentor) {
+    return config.fingerprint() + ":" + classInstrumentor.getClass().getName();
+  }
+
+  /**
+   * Finds which of {@code urls} are jars instrumented with {@code fingerprint}.
+   *
+   * @return null if none of them are
+   */
+  static PreinstrumentedJars find(URL[] urls, String fingerprint) {
+    Set<String> matchingJars = new HashSet<>();
+    for (URL url : urls) {
+      if (url.getPath().endsWith(".jar")
+          && fingerprint.equals(readFingerprint(url.toExternalForm()))) {
+        matchingJars.add(url.toExternalForm());
+      }
+    }
+    return matchingJars.isEmpty() ? null : new PreinstrumentedJars(matchingJars);
+  }
+
+  private PreinstrumentedJars(Set<String> matchingJars) {
+    this.matchingJars = matchingJars;
+  }
+
+  /**
+   * Returns the instrumented bytes for a class, or null if the class wasn't instrumented ahead of
+   * time with a matching configuration.
+   *
+   * @param className the binary name of the class
+   * @param resourceProvider the provider the original class would be loaded from
+   */
+  byte[] getInstrumentedBytes(String className, ResourceProvider resourceProvider)
+      throws IOException {
+    String classFileName = className.replace('.', '/') + ".class";
+    URL instrumentedUrl = resourceProvider.getResource(INSTRUMENTED_CLASSES_DIR + classFileName);
+    String jar = jarOf(instrumentedUrl);
+    if (jar == null
+        || !matchingJars.contains(jar)
+        // make sure the class isn't provided by some other jar which takes precedence
+        || !jar.equals(jarOf(resourceProvider.getResource(classFileName)))) {
+      return null;
+    }
+
+    try (InputStream in = instrumentedUrl.openStream()) {
+      return Util.readBytes(in);
+    }
+  }
+
+  private static String jarOf(URL url) {
+    if (url == null || !"jar".equals(url.getProtocol())) {
+      return null;
+    }
+    String path = url.getPath();
+    int separator = path.indexOf("!/");
+    return separator == -1 ? null : path.substring(0, separator);
+  }
+
+  private static String readFingerprint(String jarUrl) {
+    return fingerprintsByJar.computeIfAbsent(jarUrl, PreinstrumentedJars::loadFingerprint);
+  }
+
+  private static String loadFingerprint(String jarUrl) {
+    try {
+      URLConnection connection = new URL("jar:" + jarUrl + "!/" + MARKER_ENTRY).openConnection();
+      // don't hold the jar open; the class loader has its own handle
+      connection.setUseCaches(false);
+      try (InputStream in = connection.getInputStream()) {
+        Properties properties = new Properties();
+        properties.load(in);
+        return properties.getProperty(FINGERPRINT_PROPERTY, "");
+      }
+    } catch (MalformedURLException e) {
+      throw new RuntimeException(e);
+    } catch (IOException e) {
+      // no marker; not pre-instrumented
+      return "";
+    } catch (RuntimeException e) {
+      Logger.warn("failed to check %s for pre-instrumented classes: %s", jarUrl, e);
+      return "";
+    }
+  }
+}
@@ -30,6 +30,7 @@ public class Sandbox {
   public Sandbox(SandboxClassLoader sandboxClassLoader) {
     this.sandboxClassLoader = sandboxClassLoader;
     executorService = Executors.newSingleThreadExecutor(mainThreadFactory());
+    sandboxClassLoader.startSpeculativeInstrumentation();
   }
 
   protected ThreadFactory mainThreadFactory() {
@@ -48,6 +49,14 @@ public class Sandbox {
     return sandboxClassLoader;
   }
 
+  /**
+   * Called when a test has finished running in this sandbox, so that work done ahead of time for
+   * classes it never loaded can be released.
+   */
+  public void afterTest() {
+    sandboxClassLoader.discardSpeculations();
+  }
+
   private ShadowInvalidator getShadowInvalidator() {
     if (shadowInvalidator == null) {
       this.shadowInvalidator = new ShadowInvalidator();
@@ -56,10 +65,19 @@ public class Sandbox {
   }
 
   public void replaceShadowMap(ShadowMap shadowMap) {
+    ShadowMap oldShadowMap = this.shadowMap;
+    this.shadowMap = shadowMap;
+    Set<String> invalidatedClasses = shadowMap.getInvalidatedClasses(oldShadowMap);
+    InstrumentationConfiguration config = sandboxClassLoader.getConfig();
+    for (String className : invalidatedClasses) {
+      // such classes are instrumented without shadow dispatch, so the shadow would be ignored
+      if (config.isShadowFree(className)) {
+        throw new IllegalStateException(className + " is shadowed but isn't one of the shadowed"
+            + " or instrumented classes of this sandbox's InstrumentationConfiguration");
+      }
+    }
+
     if (InvokeDynamic.ENABLED) {
-      ShadowMap oldShadowMap = this.shadowMap;
-      this.shadowMap = shadowMap;
-      Set<String> invalidatedClasses = shadowMap.getInvalidatedClasses(oldShadowMap);
       getShadowInvalidator().invalidateClasses(invalidatedClasses);
     }
   }
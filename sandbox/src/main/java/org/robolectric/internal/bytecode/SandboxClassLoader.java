@@ -4,14 +4,29 @@ import static com.google.common.base.StandardSystemProperty.JAVA_CLASS_PATH;
 import static com.google.common.base.StandardSystemProperty.PATH_SEPARATOR;
 import static org.robolectric.util.ReflectionHelpers.ClassParameter.from;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 import org.robolectric.util.Logger;
 import org.robolectric.util.PerfStatsCollector;
@@ -23,11 +38,24 @@ import org.robolectric.util.Util;
  * shadow classes.
  */
 public class SandboxClassLoader extends URLClassLoader {
+  private static ExecutorService speculationExecutor;
+
   private final ClassLoader erstwhileClassLoader;
   private final InstrumentationConfiguration config;
   private final ResourceProvider resourceProvider;
   private final ClassInstrumentor classInstrumentor;
   private final ClassNodeProvider classNodeProvider;
+  private final InstrumentedClassCache instrumentedClassCache;
+  private final SharedInstrumentedClasses sharedInstrumentedClasses;
+  private String instrumentationFingerprint;
+  private PreinstrumentedJars preinstrumentedJars;
+  private boolean preinstrumentedJarsChecked;
+  private final ClassLoadProfile classLoadProfile;
+  private final AtomicBoolean speculationStarted = new AtomicBoolean();
+  private final Map<String, Speculation> speculations = new ConcurrentHashMap<>();
+  private final Map<String, String> classHashes = new ConcurrentHashMap<>();
+  private final AtomicInteger loadedClassCount = new AtomicInteger();
+  private final AtomicLong loadedClassBytes = new AtomicLong();
 
   /** Constructor for use by tests. */
   SandboxClassLoader(InstrumentationConfiguration config) {
@@ -52,6 +80,9 @@ public class SandboxClassLoader extends URLClassLoader {
     this.resourceProvider = resourceProvider;
 
     this.classInstrumentor = classInstrumentor;
+    this.instrumentedClassCache = InstrumentedClassCache.getInstance();
+    this.sharedInstrumentedClasses =
+        resourceProvider instanceof URLClassLoader ? SharedInstrumentedClasses.getInstance() : null;
 
     classNodeProvider = new ClassNodeProvider() {
       @Override
@@ -59,6 +90,9 @@ public class SandboxClassLoader extends URLClassLoader {
         return getByteCode(internalClassName);
       }
     };
+
+    this.classLoadProfile =
+        ClassLoadProfile.isEnabled() ? ClassLoadProfile.forKey(getClassLoadProfileKey()) : null;
   }
 
   private static URL[] getClassPathUrls(ClassLoader classloader) {
@@ -130,28 +164,301 @@ public class SandboxClassLoader extends URLClassLoader {
   }
 
   protected Class<?> maybeInstrumentClass(String className) throws ClassNotFoundException {
-    final byte[] origClassBytes = getByteCode(className);
+    byte[] preinstrumentedBytes = getPreinstrumentedBytes(className);
+    if (preinstrumentedBytes != null) {
+      return defineInstrumentedClass(className, preinstrumentedBytes);
+    }
+
+    Speculation speculation = speculations.remove(className);
+    if (speculation != null) {
+      ClassBytes speculativeBytes =
+          PerfStatsCollector.getInstance()
+              .measure("wait for speculatively instrumented class", speculation::take);
+      if (speculativeBytes != null) {
+        return defineClass(className, speculativeBytes);
+      }
+    }
+
+    return defineClass(className, getClassBytes(className));
+  }
+
+  /**
+   * Returns the bytes to define for a class. If it's instrumented, they're taken from the shared
+   * or disk caches if possible, and otherwise computed and added to them. Called on background
+   * threads for speculative instrumentation, so it mustn't define or load any classes.
+   */
+  private ClassBytes getClassBytes(String className) throws ClassNotFoundException {
+    byte[] origClassBytes = getByteCode(className);
 
-    MutableClass mutableClass = PerfStatsCollector.getInstance().measure("analyze class",
-        () -> classInstrumentor.analyzeClass(origClassBytes, config, classNodeProvider)
-    );
+    String sharedKey = getSharedKey(origClassBytes);
+    if (sharedKey != null) {
+      byte[] sharedBytes = sharedInstrumentedClasses.get(sharedKey);
+      if (sharedBytes != null) {
+        return new ClassBytes(sharedBytes, true);
+      }
+    }
+
+    String cacheKey =
+        instrumentedClassCache == null
+            ? null
+            : instrumentedClassCache.keyFor(origClassBytes, getInstrumentationFingerprint());
+    if (cacheKey != null) {
+      byte[] cachedBytes =
+          PerfStatsCollector.getInstance()
+              .measure("read cached instrumented class", () -> getCachedBytes(cacheKey));
+      if (cachedBytes != null) {
+        return new ClassBytes(cachedBytes, true);
+      }
+    }
 
+    boolean recording = sharedKey != null || cacheKey != null;
+    if (recording) {
+      classNodeProvider.startRecording();
+    }
     try {
-      final byte[] bytes;
-      if (config.shouldInstrument(mutableClass)) {
-        bytes = PerfStatsCollector.getInstance().measure("instrument class",
+      MutableClass mutableClass = PerfStatsCollector.getInstance().measure("analyze class",
+          () -> classInstrumentor.analyzeClass(origClassBytes, config, classNodeProvider)
+      );
+
+      try {
+        if (!config.shouldInstrument(mutableClass)) {
+          byte[] bytes = postProcessUninstrumentedClass(mutableClass, origClassBytes);
+          return new ClassBytes(bytes, false);
+        }
+
+        byte[] bytes = PerfStatsCollector.getInstance().measure("instrument class",
             () -> classInstrumentor.instrumentToBytes(mutableClass)
         );
-      } else {
-        bytes = postProcessUninstrumentedClass(mutableClass, origClassBytes);
+        Set<String> consultedClasses = recording ? classNodeProvider.stopRecording() : null;
+        if (cacheKey != null) {
+          cacheBytes(cacheKey, bytes, consultedClasses);
+        }
+        if (sharedKey != null) {
+          maybeShare(className, sharedKey, bytes, consultedClasses);
+        }
+        return new ClassBytes(bytes, true);
+      } catch (Exception e) {
+        throw new ClassNotFoundException("couldn't load " + className, e);
+      } catch (OutOfMemoryError e) {
+        System.err.println("[ERROR] couldn't load " + className + " in " + this);
+        throw e;
+      }
+    } finally {
+      if (recording) {
+        classNodeProvider.stopRecording();
+      }
+    }
+  }
+
+  private String getSharedKey(byte[] origClassBytes) {
+    return sharedInstrumentedClasses == null
+        ? null
+        : sharedInstrumentedClasses.keyFor(origClassBytes, getInstrumentationFingerprint());
+  }
+
+  /**
+   * Shares the instrumented bytes for a class with other sandboxes, unless the class or any of the
+   * classes consulted while instrumenting it came from this sandbox's own class path, in which
+   * case another sandbox could instrument it differently.
+   */
+  private void maybeShare(
+      String className, String sharedKey, byte[] bytes, Set<String> consultedClasses) {
+    URLClassLoader sandboxClassPath = (URLClassLoader) resourceProvider;
+    if (consultedClasses == null
+        || sandboxClassPath.findResource(className.replace('.', '/') + ".class") != null) {
+      return;
+    }
+    for (String internalClassName : consultedClasses) {
+      if (sandboxClassPath.findResource(internalClassName + ".class") != null) {
+        return;
+      }
+    }
+    sharedInstrumentedClasses.put(sharedKey, bytes);
+  }
+
+  /**
+   * Returns the instrumented bytes for a class from the disk cache, if they were computed from the
+   * same versions of the classes this loader would consult while instrumenting it.
+   */
+  private byte[] getCachedBytes(String cacheKey) {
+    return instrumentedClassCache.get(cacheKey, this::hashClass);
+  }
+
+  private void cacheBytes(String cacheKey, byte[] bytes, Set<String> consultedClasses) {
+    Map<String, String> consultedClassHashes = new TreeMap<>();
+    for (String internalClassName : consultedClasses) {
+      String hash = hashClass(internalClassName);
+      if (hash == null) {
+        return;
+      }
+      consultedClassHashes.put(internalClassName, hash);
+    }
+    instrumentedClassCache.put(cacheKey, bytes, consultedClassHashes);
+  }
+
+  /** Returns the hash of a class as this loader sees it, or null if it can't be found. */
+  private String hashClass(String internalClassName) {
+    String hash = classHashes.get(internalClassName);
+    if (hash == null) {
+      try {
+        hash = InstrumentedClassCache.hashClass(getByteCode(internalClassName));
+      } catch (ClassNotFoundException e) {
+        return null;
+      }
+      classHashes.put(internalClassName, hash);
+    }
+    return hash;
+  }
+
+  private Class<?> defineClass(String className, ClassBytes classBytes) {
+    return classBytes.instrumented
+        ? defineInstrumentedClass(className, classBytes.bytes)
+        : defineSandboxClass(className, classBytes.bytes);
+  }
+
+  private Class<?> defineInstrumentedClass(String className, byte[] bytes) {
+    if (classLoadProfile != null) {
+      classLoadProfile.recordClass(className);
+    }
+    return defineSandboxClass(className, bytes);
+  }
+
+  private Class<?> defineSandboxClass(String className, byte[] bytes) {
+    ensurePackage(className);
+    Class<?> definedClass = defineClass(className, bytes, 0, bytes.length);
+    loadedClassCount.incrementAndGet();
+    loadedClassBytes.addAndGet(bytes.length);
+    return definedClass;
+  }
+
+  InstrumentationConfiguration getConfig() {
+    return config;
+  }
+
+  /**
+   * Returns true if the named class has been loaded by this loader. Classes which this loader
+   * delegates to its parent are considered loaded, since they may be shared with other loaders.
+   */
+  public boolean isClassLoaded(String className) {
+    return !config.shouldAcquire(className) || findLoadedClass(className) != null;
+  }
+
+  /** Returns the number of classes loaded (rather than delegated to the parent) by this loader. */
+  public int getLoadedClassCount() {
+    return loadedClassCount.get();
+  }
+
+  /**
+   * Returns the total size of the bytecode of the classes loaded by this loader, a rough measure of
+   * the memory they occupy.
+   */
+  public long getLoadedClassBytes() {
+    return loadedClassBytes.get();
+  }
+
+  private String getClassLoadProfileKey() {
+    String key = getInstrumentationFingerprint();
+    if (resourceProvider instanceof URLClassLoader) {
+      key += Arrays.toString(((URLClassLoader) resourceProvider).getURLs());
+    }
+    return key;
+  }
+
+  /**
+   * Instruments the classes loaded with this configuration during the previous run on background
+   * threads, so they're usually ready by the time they're needed. Does nothing unless class load
+   * profiles are enabled, or if it has already been called.
+   *
+   * This is called once the loader has been constructed, since the background threads use it.
+   */
+  public void startSpeculativeInstrumentation() {
+    if (classLoadProfile == null || !speculationStarted.compareAndSet(false, true)) {
+      return;
+    }
+
+    findPreinstrumentedJars();
+    if (preinstrumentedJars != null) {
+      // nothing much to gain
+      return;
+    }
+
+    ExecutorService executor = getSpeculationExecutor();
+    for (String className : classLoadProfile.getProfiledClasses()) {
+      if (config.shouldAcquire(className)) {
+        Speculation speculation = new Speculation(className);
+        speculations.put(className, speculation);
+        executor.execute(speculation);
       }
-      ensurePackage(className);
-      return defineClass(className, bytes, 0, bytes.length);
-    } catch (Exception e) {
+    }
+  }
+
+  /**
+   * Drops the speculatively instrumented classes that haven't been loaded yet. Called once the
+   * first test has run in this sandbox; classes it didn't need are unlikely to be needed later, so
+   * keeping their bytes would only waste memory for the sandbox's lifetime.
+   */
+  public void discardSpeculations() {
+    for (Iterator<Speculation> it = speculations.values().iterator(); it.hasNext(); ) {
+      it.next().cancel();
+      it.remove();
+    }
+  }
+
+  /** Returns the number of speculatively instrumented classes which haven't been loaded yet. */
+  @VisibleForTesting
+  int getPendingSpeculationCount() {
+    return speculations.size();
+  }
+
+  private static synchronized ExecutorService getSpeculationExecutor() {
+    if (speculationExecutor == null) {
+      speculationExecutor =
+          Executors.newFixedThreadPool(
+              Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+              new ThreadFactoryBuilder()
+                  .setNameFormat("speculative-instrumentation-%d")
+                  .setDaemon(true)
+                  .build());
+    }
+    return speculationExecutor;
+  }
+
+  private String getInstrumentationFingerprint() {
+    if (instrumentationFingerprint == null) {
+      instrumentationFingerprint =
+          PreinstrumentedJars.instrumentationFingerprint(config, classInstrumentor);
+    }
+    return instrumentationFingerprint;
+  }
+
+  /**
+   * Returns the bytes of the class if it will be loaded from a jar which was instrumented ahead of
+   * time with the same configuration, or null otherwise.
+   */
+  private byte[] getPreinstrumentedBytes(String className) throws ClassNotFoundException {
+    findPreinstrumentedJars();
+    if (preinstrumentedJars == null) {
+      return null;
+    }
+
+    try {
+      return PerfStatsCollector.getInstance()
+          .measure(
+              "read pre-instrumented class",
+              () -> preinstrumentedJars.getInstrumentedBytes(className, resourceProvider));
+    } catch (IOException e) {
       throw new ClassNotFoundException("couldn't load " + className, e);
-    } catch (OutOfMemoryError e) {
-      System.err.println("[ERROR] couldn't load " + className + " in " + this);
-      throw e;
+    }
+  }
+
+  private void findPreinstrumentedJars() {
+    if (!preinstrumentedJarsChecked) {
+      preinstrumentedJarsChecked = true;
+      if (resourceProvider instanceof URLClassLoader) {
+        preinstrumentedJars =
+            PreinstrumentedJars.find(
+                ((URLClassLoader) resourceProvider).getURLs(), getInstrumentationFingerprint());
+      }
     }
   }
 
@@ -206,4 +513,70 @@ public class SandboxClassLoader extends URLClassLoader {
     }
   }
 
+  /**
+   * Speculative instrumentation of a class. Whichever of the background thread and the loading
+   * thread gets to it first does the work; the other waits for it, or doesn't.
+   */
+  private class Speculation implements Runnable {
+    private final String className;
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final CompletableFuture<ClassBytes> result = new CompletableFuture<>();
+
+    Speculation(String className) {
+      this.className = className;
+    }
+
+    @Override
+    public void run() {
+      if (!claimed.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        result.complete(
+            PerfStatsCollector.getInstance()
+                .measure("speculatively instrument class", () -> getClassBytes(className)));
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    }
+
+    /** Prevents the background thread from starting if it hasn't yet. */
+    void cancel() {
+      if (claimed.compareAndSet(false, true)) {
+        // unblocks a concurrent take(), which will load the class as usual
+        result.complete(null);
+      }
+    }
+
+    /**
+     * Returns the class's bytes, or null if they weren't computed in the background, in which case
+     * the caller should load the class as usual.
+     */
+    ClassBytes take() {
+      if (claimed.compareAndSet(false, true)) {
+        // not started yet; it's quicker to do it ourselves than to wait
+        return null;
+      }
+      try {
+        return result.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (ExecutionException e) {
+        // the class will be loaded as usual, reporting the failure if it's real
+        return null;
+      }
+    }
+  }
+
+  /** The bytes to define for a class, and whether they're instrumented. */
+  private static class ClassBytes {
+    final byte[] bytes;
+    final boolean instrumented;
+
+    ClassBytes(byte[] bytes, boolean instrumented) {
+      this.bytes = bytes;
+      this.instrumented = instrumented;
+    }
+  }
 }
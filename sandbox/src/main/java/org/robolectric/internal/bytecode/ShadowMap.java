@@ -1,6 +1,7 @@
 package org.robolectric.internal.bytecode;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,6 +30,7 @@ public class ShadowMap {
   private final ImmutableMap<String, String> defaultShadows;
   private final ImmutableMap<String, ShadowInfo> overriddenShadows;
   private final ImmutableMap<String, String> shadowPickers;
+  private volatile ImmutableSet<String> shadowedClassNames;
 
   @SuppressWarnings("AndroidJdkLibsChecker")
   public static ShadowMap createFromShadowProviders(List<ShadowProvider> sortedProviders) {
@@ -153,6 +155,24 @@ public class ShadowMap {
     return new ShadowInfo(className, clazz.getName(), annotation);
   }
 
+  /**
+   * Returns the names of all classes which may be shadowed by this map. Classes with default
+   * shadows are named by their canonical names, and all others by their binary names.
+   *
+   * The set is computed once per map, so every caller gets the same instance.
+   */
+  public ImmutableSet<String> getShadowedClassNames() {
+    if (shadowedClassNames == null) {
+      shadowedClassNames =
+          ImmutableSet.<String>builder()
+              .addAll(defaultShadows.keySet())
+              .addAll(overriddenShadows.keySet())
+              .addAll(shadowPickers.keySet())
+              .build();
+    }
+    return shadowedClassNames;
+  }
+
   @SuppressWarnings("ReferenceEquality")
   public Set<String> getInvalidatedClasses(ShadowMap previous) {
     if (this == previous && shadowPickers.isEmpty()) return Collections.emptySet();
@@ -16,10 +16,10 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import javax.annotation.Nonnull;
 import javax.annotation.Priority;
 
@@ -63,6 +63,25 @@ public class ShadowWrangler implements ClassHandler {
     }
   };
   public static final Plan CALL_REAL_CODE_PLAN = null;
+
+  /**
+   * The maximum number of plans to keep, if this system property is set. Otherwise a plan is kept
+   * for every method that has been invoked.
+   */
+  public static final String PLAN_CACHE_SIZE_PROPERTY = "robolectric.planCacheSize";
+
+  // stands in for CALL_REAL_CODE_PLAN in planCache, which can't hold nulls
+  private static final Plan CACHED_CALL_REAL_CODE_PLAN = new Plan() {
+    @Override
+    public Object run(Object instance, Object[] params) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String describe() {
+      return "call real code";
+    }
+  };
   public static final Method CALL_REAL_CODE = null;
   public static final MethodHandle DO_NOTHING = constant(Void.class, null).asType(methodType(void.class));
   public static final Method DO_NOTHING_METHOD;
@@ -83,13 +102,10 @@ public class ShadowWrangler implements ClassHandler {
   private final ShadowMap shadowMap;
   private final Interceptors interceptors;
   private final ShadowMatcher shadowMatcher;
-  private final Map<String, Plan> planCache =
-      Collections.synchronizedMap(new LinkedHashMap<String, Plan>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, Plan> eldest) {
-          return size() > 500;
-        }
-      });
+  private final int maxPlanCacheSize = Integer.getInteger(PLAN_CACHE_SIZE_PROPERTY, 0);
+  private final Map<String, Plan> planCache = new ConcurrentHashMap<>();
+  private final LongAdder planCacheHits = new LongAdder();
+  private final LongAdder planCacheMisses = new LongAdder();
 
   /** key is instrumented class */
   private final ClassValueMap<ShadowInfo> cachedShadowInfos = new ClassValueMap<ShadowInfo>() {
@@ -173,17 +189,33 @@ public class ShadowWrangler implements ClassHandler {
   }
 
   @Override
+  @SuppressWarnings("ReferenceEquality")
   public Plan methodInvoked(String signature, boolean isStatic, Class<?> theClass) {
-    Plan plan;
-    if (planCache.containsKey(signature)) {
-      plan = planCache.get(signature);
-    } else {
-      plan = calculatePlan(signature, isStatic, theClass);
-      planCache.put(signature, plan);
+    Plan plan = planCache.get(signature);
+    if (plan != null) {
+      planCacheHits.increment();
+      return plan == CACHED_CALL_REAL_CODE_PLAN ? CALL_REAL_CODE_PLAN : plan;
+    }
+
+    planCacheMisses.increment();
+    plan = calculatePlan(signature, isStatic, theClass);
+    if (maxPlanCacheSize > 0 && planCache.size() >= maxPlanCacheSize) {
+      planCache.clear();
     }
+    planCache.put(signature, plan == CALL_REAL_CODE_PLAN ? CACHED_CALL_REAL_CODE_PLAN : plan);
     return plan;
   }
 
+  /** Returns the number of times {@link #methodInvoked} found a plan it had already made. */
+  public long getPlanCacheHits() {
+    return planCacheHits.sum();
+  }
+
+  /** Returns the number of times {@link #methodInvoked} had to make a plan. */
+  public long getPlanCacheMisses() {
+    return planCacheMisses.sum();
+  }
+
   @SuppressWarnings("ReferenceEquality")
   private Plan calculatePlan(String signature, boolean isStatic, Class<?> definingClass) {
     return PerfStatsCollector.getInstance().measure("find shadow method", () -> {
@@ -0,0 +1,75 @@
+package org.robolectric.internal.bytecode;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+/**
+ * In-memory cache of instrumented class bytes, shared by all {@link SandboxClassLoader}s in the
+ * JVM.
+ *
+ * Sandboxes for different SDKs load the same application and library classes, and would otherwise
+ * instrument each of them once per SDK. Only classes whose instrumentation didn't depend on any of
+ * a sandbox's own classes (e.g. those in android-all) are shared, so the bytes are the same
+ * whichever sandbox instrumented them. Each sandbox still defines its own classes.
+ *
+ * Sharing is enabled by setting the {@value #ENABLED_PROPERTY} system property to {@code true}.
+ */
+public class SharedInstrumentedClasses {
+
+  public static final String ENABLED_PROPERTY = "robolectric.shareInstrumentedClasses";
+
+  private static final long MAX_BYTES = 128 * 1024 * 1024;
+
+  private static SharedInstrumentedClasses instance;
+
+  private final Cache<String, byte[]> cache;
+
+  /** Returns the shared cache, or null if sharing isn't enabled. */
+  @Nullable
+  public static synchronized SharedInstrumentedClasses getInstance() {
+    if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+      return null;
+    }
+    if (instance == null) {
+      instance = new SharedInstrumentedClasses(MAX_BYTES);
+    }
+    return instance;
+  }
+
+  SharedInstrumentedClasses(long maxBytes) {
+    cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, byte[] bytes) -> bytes.length)
+            .build();
+  }
+
+  /**
+   * Computes the key for a class.
+   *
+   * @param origClassBytes the uninstrumented class bytes
+   * @param instrumentationFingerprint identifies the configuration and instrumentor in use
+   */
+  public String keyFor(byte[] origClassBytes, String instrumentationFingerprint) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(instrumentationFingerprint, StandardCharsets.UTF_8);
+    hasher.putByte((byte) 0);
+    hasher.putBytes(origClassBytes);
+    return hasher.hash().toString();
+  }
+
+  /** Returns the instrumented bytes for {@code key}, or null if there's no such entry. */
+  @Nullable
+  public byte[] get(String key) {
+    return cache.getIfPresent(key);
+  }
+
+  /** Stores the instrumented bytes for {@code key}. The array must not be modified afterwards. */
+  public void put(String key, byte[] instrumentedBytes) {
+    cache.put(key, instrumentedBytes);
+  }
+}
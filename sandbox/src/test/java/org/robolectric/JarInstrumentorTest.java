@@ -0,0 +1,157 @@
+package org.robolectric;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.robolectric.internal.bytecode.InstrumentationTestUtil.newConfigBuilder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.internal.bytecode.InstrumentationTestUtil.RecordingClassInstrumentor;
+import org.robolectric.internal.bytecode.PreinstrumentedJars;
+import org.robolectric.internal.bytecode.SandboxClassLoader;
+import org.robolectric.internal.bytecode.UrlResourceProvider;
+import org.robolectric.testing.AClassThatExtendsAClassWithFinalEqualsHashCode;
+import org.robolectric.testing.AClassWithFunnyConstructors;
+import org.robolectric.testing.AClassWithNativeMethod;
+import org.robolectric.testing.AClassWithStaticMethod;
+import org.robolectric.testing.AnExampleClass;
+import org.robolectric.util.Util;
+
+@RunWith(JUnit4.class)
+public class JarInstrumentorTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final InstrumentationConfiguration config = newConfigBuilder().build();
+
+  private static final Class<?>[] EXAMPLE_CLASSES = {
+    AnExampleClass.class, AClassWithFunnyConstructors.class, AClassWithStaticMethod.class,
+    AClassWithNativeMethod.class, AClassThatExtendsAClassWithFinalEqualsHashCode.class,
+  };
+
+  @Test
+  public void instrumentJar_shouldAddInstrumentedClassesAndRecordFingerprint() throws Exception {
+    File destJar = instrumentExampleJar(new RecordingClassInstrumentor());
+
+    try (JarFile jarFile = new JarFile(destJar)) {
+      assertThat(jarFile.getEntry(PreinstrumentedJars.MARKER_ENTRY)).isNotNull();
+      String classFileName = classFileName(AnExampleClass.class);
+      assertThat(readEntry(jarFile, classFileName)).isEqualTo(classBytes(AnExampleClass.class));
+      assertThat(readEntry(jarFile, PreinstrumentedJars.INSTRUMENTED_CLASSES_DIR + classFileName))
+          .isNotEqualTo(classBytes(AnExampleClass.class));
+    }
+  }
+
+  @Test
+  public void sandboxClassLoader_shouldNotReinstrumentClassesFromMatchingJar() throws Exception {
+    RecordingClassInstrumentor classInstrumentor = new RecordingClassInstrumentor();
+    File destJar = instrumentExampleJar(classInstrumentor);
+    classInstrumentor.reset();
+
+    SandboxClassLoader classLoader =
+        new SandboxClassLoader(
+            config, new UrlResourceProvider(destJar.toURI().toURL()), classInstrumentor);
+    Class<?> exampleClass = classLoader.loadClass(AnExampleClass.class.getName());
+
+    assertThat(exampleClass.getClassLoader()).isSameInstanceAs(classLoader);
+    assertThat(classInstrumentor.getAnalyzedClasses()).doesNotContain(AnExampleClass.class.getName());
+  }
+
+  @Test
+  public void sandboxClassLoader_shouldReinstrumentClassesFromMismatchedJar() throws Exception {
+    RecordingClassInstrumentor classInstrumentor = new RecordingClassInstrumentor();
+    File destJar = instrumentExampleJar(classInstrumentor);
+    classInstrumentor.reset();
+
+    InstrumentationConfiguration otherConfig =
+        new InstrumentationConfiguration.Builder(config).addInstrumentedPackage("other.").build();
+    SandboxClassLoader classLoader =
+        new SandboxClassLoader(
+            otherConfig, new UrlResourceProvider(destJar.toURI().toURL()), classInstrumentor);
+    classLoader.loadClass(AnExampleClass.class.getName());
+
+    assertThat(classInstrumentor.getAnalyzedClasses()).contains(AnExampleClass.class.getName());
+  }
+
+  @Test
+  public void instrumentJar_shouldProduceSameOutputWhenParallel() throws Exception {
+    File sourceJar = temporaryFolder.newFile("source.jar");
+    try (JarOutputStream jarOut = new JarOutputStream(new FileOutputStream(sourceJar))) {
+      jarOut.putNextEntry(new JarEntry("res/"));
+      for (Class<?> clazz : EXAMPLE_CLASSES) {
+        jarOut.putNextEntry(new JarEntry(classFileName(clazz)));
+        jarOut.write(classBytes(clazz));
+        jarOut.putNextEntry(new JarEntry("res/" + clazz.getSimpleName() + ".txt"));
+        jarOut.write(clazz.getName().getBytes(UTF_8));
+      }
+    }
+
+    File sequentialJar = new File(temporaryFolder.getRoot(), "sequential.jar");
+    new JarInstrumentor(config, new RecordingClassInstrumentor())
+        .instrumentJar(sourceJar, sequentialJar);
+    File parallelJar = new File(temporaryFolder.getRoot(), "parallel.jar");
+    new JarInstrumentor(config, new RecordingClassInstrumentor())
+        .setParallelism(4)
+        .instrumentJar(sourceJar, parallelJar);
+
+    List<String> sequentialEntries = entryNames(sequentialJar);
+    assertThat(entryNames(parallelJar)).containsExactlyElementsIn(sequentialEntries).inOrder();
+    try (JarFile sequential = new JarFile(sequentialJar);
+        JarFile parallel = new JarFile(parallelJar)) {
+      for (String name : sequentialEntries) {
+        assertThat(readEntry(parallel, name)).isEqualTo(readEntry(sequential, name));
+      }
+    }
+  }
+
+  private File instrumentExampleJar(RecordingClassInstrumentor classInstrumentor)
+      throws Exception {
+    File sourceJar = temporaryFolder.newFile("source.jar");
+    try (JarOutputStream jarOut = new JarOutputStream(new FileOutputStream(sourceJar))) {
+      jarOut.putNextEntry(new JarEntry(classFileName(AnExampleClass.class)));
+      jarOut.write(classBytes(AnExampleClass.class));
+    }
+
+    File destJar = new File(temporaryFolder.getRoot(), "dest.jar");
+    new JarInstrumentor(config, classInstrumentor).instrumentJar(sourceJar, destJar);
+    return destJar;
+  }
+
+  private static List<String> entryNames(File jar) throws Exception {
+    List<String> names = new ArrayList<>();
+    try (JarFile jarFile = new JarFile(jar)) {
+      for (JarEntry jarEntry : Collections.list(jarFile.entries())) {
+        names.add(jarEntry.getName());
+      }
+    }
+    return names;
+  }
+
+  private static String classFileName(Class<?> clazz) {
+    return clazz.getName().replace('.', '/') + ".class";
+  }
+
+  private static byte[] classBytes(Class<?> clazz) throws Exception {
+    try (InputStream in = clazz.getClassLoader().getResourceAsStream(classFileName(clazz))) {
+      return Util.readBytes(in);
+    }
+  }
+
+  private static byte[] readEntry(JarFile jarFile, String name) throws Exception {
+    try (InputStream in = jarFile.getInputStream(jarFile.getEntry(name))) {
+      return Util.readBytes(in);
+    }
+  }
+}
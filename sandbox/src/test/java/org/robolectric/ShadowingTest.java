@@ -13,6 +13,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.RealObject;
 import org.robolectric.annotation.internal.Instrument;
 import org.robolectric.internal.SandboxTestRunner;
 import org.robolectric.internal.bytecode.SandboxConfig;
@@ -76,6 +77,58 @@ public class ShadowingTest {
     }
   }
 
+  @Test
+  @SandboxConfig(shadows = {ShadowClassWithLabel.class})
+  public void testInstanceMethodsAreDelegatedToTheShadowOfEachReceiver() throws Exception {
+    ClassWithLabel first = new ClassWithLabel("first");
+    ClassWithLabel second = new ClassWithLabel("second");
+    ClassWithLabel subclass = new SubclassWithLabel("subclass");
+    ClassWithLabel uninstrumentedSubclass = new UninstrumentedSubclassWithLabel("uninstrumented");
+
+    for (int i = 0; i < 2; i++) {
+      assertEquals("shadow of first", first.getLabel());
+      assertEquals("shadow of second", second.getLabel());
+      assertEquals("shadow of subclass", subclass.getLabel());
+      assertEquals("shadow of uninstrumented", uninstrumentedSubclass.getLabel());
+    }
+  }
+
+  @Implements(ClassWithLabel.class)
+  public static class ShadowClassWithLabel {
+    @RealObject ClassWithLabel realObject;
+
+    @Implementation
+    protected String getLabel() {
+      return "shadow of " + realObject.label;
+    }
+  }
+
+  @Instrument
+  public static class ClassWithLabel {
+    final String label;
+
+    public ClassWithLabel(String label) {
+      this.label = label;
+    }
+
+    public String getLabel() {
+      return label;
+    }
+  }
+
+  @Instrument
+  public static class SubclassWithLabel extends ClassWithLabel {
+    public SubclassWithLabel(String label) {
+      super(label);
+    }
+  }
+
+  public static class UninstrumentedSubclassWithLabel extends ClassWithLabel {
+    public UninstrumentedSubclassWithLabel(String label) {
+      super(label);
+    }
+  }
+
   @Test
   @SandboxConfig(shadows = {ShadowPaintForTests.class})
   public void testNativeMethodsAreDelegated() throws Exception {
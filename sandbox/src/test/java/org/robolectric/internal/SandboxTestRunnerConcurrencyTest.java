@@ -0,0 +1,77 @@
+package org.robolectric.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.RunWith;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SandboxTestRunnerConcurrencyTest {
+
+  @After
+  public void tearDown() {
+    System.clearProperty("robolectric.concurrency");
+  }
+
+  @Test
+  public void shouldRunTestsConcurrentlyInSeparateSandboxes() throws Exception {
+    System.setProperty("robolectric.concurrency", "2");
+    TestsThatWaitForEachOther.barrier = new CyclicBarrier(2);
+    TestsThatWaitForEachOther.classLoaders.clear();
+
+    List<Failure> failures = new ArrayList<>();
+    List<String> finished = new ArrayList<>();
+    RunNotifier notifier = new RunNotifier();
+    notifier.addListener(
+        new RunListener() {
+          @Override
+          public synchronized void testFailure(Failure failure) {
+            failures.add(failure);
+          }
+
+          @Override
+          public synchronized void testFinished(Description description) {
+            finished.add(description.getMethodName());
+          }
+        });
+    new SandboxTestRunner(TestsThatWaitForEachOther.class).run(notifier);
+
+    assertThat(failures).isEmpty();
+    assertThat(finished).containsExactly("first", "second");
+    assertThat(TestsThatWaitForEachOther.classLoaders).hasSize(2);
+  }
+
+  /** Each test waits for the other, so they only pass if they run at the same time. */
+  @Ignore
+  public static class TestsThatWaitForEachOther {
+    static CyclicBarrier barrier;
+    static final List<ClassLoader> classLoaders = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void first() throws Exception {
+      awaitOtherTest();
+    }
+
+    @Test
+    public void second() throws Exception {
+      awaitOtherTest();
+    }
+
+    private void awaitOtherTest() throws Exception {
+      classLoaders.add(Thread.currentThread().getContextClassLoader());
+      barrier.await(10, TimeUnit.SECONDS);
+    }
+  }
+}
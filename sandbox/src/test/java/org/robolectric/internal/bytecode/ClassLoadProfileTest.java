@@ -0,0 +1,97 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.internal.bytecode.InstrumentationTestUtil.newConfigBuilder;
+
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.internal.bytecode.InstrumentationTestUtil.RecordingClassInstrumentor;
+import org.robolectric.testing.AnExampleClass;
+
+@RunWith(JUnit4.class)
+public class ClassLoadProfileTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Before
+  public void setUp() throws Exception {
+    System.setProperty(
+        ClassLoadProfile.PROFILE_DIR_PROPERTY, temporaryFolder.getRoot().getAbsolutePath());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty(ClassLoadProfile.PROFILE_DIR_PROPERTY);
+  }
+
+  @Test
+  public void save_shouldBeReadByNextRun() throws Exception {
+    Path file = temporaryFolder.getRoot().toPath().resolve("profile.txt");
+    ClassLoadProfile profile = new ClassLoadProfile(file);
+    assertThat(profile.getProfiledClasses()).isEmpty();
+    profile.recordClass("a.B");
+    profile.recordClass("a.A");
+    profile.recordClass("a.B");
+    profile.save();
+
+    ClassLoadProfile nextProfile = new ClassLoadProfile(file);
+    nextProfile.recordClass("a.C");
+    assertThat(nextProfile.getProfiledClasses()).containsExactly("a.B", "a.A", "a.C").inOrder();
+  }
+
+  @Test
+  public void forKey_shouldReturnNullUnlessEnabled() throws Exception {
+    assertThat(ClassLoadProfile.forKey("key")).isNotNull();
+    System.clearProperty(ClassLoadProfile.PROFILE_DIR_PROPERTY);
+    assertThat(ClassLoadProfile.forKey("key")).isNull();
+  }
+
+  @Test
+  public void sandboxClassLoader_shouldInstrumentProfiledClassesInBackground() throws Exception {
+    InstrumentationConfiguration config = newConfigBuilder().build();
+    RecordingClassInstrumentor classInstrumentor = new RecordingClassInstrumentor();
+    new SandboxClassLoader(config, new UrlResourceProvider(), classInstrumentor)
+        .loadClass(AnExampleClass.class.getName());
+    classInstrumentor.reset();
+
+    SandboxClassLoader classLoader =
+        new SandboxClassLoader(config, new UrlResourceProvider(), classInstrumentor);
+    classLoader.startSpeculativeInstrumentation();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (classInstrumentor.getAnalyzingThreads().isEmpty()
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Class<?> exampleClass = classLoader.loadClass(AnExampleClass.class.getName());
+
+    assertThat(exampleClass.getClassLoader()).isSameInstanceAs(classLoader);
+    assertThat(classInstrumentor.getAnalyzingThreads()).hasSize(1);
+    assertThat(classInstrumentor.getAnalyzingThreads().get(0))
+        .isNotSameInstanceAs(Thread.currentThread());
+  }
+
+  @Test
+  public void sandboxClassLoader_discardSpeculations_shouldReleaseUnloadedClasses()
+      throws Exception {
+    InstrumentationConfiguration config = newConfigBuilder().build();
+    RecordingClassInstrumentor classInstrumentor = new RecordingClassInstrumentor();
+    new SandboxClassLoader(config, new UrlResourceProvider(), classInstrumentor)
+        .loadClass(AnExampleClass.class.getName());
+
+    SandboxClassLoader classLoader =
+        new SandboxClassLoader(config, new UrlResourceProvider(), classInstrumentor);
+    assertThat(classLoader.getPendingSpeculationCount()).isEqualTo(0);
+    classLoader.startSpeculativeInstrumentation();
+    assertThat(classLoader.getPendingSpeculationCount()).isEqualTo(1);
+    classLoader.discardSpeculations();
+    assertThat(classLoader.getPendingSpeculationCount()).isEqualTo(0);
+
+    Class<?> exampleClass = classLoader.loadClass(AnExampleClass.class.getName());
+    assertThat(exampleClass.getClassLoader()).isSameInstanceAs(classLoader);
+  }
+}
@@ -0,0 +1,62 @@
+package org.robolectric.internal.bytecode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Helpers for tests which instrument classes from the test class path. */
+public final class InstrumentationTestUtil {
+
+  private InstrumentationTestUtil() {}
+
+  /**
+   * Returns a builder for a configuration which acquires the classes on the test class path,
+   * except those of the JDK and of Robolectric's instrumentation itself.
+   */
+  public static InstrumentationConfiguration.Builder newConfigBuilder() {
+    return InstrumentationConfiguration.newBuilder()
+        .doNotAcquirePackage("java.")
+        .doNotAcquirePackage("jdk.internal.")
+        .doNotAcquirePackage("sun.")
+        .doNotAcquirePackage("org.robolectric.internal.")
+        .doNotAcquirePackage("org.robolectric.pluginapi.");
+  }
+
+  /** Records which classes are analyzed, and on which threads. */
+  public static class RecordingClassInstrumentor extends OldClassInstrumentor {
+    private final List<String> analyzedClasses = new ArrayList<>();
+    private final List<Thread> analyzingThreads = new ArrayList<>();
+
+    public RecordingClassInstrumentor() {
+      super(new ShadowDecorator());
+    }
+
+    @Override
+    public MutableClass analyzeClass(
+        byte[] origClassBytes,
+        InstrumentationConfiguration config,
+        ClassNodeProvider classNodeProvider) {
+      MutableClass mutableClass = super.analyzeClass(origClassBytes, config, classNodeProvider);
+      synchronized (this) {
+        analyzedClasses.add(mutableClass.getName());
+        analyzingThreads.add(Thread.currentThread());
+      }
+      return mutableClass;
+    }
+
+    /** Returns the names of the classes analyzed so far, in order. */
+    public synchronized List<String> getAnalyzedClasses() {
+      return new ArrayList<>(analyzedClasses);
+    }
+
+    /** Returns the threads on which classes were analyzed so far, in order. */
+    public synchronized List<Thread> getAnalyzingThreads() {
+      return new ArrayList<>(analyzingThreads);
+    }
+
+    /** Forgets the classes analyzed so far. */
+    public synchronized void reset() {
+      analyzedClasses.clear();
+      analyzingThreads.clear();
+    }
+  }
+}
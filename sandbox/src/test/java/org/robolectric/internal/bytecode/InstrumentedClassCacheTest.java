@@ -0,0 +1,124 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class InstrumentedClassCacheTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private InstrumentedClassCache cache;
+  private final Map<String, String> consultedClasses = new HashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    cache = new InstrumentedClassCache(temporaryFolder.getRoot().toPath(), "1.0");
+  }
+
+  @Test
+  public void get_shouldReturnNullForMissingEntries() {
+    assertThat(cache.get(cache.keyFor(bytes("orig"), "config"), consultedClasses::get)).isNull();
+  }
+
+  @Test
+  public void put_shouldBeVisibleToOtherInstances() {
+    String key = cache.keyFor(bytes("orig"), "config");
+    cache.put(key, bytes("instrumented"), Collections.emptyMap());
+
+    InstrumentedClassCache otherCache =
+        new InstrumentedClassCache(temporaryFolder.getRoot().toPath(), "1.0");
+    assertThat(otherCache.get(key, consultedClasses::get)).isEqualTo(bytes("instrumented"));
+  }
+
+  @Test
+  public void get_shouldIgnoreEntriesWhoseConsultedClassesChanged() {
+    String key = cache.keyFor(bytes("orig"), "config");
+    consultedClasses.put("a/Super", InstrumentedClassCache.hashClass(bytes("super")));
+    consultedClasses.put("a/Other", InstrumentedClassCache.hashClass(bytes("other")));
+    cache.put(key, bytes("instrumented"), ImmutableMap.copyOf(consultedClasses));
+    assertThat(cache.get(key, consultedClasses::get)).isEqualTo(bytes("instrumented"));
+
+    // e.g. a sandbox for another SDK, where the superclass is different
+    consultedClasses.put("a/Super", InstrumentedClassCache.hashClass(bytes("other super")));
+    assertThat(cache.get(key, consultedClasses::get)).isNull();
+
+    consultedClasses.remove("a/Super");
+    assertThat(cache.get(key, consultedClasses::get)).isNull();
+  }
+
+  @Test
+  public void put_shouldReplaceEntryInstrumentedAgainstDifferentConsultedClasses() {
+    String key = cache.keyFor(bytes("orig"), "config");
+    consultedClasses.put("a/Super", InstrumentedClassCache.hashClass(bytes("super")));
+    cache.put(key, bytes("instrumented"), ImmutableMap.copyOf(consultedClasses));
+
+    consultedClasses.put("a/Super", InstrumentedClassCache.hashClass(bytes("other super")));
+    cache.put(key, bytes("instrumented again"), ImmutableMap.copyOf(consultedClasses));
+
+    assertThat(cache.get(key, consultedClasses::get)).isEqualTo(bytes("instrumented again"));
+  }
+
+  @Test
+  public void keyFor_shouldDependOnBytesConfigAndVersion() {
+    String key = cache.keyFor(bytes("orig"), "config");
+    assertThat(cache.keyFor(bytes("orig"), "config")).isEqualTo(key);
+    assertThat(cache.keyFor(bytes("other"), "config")).isNotEqualTo(key);
+    assertThat(cache.keyFor(bytes("orig"), "other config")).isNotEqualTo(key);
+    assertThat(new InstrumentedClassCache(temporaryFolder.getRoot().toPath(), "2.0")
+        .keyFor(bytes("orig"), "config")).isNotEqualTo(key);
+  }
+
+  @Test
+  public void put_shouldTolerateConcurrentWriters() throws Exception {
+    String key = cache.keyFor(bytes("orig"), "config");
+    ExecutorService executorService = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        futures.add(
+            executorService.submit(
+                () -> cache.put(key, bytes("instrumented"), Collections.emptyMap())));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executorService.shutdown();
+    }
+
+    assertThat(cache.get(key, consultedClasses::get)).isEqualTo(bytes("instrumented"));
+    assertThat(temporaryFolder.getRoot().toPath().resolve(key.substring(0, 2)).toFile().list())
+        .asList()
+        .containsExactly(key.substring(2) + ".class");
+  }
+
+  @Test
+  public void fingerprint_shouldBeStableAndReflectConfiguration() {
+    InstrumentationConfiguration config =
+        InstrumentationConfiguration.newBuilder().addInstrumentedPackage("a.").build();
+    assertThat(InstrumentationConfiguration.newBuilder().addInstrumentedPackage("a.").build()
+        .fingerprint()).isEqualTo(config.fingerprint());
+    assertThat(InstrumentationConfiguration.newBuilder().addInstrumentedPackage("a.")
+        .doNotInstrumentPackage("a.b.").build().fingerprint()).isNotEqualTo(config.fingerprint());
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+}
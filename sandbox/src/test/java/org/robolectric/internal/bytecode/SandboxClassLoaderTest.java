@@ -26,6 +26,7 @@ import java.lang.invoke.SwitchPoint;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
@@ -45,6 +46,7 @@ import org.robolectric.testing.AClassThatRefersToAForgettableClass;
 import org.robolectric.testing.AClassThatRefersToAForgettableClassInItsConstructor;
 import org.robolectric.testing.AClassThatRefersToAForgettableClassInMethodCalls;
 import org.robolectric.testing.AClassThatRefersToAForgettableClassInMethodCallsReturningPrimitive;
+import org.robolectric.testing.AClassThatThrows;
 import org.robolectric.testing.AClassToForget;
 import org.robolectric.testing.AClassToRemember;
 import org.robolectric.testing.AClassWithEqualsHashCodeToString;
@@ -208,6 +210,44 @@ public class SandboxClassLoaderTest {
     assertEquals("staticMethod(value1)", directMethod.invoke(null, "value1"));
   }
 
+  @Test
+  public void callingMethodsOfShadowFreeClassShouldNotInvokeClassHandler() throws Exception {
+    setClassLoader(new SandboxClassLoader(configureBuilder()
+        .setShadowedClasses(Collections.singleton(AClassWithStaticMethod.class.getName()))
+        .build()));
+
+    Class<?> exampleClass = loadClass(AnExampleClass.class);
+    Method normalMethod = exampleClass.getMethod("normalMethod", String.class, int.class);
+    Object exampleInstance = exampleClass.getDeclaredConstructor().newInstance();
+    assertEquals("normalMethod(value1, 123)", normalMethod.invoke(exampleInstance, "value1", 123));
+    assertNotNull(findDirectMethod(exampleClass, "normalMethod", String.class, int.class));
+    assertThat(transcript).isEmpty();
+
+    Class<?> shadowedClass = loadClass(AClassWithStaticMethod.class);
+    shadowedClass.getMethod("staticMethod", String.class).invoke(null, "value1");
+    assertThat(transcript).containsExactly(
+        "methodInvoked: AClassWithStaticMethod.staticMethod(java.lang.String value1)");
+  }
+
+  @Test
+  public void exceptionsFromShadowFreeClassShouldHaveCleanedStackTraces() throws Exception {
+    setClassLoader(new SandboxClassLoader(configureBuilder()
+        .setShadowedClasses(Collections.singleton(AClassWithStaticMethod.class.getName()))
+        .build()));
+
+    Class<?> throwingClass = loadClass(AClassThatThrows.class);
+    try {
+      throwingClass.getMethod("throwException").invoke(null);
+      fail("should have thrown");
+    } catch (InvocationTargetException e) {
+      assertThat(e.getCause()).hasMessageThat().isEqualTo("fake exception");
+      StackTraceElement[] stackTrace = e.getCause().getStackTrace();
+      assertThat(stackTrace[0].getClassName()).isEqualTo(AClassThatThrows.class.getName());
+      assertThat(stackTrace[0].getMethodName()).isEqualTo("throwException");
+    }
+    assertThat(transcript).isEmpty();
+  }
+
   @Test
   public void callingNormalMethodReturningIntegerShouldInvokeClassHandler() throws Exception {
     Class<?> exampleClass = loadClass(AClassWithMethodReturningInteger.class);
@@ -618,6 +658,17 @@ public class SandboxClassLoaderTest {
     loadClass(AnEnum.class);
   }
 
+  @Test
+  public void isClassLoaded_shouldReportOnlyClassesLoadedSoFar() throws Exception {
+    SandboxClassLoader classLoader = new SandboxClassLoader(configureBuilder().build());
+    assertThat(classLoader.isClassLoaded(AnExampleClass.class.getName())).isFalse();
+
+    classLoader.loadClass(AnExampleClass.class.getName());
+
+    assertThat(classLoader.isClassLoaded(AnExampleClass.class.getName())).isTrue();
+    assertThat(classLoader.isClassLoaded(String.class.getName())).isTrue();
+  }
+
   @Test
   public void shouldReverseAnArray() throws Exception {
     assertArrayEquals(new Integer[]{5, 4, 3, 2, 1}, Util.reverse(new Integer[]{1, 2, 3, 4, 5}));
@@ -745,6 +796,14 @@ public class SandboxClassLoaderTest {
 
     @Override
     public <T extends Throwable> T stripStackTrace(T throwable) {
+      // like ShadowWrangler, hides the frames of the renamed original methods
+      List<StackTraceElement> stackTrace = new ArrayList<>();
+      for (StackTraceElement element : throwable.getStackTrace()) {
+        if (!element.getMethodName().startsWith(ShadowConstants.ROBO_PREFIX)) {
+          stackTrace.add(element);
+        }
+      }
+      throwable.setStackTrace(stackTrace.toArray(new StackTraceElement[0]));
       return throwable;
     }
   }
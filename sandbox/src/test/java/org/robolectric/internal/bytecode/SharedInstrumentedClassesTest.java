@@ -0,0 +1,73 @@
+package org.robolectric.internal.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.robolectric.internal.bytecode.InstrumentationTestUtil.newConfigBuilder;
+
+import java.net.URL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.robolectric.internal.bytecode.InstrumentationTestUtil.RecordingClassInstrumentor;
+import org.robolectric.testing.AnExampleClass;
+
+@RunWith(JUnit4.class)
+public class SharedInstrumentedClassesTest {
+
+  private RecordingClassInstrumentor classInstrumentor;
+
+  @Before
+  public void setUp() throws Exception {
+    System.setProperty(SharedInstrumentedClasses.ENABLED_PROPERTY, "true");
+    classInstrumentor = new RecordingClassInstrumentor();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty(SharedInstrumentedClasses.ENABLED_PROPERTY);
+  }
+
+  @Test
+  public void shouldShareClassesFromOutsideSandboxClassPath() throws Exception {
+    InstrumentationConfiguration config = newConfig("shared.");
+    loadExampleClass(config, new UrlResourceProvider());
+    loadExampleClass(config, new UrlResourceProvider());
+
+    assertThat(classInstrumentor.getAnalyzedClasses())
+        .containsExactly(AnExampleClass.class.getName());
+  }
+
+  @Test
+  public void shouldNotShareClassesFromSandboxClassPath() throws Exception {
+    InstrumentationConfiguration config = newConfig("unshared.");
+    URL testClasses = AnExampleClass.class.getProtectionDomain().getCodeSource().getLocation();
+    loadExampleClass(config, new UrlResourceProvider(testClasses));
+    loadExampleClass(config, new UrlResourceProvider(testClasses));
+
+    assertThat(classInstrumentor.getAnalyzedClasses())
+        .containsExactly(AnExampleClass.class.getName(), AnExampleClass.class.getName());
+  }
+
+  @Test
+  public void keyFor_shouldDependOnBytesAndFingerprint() throws Exception {
+    SharedInstrumentedClasses sharedClasses = new SharedInstrumentedClasses(1024);
+    String key = sharedClasses.keyFor(new byte[] {1, 2}, "config");
+    assertThat(sharedClasses.keyFor(new byte[] {1, 2}, "config")).isEqualTo(key);
+    assertThat(sharedClasses.keyFor(new byte[] {1, 3}, "config")).isNotEqualTo(key);
+    assertThat(sharedClasses.keyFor(new byte[] {1, 2}, "other config")).isNotEqualTo(key);
+  }
+
+  private void loadExampleClass(
+      InstrumentationConfiguration config, ResourceProvider resourceProvider) throws Exception {
+    SandboxClassLoader classLoader =
+        new SandboxClassLoader(config, resourceProvider, classInstrumentor);
+    Class<?> exampleClass = classLoader.loadClass(AnExampleClass.class.getName());
+    assertThat(exampleClass.getClassLoader()).isSameInstanceAs(classLoader);
+  }
+
+  /** Each test uses its own configuration, so entries shared by other tests aren't found. */
+  private static InstrumentationConfiguration newConfig(String uniquePackage) {
+    return newConfigBuilder().addInstrumentedPackage(uniquePackage).build();
+  }
+}
@@ -0,0 +1,10 @@
+package org.robolectric.testing;
+
+import org.robolectric.annotation.internal.Instrument;
+
+@Instrument
+public class AClassThatThrows {
+  public static void throwException() {
+    throw new IllegalStateException("fake exception");
+  }
+}
@@ -2,6 +2,7 @@ package org.robolectric.internal;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * Interface implemented by packages that provide shadows to Robolectric.
@@ -14,6 +15,17 @@ public interface ShadowProvider {
    */
   void reset();
 
+  /**
+   * Reset the static state of the shadows provided by this package whose shadow or shadowed class
+   * has been loaded. The state of classes which haven't been loaded can't have changed, so this is
+   * cheaper than {@link #reset()} when tests only use a few of the shadowed classes.
+   *
+   * @param isClassLoaded tests whether the class with the given binary name has been loaded
+   */
+  default void reset(Predicate<String> isClassLoaded) {
+    reset();
+  }
+
   /**
    * Array of Java package names that are shadowed by this package.
    *
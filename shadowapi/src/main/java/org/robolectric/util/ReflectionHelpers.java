@@ -1,6 +1,7 @@
 package org.robolectric.util;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
@@ -8,15 +9,32 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** Collection of helper methods for calling methods and accessing fields reflectively. */
 @SuppressWarnings(value = {"unchecked", "TypeParameterUnusedInFormals", "NewApi"})
 public class ReflectionHelpers {
 
   private static final Map<String, Object> PRIMITIVE_RETURN_VALUES;
+  private static final Class<?>[] NO_TYPES = new Class<?>[0];
+
+  /**
+   * Members found so far, by the class they were looked up on. Like the JDK's own reflection data,
+   * they're stored on that class, so they don't keep its class loader from being unloaded.
+   */
+  private static final ClassValue<Map<MemberKey, AccessibleObject>> MEMBERS =
+      new ClassValue<Map<MemberKey, AccessibleObject>>() {
+        @Override
+        protected Map<MemberKey, AccessibleObject> computeValue(Class<?> type) {
+          return new ConcurrentHashMap<>();
+        }
+      };
+  private static volatile Field modifiersField;
+  private static volatile boolean modifiersFieldChecked;
 
   static {
     HashMap<String, Object> map = new HashMap<>();
@@ -107,14 +125,7 @@ public class ReflectionHelpers {
   @SuppressWarnings("unchecked")
   public static <R> R getField(final Object object, final String fieldName) {
     try {
-      return traverseClassHierarchy(object.getClass(), NoSuchFieldException.class, new InsideTraversal<R>() {
-        @Override
-        public R run(Class<?> traversalClass) throws Exception {
-          Field field = traversalClass.getDeclaredField(fieldName);
-          field.setAccessible(true);
-          return (R) field.get(object);
-        }
-      });
+      return (R) findFieldInHierarchy(object.getClass(), fieldName).get(object);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -129,15 +140,7 @@ public class ReflectionHelpers {
    */
   public static void setField(final Object object, final String fieldName, final Object fieldNewValue) {
     try {
-      traverseClassHierarchy(object.getClass(), NoSuchFieldException.class, new InsideTraversal<Void>() {
-        @Override
-        public Void run(Class<?> traversalClass) throws Exception {
-          Field field = traversalClass.getDeclaredField(fieldName);
-          field.setAccessible(true);
-          field.set(object, fieldNewValue);
-          return null;
-        }
-      });
+      findFieldInHierarchy(object.getClass(), fieldName).set(object, fieldNewValue);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -153,9 +156,7 @@ public class ReflectionHelpers {
    */
   public static void setField(Class<?> type, final Object object, final String fieldName, final Object fieldNewValue) {
     try {
-      Field field = type.getDeclaredField(fieldName);
-      field.setAccessible(true);
-      field.set(object, fieldNewValue);
+      findDeclaredField(type, fieldName).set(object, fieldNewValue);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -188,7 +189,7 @@ public class ReflectionHelpers {
    */
   public static <R> R getStaticField(Class<?> clazz, String fieldName) {
     try {
-      return getStaticField(clazz.getDeclaredField(fieldName));
+      return (R) findStaticField(clazz, fieldName).get(null);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -218,7 +219,7 @@ public class ReflectionHelpers {
    */
   public static void setStaticField(Class<?> clazz, String fieldName, Object fieldNewValue) {
     try {
-      setStaticField(clazz.getDeclaredField(fieldName), fieldNewValue);
+      findStaticField(clazz, fieldName).set(null, fieldNewValue);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -238,15 +239,8 @@ public class ReflectionHelpers {
       final Class<?>[] classes = ClassParameter.getClasses(classParameters);
       final Object[] values = ClassParameter.getValues(classParameters);
 
-      return traverseClassHierarchy(instance.getClass(), NoSuchMethodException.class, new InsideTraversal<R>() {
-        @Override
-        @SuppressWarnings("unchecked")
-        public R run(Class<?> traversalClass) throws Exception {
-          Method declaredMethod = traversalClass.getDeclaredMethod(methodName, classes);
-          declaredMethod.setAccessible(true);
-          return (R) declaredMethod.invoke(instance, values);
-        }
-      });
+      Method method = findMethodInHierarchy(instance.getClass(), methodName, classes);
+      return (R) method.invoke(instance, values);
     } catch (InvocationTargetException e) {
       if (e.getTargetException() instanceof RuntimeException) {
         throw (RuntimeException) e.getTargetException();
@@ -275,8 +269,7 @@ public class ReflectionHelpers {
       final Class<?>[] classes = ClassParameter.getClasses(classParameters);
       final Object[] values = ClassParameter.getValues(classParameters);
 
-      Method method = cl.getDeclaredMethod(methodName, classes);
-      method.setAccessible(true);
+      Method method = findDeclaredMethod(cl, methodName, classes);
       if (Modifier.isStatic(method.getModifiers())) {
         throw new IllegalArgumentException(method + " is static");
       }
@@ -328,8 +321,7 @@ public class ReflectionHelpers {
       Class<?>[] classes = ClassParameter.getClasses(classParameters);
       Object[] values = ClassParameter.getValues(classParameters);
 
-      Method method = clazz.getDeclaredMethod(methodName, classes);
-      method.setAccessible(true);
+      Method method = findDeclaredMethod(clazz, methodName, classes);
       if (!Modifier.isStatic(method.getModifiers())) {
         throw new IllegalArgumentException(method + " is not static");
       }
@@ -393,9 +385,7 @@ public class ReflectionHelpers {
       final Class<?>[] classes = ClassParameter.getClasses(classParameters);
       final Object[] values = ClassParameter.getValues(classParameters);
 
-      Constructor<? extends R> constructor = clazz.getDeclaredConstructor(classes);
-      constructor.setAccessible(true);
-      return constructor.newInstance(values);
+      return findDeclaredConstructor(clazz, classes).newInstance(values);
     } catch (InstantiationException e) {
       throw new RuntimeException("error instantiating " + clazz.getName(), e);
     } catch (InvocationTargetException e) {
@@ -428,22 +418,135 @@ public class ReflectionHelpers {
     }
   }
 
+  private static Field findFieldInHierarchy(Class<?> clazz, final String fieldName)
+      throws Exception {
+    MemberKey key = new MemberKey(MemberKind.FIELD_IN_HIERARCHY, fieldName, NO_TYPES);
+    Map<MemberKey, AccessibleObject> members = getMembers(clazz);
+    Field field = (Field) members.get(key);
+    if (field == null) {
+      field =
+          traverseClassHierarchy(
+              clazz,
+              NoSuchFieldException.class,
+              new InsideTraversal<Field>() {
+                @Override
+                public Field run(Class<?> traversalClass) throws Exception {
+                  Field declaredField = traversalClass.getDeclaredField(fieldName);
+                  declaredField.setAccessible(true);
+                  return declaredField;
+                }
+              });
+      members.put(key, field);
+    }
+    return field;
+  }
+
+  private static Field findDeclaredField(Class<?> clazz, String fieldName) throws Exception {
+    MemberKey key = new MemberKey(MemberKind.FIELD, fieldName, NO_TYPES);
+    Map<MemberKey, AccessibleObject> members = getMembers(clazz);
+    Field field = (Field) members.get(key);
+    if (field == null) {
+      field = clazz.getDeclaredField(fieldName);
+      field.setAccessible(true);
+      members.put(key, field);
+    }
+    return field;
+  }
+
+  private static Field findStaticField(Class<?> clazz, String fieldName) throws Exception {
+    MemberKey key = new MemberKey(MemberKind.STATIC_FIELD, fieldName, NO_TYPES);
+    Map<MemberKey, AccessibleObject> members = getMembers(clazz);
+    Field field = (Field) members.get(key);
+    if (field == null) {
+      field = clazz.getDeclaredField(fieldName);
+      makeFieldVeryAccessible(field);
+      members.put(key, field);
+    }
+    return field;
+  }
+
+  private static Method findMethodInHierarchy(
+      Class<?> clazz, final String methodName, final Class<?>[] parameterTypes) throws Exception {
+    MemberKey key = new MemberKey(MemberKind.METHOD_IN_HIERARCHY, methodName, parameterTypes);
+    Map<MemberKey, AccessibleObject> members = getMembers(clazz);
+    Method method = (Method) members.get(key);
+    if (method == null) {
+      method =
+          traverseClassHierarchy(
+              clazz,
+              NoSuchMethodException.class,
+              new InsideTraversal<Method>() {
+                @Override
+                public Method run(Class<?> traversalClass) throws Exception {
+                  Method declaredMethod =
+                      traversalClass.getDeclaredMethod(methodName, parameterTypes);
+                  declaredMethod.setAccessible(true);
+                  return declaredMethod;
+                }
+              });
+      members.put(key, method);
+    }
+    return method;
+  }
+
+  private static Method findDeclaredMethod(
+      Class<?> clazz, String methodName, Class<?>[] parameterTypes) throws Exception {
+    MemberKey key = new MemberKey(MemberKind.METHOD, methodName, parameterTypes);
+    Map<MemberKey, AccessibleObject> members = getMembers(clazz);
+    Method method = (Method) members.get(key);
+    if (method == null) {
+      method = clazz.getDeclaredMethod(methodName, parameterTypes);
+      method.setAccessible(true);
+      members.put(key, method);
+    }
+    return method;
+  }
+
+  private static <R> Constructor<? extends R> findDeclaredConstructor(
+      Class<? extends R> clazz, Class<?>[] parameterTypes) throws Exception {
+    MemberKey key = new MemberKey(MemberKind.CONSTRUCTOR, "<init>", parameterTypes);
+    Map<MemberKey, AccessibleObject> members = getMembers(clazz);
+    Constructor<? extends R> constructor = (Constructor<? extends R>) members.get(key);
+    if (constructor == null) {
+      constructor = clazz.getDeclaredConstructor(parameterTypes);
+      constructor.setAccessible(true);
+      members.put(key, constructor);
+    }
+    return constructor;
+  }
+
+  private static Map<MemberKey, AccessibleObject> getMembers(Class<?> clazz) {
+    return MEMBERS.get(clazz);
+  }
+
   private static void makeFieldVeryAccessible(Field field) {
     field.setAccessible(true);
 
-    try {
-      Field modifiersField = Field.class.getDeclaredField("modifiers");
-      modifiersField.setAccessible(true);
+    Field modifiersField = getModifiersField();
+    if (modifiersField != null) {
       try {
         modifiersField.setInt(field, field.getModifiers() & ~Modifier.FINAL);
       } catch (IllegalAccessException e) {
         throw new RuntimeException(e);
       }
-    } catch (NoSuchFieldException e) {
-      // ignore missing fields
     }
   }
 
+  /** Returns {@code Field.modifiers}, or null if it can't be found, e.g. on JDK 12 and later. */
+  private static Field getModifiersField() {
+    if (!modifiersFieldChecked) {
+      try {
+        Field field = Field.class.getDeclaredField("modifiers");
+        field.setAccessible(true);
+        modifiersField = field;
+      } catch (NoSuchFieldException e) {
+        // ignore missing fields
+      }
+      modifiersFieldChecked = true;
+    }
+    return modifiersField;
+  }
+
   public static Object defaultValueForType(String returnType) {
     return PRIMITIVE_RETURN_VALUES.get(returnType);
   }
@@ -452,6 +555,50 @@ public class ReflectionHelpers {
     R run(Class<?> traversalClass) throws Exception;
   }
 
+  private enum MemberKind {
+    FIELD,
+    FIELD_IN_HIERARCHY,
+    STATIC_FIELD,
+    METHOD,
+    METHOD_IN_HIERARCHY,
+    CONSTRUCTOR
+  }
+
+  /** Identifies a member by how it was looked up, and its name and parameter types. */
+  private static final class MemberKey {
+    private final MemberKind kind;
+    private final String name;
+    private final Class<?>[] parameterTypes;
+    private final int hashCode;
+
+    MemberKey(MemberKind kind, String name, Class<?>[] parameterTypes) {
+      this.kind = kind;
+      this.name = name;
+      this.parameterTypes = parameterTypes;
+      this.hashCode =
+          31 * (31 * kind.ordinal() + name.hashCode()) + Arrays.hashCode(parameterTypes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof MemberKey)) {
+        return false;
+      }
+      MemberKey that = (MemberKey) o;
+      return kind == that.kind
+          && name.equals(that.name)
+          && Arrays.equals(parameterTypes, that.parameterTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
   /**
    * Typed parameter used with reflective method calls.
    *
@@ -4,7 +4,10 @@ import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth.assertWithMessage;
 import static org.junit.Assert.fail;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -27,6 +30,19 @@ public class ReflectionHelpersTest {
     assertThat((int) ReflectionHelpers.getField(example, "notOverridden")).isEqualTo(6);
   }
 
+  @Test
+  public void getFieldReflectively_getsFieldOfEachObjectsClass() {
+    ExampleBase base = new ExampleBase();
+    base.overridden = 2;
+    ExampleDescendant example = new ExampleDescendant();
+    example.overridden = 5;
+    ((ExampleBase) example).overridden = 3;
+
+    assertThat((int) ReflectionHelpers.getField(base, "overridden")).isEqualTo(2);
+    assertThat((int) ReflectionHelpers.getField(example, "overridden")).isEqualTo(5);
+    assertThat((int) ReflectionHelpers.getField(base, "overridden")).isEqualTo(2);
+  }
+
   @Test
   public void getFieldReflectively_givesHelpfulExceptions() {
     ExampleDescendant example = new ExampleDescendant();
@@ -130,6 +146,19 @@ public class ReflectionHelpersTest {
         .isEqualTo(-46);
   }
 
+  @Test
+  public void callInstanceMethodReflectively_withClass_doesNotCallInheritedMethods() {
+    ExampleDescendant example = new ExampleDescendant();
+    assertThat((int) ReflectionHelpers.callInstanceMethod(example, "returnNegativeNumber"))
+        .isEqualTo(-46);
+    try {
+      ReflectionHelpers.callInstanceMethod(ExampleDescendant.class, example, "returnNegativeNumber");
+      fail("Expected exception not thrown");
+    } catch (RuntimeException e) {
+      assertThat(e).hasCauseThat().isInstanceOf(NoSuchMethodException.class);
+    }
+  }
+
   @Test
   public void callInstanceMethodReflectively_givesHelpfulExceptions() {
     ExampleDescendant example = new ExampleDescendant();
@@ -262,6 +291,29 @@ public class ReflectionHelpersTest {
     assertWithMessage("name").that(ec.name).isNull();
   }
 
+  @Test
+  public void cachedMembers_shouldNotKeepClassLoaderReachable() throws Exception {
+    WeakReference<ClassLoader> classLoaderRef = lookUpMembersInNewClassLoader();
+
+    for (int i = 0; i < 100 && classLoaderRef.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertThat(classLoaderRef.get()).isNull();
+  }
+
+  private static WeakReference<ClassLoader> lookUpMembersInNewClassLoader() throws Exception {
+    URL classes = ExampleClass.class.getProtectionDomain().getCodeSource().getLocation();
+    ClassLoader classLoader = new URLClassLoader(new URL[] {classes}, null);
+    Class<?> exampleClass = classLoader.loadClass(ExampleClass.class.getName());
+    assertThat(exampleClass).isNotSameInstanceAs(ExampleClass.class);
+
+    Object example =
+        ReflectionHelpers.callConstructor(exampleClass, ClassParameter.from(String.class, "name"));
+    assertThat((String) ReflectionHelpers.getField(example, "name")).isEqualTo("name");
+    return new WeakReference<>(classLoader);
+  }
+
   @SuppressWarnings("serial")
   private static class TestError extends Error {
   }
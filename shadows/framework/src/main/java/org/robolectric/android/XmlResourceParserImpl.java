@@ -17,9 +17,9 @@ import org.robolectric.res.Fs;
 import org.robolectric.res.ResName;
 import org.robolectric.res.ResourceTable;
 import org.robolectric.res.StringResources;
+import org.robolectric.res.builder.CompiledXml;
+import org.robolectric.res.builder.XmlBlock;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.xmlpull.v1.XmlPullParserException;
 
@@ -27,8 +27,8 @@ import org.xmlpull.v1.XmlPullParserException;
  * Concrete implementation of the {@link XmlResourceParser}.
  *
  * Clients expects a pull parser while the resource loader
- * initialise this object with a {@link Document}.
- * This implementation navigates the dom and emulates a pull
+ * initialise this object with a {@link CompiledXml}.
+ * This implementation navigates its nodes and emulates a pull
  * parser by raising all the opportune events.
  *
  * Note that the original android implementation is based on
@@ -52,13 +52,13 @@ public class XmlResourceParserImpl implements XmlResourceParser {
       XmlResourceParser.FEATURE_VALIDATION
   };
 
-  private final Document document;
+  private final CompiledXml xml;
   private final Path fileName;
   private final String packageName;
   private final ResourceTable resourceTable;
   private final String applicationNamespace;
 
-  private Node currentNode;
+  private int currentNode = CompiledXml.NO_NODE;
 
   private boolean mStarted = false;
   private boolean mDecNextDepth = false;
@@ -85,7 +85,23 @@ public class XmlResourceParserImpl implements XmlResourceParser {
       String packageName,
       String applicationPackageName,
       ResourceTable resourceTable) {
-    this.document = document;
+    this(CompiledXml.compile(document), fileName, packageName, applicationPackageName,
+        resourceTable);
+  }
+
+  public XmlResourceParserImpl(
+      XmlBlock xmlBlock, String applicationPackageName, ResourceTable resourceTable) {
+    this(xmlBlock.getCompiledXml(), xmlBlock.getPath(), xmlBlock.getPackageName(),
+        applicationPackageName, resourceTable);
+  }
+
+  private XmlResourceParserImpl(
+      CompiledXml xml,
+      Path fileName,
+      String packageName,
+      String applicationPackageName,
+      ResourceTable resourceTable) {
+    this.xml = xml;
     this.fileName = fileName;
     this.packageName = packageName;
     this.resourceTable = resourceTable;
@@ -188,10 +204,10 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public String getText() {
-    if (currentNode == null) {
+    if (currentNode == CompiledXml.NO_NODE) {
       return "";
     }
-    return StringResources.processStringResources(currentNode.getTextContent());
+    return StringResources.processStringResources(xml.getTextContent(currentNode));
   }
 
   @Override
@@ -210,10 +226,7 @@ public class XmlResourceParserImpl implements XmlResourceParser {
   /*package*/
   public boolean isWhitespace(String text)
       throws XmlPullParserException {
-    if (text == null) {
-      return false;
-    }
-    return text.split("\\s").length == 0;
+    return CompiledXml.isWhitespace(text);
   }
 
   @Override
@@ -244,7 +257,8 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public String getNamespace() {
-    String namespace = currentNode != null ? currentNode.getNamespaceURI() : null;
+    String namespace =
+        currentNode != CompiledXml.NO_NODE ? xml.getNamespace(currentNode) : null;
     if (namespace == null) {
       return "";
     }
@@ -254,46 +268,36 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public String getName() {
-    if (currentNode == null) {
+    if (currentNode == CompiledXml.NO_NODE) {
       return null;
     }
-    return currentNode.getNodeName();
+    return xml.getNodeName(currentNode);
   }
 
-  Node getAttributeAt(int index) {
-    if (currentNode == null) {
+  private void checkAttributeIndex(int index) {
+    if (currentNode == CompiledXml.NO_NODE
+        || index < 0
+        || index >= xml.getAttributeCount(currentNode)) {
       throw new IndexOutOfBoundsException(String.valueOf(index));
     }
-    NamedNodeMap map = currentNode.getAttributes();
-    if (index >= map.getLength()) {
-      throw new IndexOutOfBoundsException(String.valueOf(index));
-    }
-    return map.item(index);
   }
 
   public String getAttribute(String namespace, String name) {
-    if (currentNode == null) {
+    if (currentNode == CompiledXml.NO_NODE) {
       return null;
     }
 
-    Element element = (Element) currentNode;
-    if (element.hasAttributeNS(namespace, name)) {
-      return element.getAttributeNS(namespace, name).trim();
-    } else if (applicationNamespace.equals(namespace)
-        && element.hasAttributeNS(AttributeResource.RES_AUTO_NS_URI, name)) {
-      return element.getAttributeNS(AttributeResource.RES_AUTO_NS_URI, name).trim();
+    int index = xml.indexOfAttribute(currentNode, namespace, name);
+    if (index == -1 && applicationNamespace.equals(namespace)) {
+      index = xml.indexOfAttribute(currentNode, AttributeResource.RES_AUTO_NS_URI, name);
     }
-
-    return null;
+    return index == -1 ? null : xml.getAttributeValue(currentNode, index).trim();
   }
 
   @Override
   public String getAttributeNamespace(int index) {
-    Node attr = getAttributeAt(index);
-    if (attr == null) {
-      return "";
-    }
-    return maybeReplaceNamespace(attr.getNamespaceURI());
+    checkAttributeIndex(index);
+    return maybeReplaceNamespace(xml.getAttributeNamespace(currentNode, index));
   }
 
   private String maybeReplaceNamespace(String namespace) {
@@ -308,9 +312,8 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public String getAttributeName(int index) {
-    Node attr = getAttributeAt(index);
-    String name = attr.getLocalName();
-    return name == null ? attr.getNodeName() : name;
+    checkAttributeIndex(index);
+    return xml.getAttributeName(currentNode, index);
   }
 
   @Override
@@ -327,15 +330,16 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   @Override
   public int getAttributeCount() {
-    if (currentNode == null) {
+    if (currentNode == CompiledXml.NO_NODE) {
       return -1;
     }
-    return currentNode.getAttributes().getLength();
+    return xml.getAttributeCount(currentNode);
   }
 
   @Override
   public String getAttributeValue(int index) {
-    return qualify(getAttributeAt(index).getNodeValue());
+    checkAttributeIndex(index);
+    return qualify(xml.getAttributeValue(currentNode, index));
   }
 
   // for testing only...
@@ -447,14 +451,14 @@ public class XmlResourceParserImpl implements XmlResourceParser {
             "PROCESSING_INSTRUCTION");
       }
       case (START_DOCUMENT): {
-        currentNode = document.getDocumentElement();
+        currentNode = CompiledXml.ROOT;
         return START_TAG;
       }
       case (START_TAG): {
-        if (currentNode.hasChildNodes()) {
+        int firstChild = xml.getFirstChild(currentNode);
+        if (firstChild != CompiledXml.NO_NODE) {
           // The node has children, navigate down
-          return processNextNodeType(
-              currentNode.getFirstChild());
+          return processNextNodeType(firstChild);
         } else {
           // The node has no children
           return END_TAG;
@@ -473,9 +477,9 @@ public class XmlResourceParserImpl implements XmlResourceParser {
 
   }
 
-  /*protected*/ int processNextNodeType(Node node)
+  /*protected*/ int processNextNodeType(int node)
       throws XmlPullParserException {
-    switch (node.getNodeType()) {
+    switch (xml.getNodeType(node)) {
       case (Node.ATTRIBUTE_NODE): {
         throw new IllegalArgumentException("ATTRIBUTE_NODE");
       }
@@ -511,18 +515,14 @@ public class XmlResourceParserImpl implements XmlResourceParser {
         throw new IllegalArgumentException("DOCUMENT_TYPE_NODE");
       }
       case (Node.TEXT_NODE): {
-        if (isWhitespace(node.getNodeValue())) {
-          // Skip whitespaces
-          return navigateToNextNode(node);
-        } else {
-          currentNode = node;
-          return TEXT;
-        }
+        // Whitespaces have been skipped already
+        currentNode = node;
+        return TEXT;
       }
       default: {
         throw new RuntimeException(
             "Robolectric -> Unknown node type: " +
-                node.getNodeType() + ".");
+                xml.getNodeType(node) + ".");
       }
     }
   }
@@ -543,19 +543,19 @@ public class XmlResourceParserImpl implements XmlResourceParser {
    * @throws XmlPullParserException if the parser fails to
    *                                parse the next node.
    */
-  int navigateToNextNode(Node node)
+  int navigateToNextNode(int node)
       throws XmlPullParserException {
-    Node nextNode = node.getNextSibling();
-    if (nextNode != null) {
+    int nextNode = xml.getNextSibling(node);
+    if (nextNode != CompiledXml.NO_NODE) {
       // Move to the next siblings
       return processNextNodeType(nextNode);
     } else {
       // Goes back to the parent
-      if (document.getDocumentElement().equals(node)) {
-        currentNode = null;
+      if (node == CompiledXml.ROOT) {
+        currentNode = CompiledXml.NO_NODE;
         return END_DOCUMENT;
       }
-      currentNode = node.getParentNode();
+      currentNode = xml.getParent(node);
       return END_TAG;
     }
   }
@@ -607,12 +607,7 @@ public class ShadowLegacyAssetManager extends ShadowAssetManager {
   }
 
   private XmlResourceParser getXmlResourceParser(ResourceTable resourceProvider, XmlBlock block, String packageName) {
-    return new XmlResourceParserImpl(
-        block.getDocument(),
-        block.getPath(),
-        block.getPackageName(),
-        packageName,
-        resourceProvider);
+    return new XmlResourceParserImpl(block, packageName, resourceProvider);
   }
 
   @HiddenApi @Implementation
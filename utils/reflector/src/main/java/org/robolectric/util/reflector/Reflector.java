@@ -29,11 +29,16 @@ import java.util.concurrent.atomic.AtomicInteger;
  *
  * reflector(_Foo_.class, new Foo()).getName();
  * ```
+ *
+ * Implementations of accessor interfaces are usually generated at runtime. When the Robolectric
+ * annotation processor has already generated one, named `<interface name>$$Reflector`, it's used
+ * instead.
  */
 @SuppressWarnings("NewApi")
 public class Reflector {
 
   private static final boolean DEBUG = false;
+  private static final String PREGENERATED_SUFFIX = "$$Reflector";
   private static final AtomicInteger COUNTER = new AtomicInteger();
   private static final Map<Class<?>, Constructor<?>> CACHE =
       Collections.synchronizedMap(new WeakerHashMap<>());
@@ -61,8 +66,13 @@ public class Reflector {
     Constructor<? extends T> ctor = (Constructor<? extends T>) CACHE.get(iClass);
     try {
       if (ctor == null) {
-        Class<? extends T> reflectorClass = createReflectorClass(iClass, targetClass);
-        ctor = reflectorClass.getConstructor(targetClass);
+        Class<? extends T> reflectorClass = findPregeneratedReflectorClass(iClass);
+        if (reflectorClass != null) {
+          ctor = reflectorClass.getDeclaredConstructor(Object.class);
+        } else {
+          reflectorClass = createReflectorClass(iClass, targetClass);
+          ctor = reflectorClass.getConstructor(targetClass);
+        }
         ctor.setAccessible(true);
       }
 
@@ -99,6 +109,19 @@ public class Reflector {
     return targetClass;
   }
 
+  /**
+   * Returns the implementation of {@code iClass} generated by the annotation processor, or null if
+   * there isn't one.
+   */
+  private static <T> Class<? extends T> findPregeneratedReflectorClass(Class<T> iClass) {
+    try {
+      return Class.forName(iClass.getName() + PREGENERATED_SUFFIX, false, iClass.getClassLoader())
+          .asSubclass(iClass);
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
   private static <T> Class<? extends T> createReflectorClass(
       Class<T> iClass, Class<?> targetClass) {
     String reflectorClassName = iClass.getName() + "$$Reflector" + COUNTER.getAndIncrement();
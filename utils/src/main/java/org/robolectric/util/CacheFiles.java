@@ -0,0 +1,91 @@
+package org.robolectric.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.util.Properties;
+
+/** Utility methods for the caches Robolectric keeps on disk between runs. */
+@SuppressWarnings("NewApi")
+public class CacheFiles {
+
+  private static final String VERSION_RESOURCE = "robolectric-version.properties";
+
+  private CacheFiles() {}
+
+  /**
+   * Identifies the running Robolectric build, for mixing into the keys of cache entries built by
+   * {@code codeClass}'s code. Snapshot builds change without changing their version, so the
+   * location and timestamp of the jar or directory containing {@code codeClass} are mixed in too.
+   */
+  public static String robolectricVersion(Class<?> codeClass) {
+    String version = "unknown";
+    ClassLoader classLoader = codeClass.getClassLoader();
+    try (InputStream in = classLoader.getResourceAsStream(VERSION_RESOURCE)) {
+      if (in != null) {
+        Properties properties = new Properties();
+        properties.load(in);
+        version = properties.getProperty("robolectric.version", version);
+      }
+    } catch (IOException e) {
+      Logger.warn("failed to read %s: %s", VERSION_RESOURCE, e);
+    }
+
+    CodeSource codeSource = codeClass.getProtectionDomain().getCodeSource();
+    URL location = codeSource == null ? null : codeSource.getLocation();
+    if (location != null) {
+      try {
+        File file = new File(location.toURI());
+        version += ":" + file.getAbsolutePath() + ":" + file.lastModified() + ":" + file.length();
+      } catch (URISyntaxException | IllegalArgumentException e) {
+        version += ":" + location;
+      }
+    }
+    return version;
+  }
+
+  /**
+   * Writes a file by writing a temporary file next to it and renaming that into place, so that
+   * readers, including other processes sharing the cache, only ever see complete contents. The
+   * file's directory is created if necessary. Where the file system can't rename atomically, the
+   * file is simply replaced.
+   */
+  public static void writeAtomically(Path file, ContentWriter contentWriter) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+        contentWriter.write(out);
+      }
+      try {
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      tempFile = null;
+    } finally {
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException ignored) {
+          // the original failure is more useful
+        }
+      }
+    }
+  }
+
+  /** Writes the contents of a file. */
+  public interface ContentWriter {
+    void write(OutputStream out) throws IOException;
+  }
+}
@@ -20,7 +20,7 @@ public class PerfStatsCollector {
   private final Clock clock;
   private final Map<Class<?>, Object> metadata = new HashMap<>();
   private final Map<MetricKey, Metric> metricMap = new HashMap<>();
-  private boolean enabled = true;
+  private volatile boolean enabled = true;
 
   public PerfStatsCollector() {
     this(System::nanoTime);
@@ -89,6 +89,18 @@ public class PerfStatsCollector {
     void run() throws F;
   }
 
+  /**
+   * Counts an occurrence of an event that isn't timed, such as a cache hit. The event is reported
+   * as a metric with no elapsed time.
+   */
+  public void incrementCount(String eventName) {
+    if (!enabled) {
+      return;
+    }
+
+    record(eventName, true, 0);
+  }
+
   public synchronized Collection<Metric> getMetrics() {
     return new ArrayList<>(metricMap.values());
   }
@@ -105,7 +117,18 @@ public class PerfStatsCollector {
     return new Metadata(metadata);
   }
 
-  public void reset() {
+  /**
+   * Returns the metrics collected so far and clears them in one step, so that metrics recorded
+   * concurrently by other threads are reported exactly once rather than lost or reported twice.
+   * Metadata is retained.
+   */
+  public synchronized Collection<Metric> drainMetrics() {
+    Collection<Metric> metrics = getMetrics();
+    metricMap.clear();
+    return metrics;
+  }
+
+  public synchronized void reset() {
     metadata.clear();
     metricMap.clear();
   }
@@ -131,15 +154,17 @@ public class PerfStatsCollector {
         return;
       }
 
-      synchronized (PerfStatsCollector.this) {
-        MetricKey key = new MetricKey(name, success);
-        Metric metric = metricMap.get(key);
-        if (metric == null) {
-          metricMap.put(key, metric = new Metric(key.name, key.success));
-        }
-        metric.record(clock.nanoTime() - startTimeNs);
-      }
+      record(name, success, clock.nanoTime() - startTimeNs);
+    }
+  }
+
+  private synchronized void record(String name, boolean success, long elapsedNs) {
+    MetricKey key = new MetricKey(name, success);
+    Metric metric = metricMap.get(key);
+    if (metric == null) {
+      metricMap.put(key, metric = new Metric(key.name, key.success));
     }
+    metric.record(elapsedNs);
   }
 
   /**
@@ -0,0 +1,52 @@
+package org.robolectric.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+@SuppressWarnings("NewApi")
+public class CacheFilesTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void writeAtomically_shouldCreateDirectoryAndReplaceFile() throws Exception {
+    Path file = temporaryFolder.getRoot().toPath().resolve("dir/file");
+
+    CacheFiles.writeAtomically(file, out -> out.write("first".getBytes(UTF_8)));
+    CacheFiles.writeAtomically(file, out -> out.write("second".getBytes(UTF_8)));
+
+    assertThat(new String(Files.readAllBytes(file), UTF_8)).isEqualTo("second");
+    assertThat(file.getParent().toFile().list()).asList().containsExactly("file");
+  }
+
+  @Test
+  public void writeAtomically_whenWriterFails_shouldKeepFileAndRemoveTempFile() throws Exception {
+    Path file = temporaryFolder.getRoot().toPath().resolve("file");
+    CacheFiles.writeAtomically(file, out -> out.write("first".getBytes(UTF_8)));
+
+    try {
+      CacheFiles.writeAtomically(file, out -> {
+        out.write("incomplete".getBytes(UTF_8));
+        throw new IOException("fake failure");
+      });
+      fail("should have thrown");
+    } catch (IOException e) {
+      assertThat(e).hasMessageThat().isEqualTo("fake failure");
+    }
+
+    assertThat(new String(Files.readAllBytes(file), UTF_8)).isEqualTo("first");
+    File[] files = temporaryFolder.getRoot().listFiles();
+    assertThat(files).hasLength(1);
+  }
+}
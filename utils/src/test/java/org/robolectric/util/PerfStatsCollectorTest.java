@@ -106,6 +106,28 @@ public class PerfStatsCollectorTest {
         new Metric("event", 1, 5, false));
   }
 
+  @Test
+  public void shouldCountEventsWithoutElapsedTime() throws Exception {
+    collector.incrementCount("counted event");
+    fakeClock.delay(20);
+    collector.incrementCount("counted event");
+
+    Collection<Metric> metrics = collector.getMetrics();
+    assertThat(metrics).hasSize(1);
+    Metric metric = metrics.iterator().next();
+    assertThat(metric.getName()).isEqualTo("counted event");
+    assertThat(metric.getCount()).isEqualTo(2);
+    assertThat(metric.getElapsedNs()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldNotCountEventsWhenDisabled() throws Exception {
+    collector.setEnabled(false);
+    collector.incrementCount("counted event");
+
+    assertThat(collector.getMetrics()).isEmpty();
+  }
+
   @Test
   public void reset_shouldClearAllMetadataAndMetrics() throws Exception {
     collector.putMetadata(String.class, "metadata");
@@ -115,6 +137,16 @@ public class PerfStatsCollectorTest {
     assertThat(collector.getMetrics()).isEmpty();
   }
 
+  @Test
+  public void drainMetrics_shouldReturnAndClearMetricsButKeepMetadata() throws Exception {
+    collector.putMetadata(String.class, "metadata");
+    collector.incrementCount("event");
+
+    assertThat(collector.drainMetrics()).containsExactly(new Metric("event", 1, 0, true));
+    assertThat(collector.getMetrics()).isEmpty();
+    assertThat(collector.getMetadata().get(String.class)).isEqualTo("metadata");
+  }
+
   private static class FakeClock implements Clock {
 
     private int timeNs = 0;